@@ -0,0 +1,60 @@
+package guru.springframework.sfgrestbrewery.benchmarks;
+
+import guru.springframework.sfgrestbrewery.bootstrap.BeerLoader;
+import guru.springframework.sfgrestbrewery.services.BeerService;
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerPageCursor;
+import guru.springframework.sfgrestbrewery.web.model.BeerPagedList;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BeerService reads against in-memory H2 over R2DBC. The showInventoryOnHand=true variants bypass the
+ * beer cache, so they measure the query and mapping path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class BeerServiceBenchmark {
+
+    BeerService beerService;
+
+    @Setup
+    public void setUp(BreweryApplicationState application) {
+        beerService = application.getBean(BeerService.class);
+    }
+
+    @Benchmark
+    public BeerDto getByIdCached() {
+        return beerService.getById(1, false).block();
+    }
+
+    @Benchmark
+    public BeerDto getByIdUncached() {
+        return beerService.getById(1, true).block();
+    }
+
+    @Benchmark
+    public BeerDto getByUpcCached() {
+        return beerService.getByUpc(BeerLoader.BEER_1_UPC).block();
+    }
+
+    @Benchmark
+    public BeerPagedList listBeersCached() {
+        return beerService.listBeers(null, null, PageRequest.of(0, 25), false).block();
+    }
+
+    @Benchmark
+    public BeerPagedList listBeersUncached() {
+        return beerService.listBeers(null, null, PageRequest.of(0, 25), true).block();
+    }
+
+    @Benchmark
+    public BeerPagedList listBeersKeyset() {
+        return beerService.listBeers(null, null, BeerPageCursor.first(BeerPageCursor.SortOrder.ID), 25, false, false).block();
+    }
+}
@@ -0,0 +1,58 @@
+package guru.springframework.sfgrestbrewery.benchmarks;
+
+import guru.springframework.sfgrestbrewery.SfgReactiveBreweryApplication;
+import guru.springframework.sfgrestbrewery.bootstrap.BeerLoader;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the full application (in-memory H2 over R2DBC) once per benchmark trial, waiting for the bootstrap
+ * data to finish loading.
+ * Request logging is turned down so it does not dominate the measurements.
+ */
+@State(Scope.Benchmark)
+public class BreweryApplicationState {
+
+    public ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = start();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Starts the application with the benchmark defaults plus the given {@code --name=value} arguments.
+     */
+    static ConfigurableApplicationContext start(String... args) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--logging.level.root=warn",
+                "--logging.level.reactor.netty.http=warn",
+                "--logging.level.guru.springframework.sfgrestbrewery=warn",
+                "--spring.devtools.restart.enabled=false"));
+        arguments.addAll(List.of(args));
+
+        ConfigurableApplicationContext context = SpringApplication.run(SfgReactiveBreweryApplication.class,
+                arguments.toArray(new String[0]));
+        context.getBean(BeerLoader.class).loaded().block(Duration.ofMinutes(5));
+        return context;
+    }
+}
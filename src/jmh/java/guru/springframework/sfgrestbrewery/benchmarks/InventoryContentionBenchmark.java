@@ -0,0 +1,54 @@
+package guru.springframework.sfgrestbrewery.benchmarks;
+
+import guru.springframework.sfgrestbrewery.services.StripedCounter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reserve / release throughput on one hot beer as threads are added. {@code stripes = 1} is a single CAS'd
+ * word, the baseline the striped cells are meant to beat once more than one core is contending.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class InventoryContentionBenchmark {
+
+    @Param({"1", "8", "64"})
+    int stripes;
+
+    StripedCounter available;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        available = new StripedCounter(stripes, 1_000_000);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean reserveRelease1Thread() {
+        return reserveRelease();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean reserveRelease4Threads() {
+        return reserveRelease();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean reserveReleaseAllCores() {
+        return reserveRelease();
+    }
+
+    private boolean reserveRelease() {
+        boolean reserved = available.tryAcquire(1);
+        if (reserved) {
+            available.add(1);
+        }
+        return reserved;
+    }
+}
@@ -0,0 +1,83 @@
+package guru.springframework.sfgrestbrewery.benchmarks;
+
+import guru.springframework.sfgrestbrewery.bootstrap.BeerLoader;
+import guru.springframework.sfgrestbrewery.domain.Beer;
+import guru.springframework.sfgrestbrewery.repositories.BeerRepository;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.data.relational.core.query.Criteria.where;
+import static org.springframework.data.relational.core.query.Query.query;
+
+/**
+ * Uncached lookups by UPC, name and style + name as the beer table grows. With the lookup indexes in place
+ * the latency should stay roughly flat from 30 to 1M rows; without them it grows with the row count.
+ *
+ * Run with {@code -Djmh.include=LookupScalingBenchmark}; each row count starts its own application.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class LookupScalingBenchmark {
+
+    private static final int SEED_BEERS = 30;
+
+    @Param({"30", "10000", "100000", "1000000"})
+    int rows;
+
+    ConfigurableApplicationContext context;
+    BeerRepository beerRepository;
+    R2dbcEntityTemplate template;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BreweryApplicationState.start("--sfg.brewery.bootstrap.synthetic-beers=" + (rows - SEED_BEERS));
+        beerRepository = context.getBean(BeerRepository.class);
+        template = context.getBean(R2dbcEntityTemplate.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Beer findByUpc() {
+        return beerRepository.findByUpc(BeerLoader.BEER_17_UPC).block();
+    }
+
+    @Benchmark
+    public List<Beer> findByName() {
+        return template.select(Beer.class)
+                .matching(query(where("beerName").is("Pinball Porter")))
+                .all()
+                .collectList()
+                .block();
+    }
+
+    @Benchmark
+    public List<Beer> findByStyleAndName() {
+        return template.select(Beer.class)
+                .matching(query(where("beerStyle").is(BeerStyleEnum.STOUT).and("beerName").is("Pinball Porter")))
+                .all()
+                .collectList()
+                .block();
+    }
+
+    @Benchmark
+    public List<Beer> firstPageOfStyleByName() {
+        return template.select(Beer.class)
+                .matching(query(where("beerStyle").is(BeerStyleEnum.STOUT)).sort(Sort.by("beerName")).limit(25))
+                .all()
+                .collectList()
+                .block();
+    }
+}
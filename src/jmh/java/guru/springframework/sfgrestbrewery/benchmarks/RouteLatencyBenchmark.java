@@ -0,0 +1,55 @@
+package guru.springframework.sfgrestbrewery.benchmarks;
+
+import guru.springframework.sfgrestbrewery.bootstrap.BeerLoader;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end request latency through the WebFlux stack (routing, handler, service, serialization) for the
+ * v1 annotated controller and the v2 functional routes.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class RouteLatencyBenchmark {
+
+    WebTestClient webTestClient;
+
+    @Setup
+    public void setUp(BreweryApplicationState application) {
+        webTestClient = WebTestClient.bindToApplicationContext(application.context).build();
+    }
+
+    @Benchmark
+    public byte[] v2GetBeerById() {
+        return get("/api/v2/beer/1");
+    }
+
+    @Benchmark
+    public byte[] v2GetBeerByUpc() {
+        return get("/api/v2/beerUpc/" + BeerLoader.BEER_1_UPC);
+    }
+
+    @Benchmark
+    public byte[] v1GetBeerById() {
+        return get("/api/v1/beer/1");
+    }
+
+    @Benchmark
+    public byte[] v1ListBeers() {
+        return get("/api/v1/beer?pageSize=25");
+    }
+
+    private byte[] get(String uri) {
+        return webTestClient.get().uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().returnResult().getResponseBody();
+    }
+}
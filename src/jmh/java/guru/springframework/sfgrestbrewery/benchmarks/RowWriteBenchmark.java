@@ -0,0 +1,85 @@
+package guru.springframework.sfgrestbrewery.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import guru.springframework.sfgrestbrewery.domain.Beer;
+import guru.springframework.sfgrestbrewery.web.mappers.BeerJsonWriter;
+import guru.springframework.sfgrestbrewery.web.mappers.BeerMapper;
+import guru.springframework.sfgrestbrewery.web.mappers.BeerMapperImpl;
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One NDJSON row of the beer stream, as WebFlux writes it: MapStruct to a BeerDto then Jackson's encoder,
+ * against BeerJsonWriter straight from the entity. Both write into pooled Netty buffers; run with
+ * {@code -prof gc} (the default) to compare bytes allocated per row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class RowWriteBenchmark {
+
+    private static final ResolvableType BEER_DTO_TYPE = ResolvableType.forClass(BeerDto.class);
+
+    BeerMapper beerMapper;
+    Jackson2JsonEncoder encoder;
+    BeerJsonWriter beerJsonWriter;
+    NettyDataBufferFactory bufferFactory;
+    Beer beer;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+
+        beerMapper = new BeerMapperImpl();
+        encoder = new Jackson2JsonEncoder(objectMapper);
+        beerJsonWriter = new BeerJsonWriter(objectMapper);
+        bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
+        beer = Beer.builder()
+                .id(1)
+                .version(1L)
+                .beerName("Galaxy Cat")
+                .beerStyle(BeerStyleEnum.PALE_ALE)
+                .upc("9122089364369")
+                .quantityOnHand(250)
+                .price(new BigDecimal("12.95"))
+                .createdDate(LocalDateTime.now())
+                .lastModifiedDate(LocalDateTime.now())
+                .build();
+    }
+
+    @Benchmark
+    public int mapStructAndEncoder() {
+        DataBuffer buffer = encoder.encodeValue(beerMapper.beerToBeerDto(beer), bufferFactory, BEER_DTO_TYPE,
+                MediaType.APPLICATION_NDJSON, Map.of());
+        int written = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return written;
+    }
+
+    @Benchmark
+    public int beerJsonWriter() {
+        DataBuffer buffer = beerJsonWriter.writeLine(beer, false, bufferFactory);
+        int written = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return written;
+    }
+}
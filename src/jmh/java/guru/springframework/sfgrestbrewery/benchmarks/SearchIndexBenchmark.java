@@ -0,0 +1,45 @@
+package guru.springframework.sfgrestbrewery.benchmarks;
+
+import guru.springframework.sfgrestbrewery.bootstrap.BeerDataGenerator;
+import guru.springframework.sfgrestbrewery.domain.Beer;
+import guru.springframework.sfgrestbrewery.services.NGramIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First page (25 hits) of a search against the n-gram index as the catalog grows, from a rare exact name to a
+ * misspelt word shared by 1 in 16 generated beers. The index is filled directly from generated beers, so no
+ * application is started.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SearchIndexBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int beers;
+
+    @Param({"hazy owl 4242", "galxy", "lighthouse pale"})
+    String query;
+
+    NGramIndex<Beer> index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new NGramIndex<>();
+        int[] id = {0};
+        new BeerDataGenerator(42).generate(beers).toIterable().forEach(beer -> {
+            beer.setId(++id[0]);
+            index.put(beer.getId(), beer.getBeerName() + " " + beer.getBeerStyle(), beer);
+        });
+    }
+
+    @Benchmark
+    public NGramIndex.Matches<Beer> search() {
+        return index.search(query, 0.5, 0, 25);
+    }
+}
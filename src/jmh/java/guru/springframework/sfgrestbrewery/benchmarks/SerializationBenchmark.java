@@ -0,0 +1,65 @@
+package guru.springframework.sfgrestbrewery.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerPagedList;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson cost of a list page, the largest response body the API produces.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+    @Param({"1", "25", "100"})
+    int pageSize;
+
+    ObjectMapper objectMapper;
+    BeerPagedList beerPagedList;
+    byte[] beerPagedListJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<BeerDto> beers = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            beers.add(BeerDto.builder()
+                    .id(i + 1)
+                    .beerName("Beer " + i)
+                    .beerStyle(BeerStyleEnum.values()[i % BeerStyleEnum.values().length].name())
+                    .upc(String.format("%013d", i))
+                    .price(new BigDecimal("9.99"))
+                    .quantityOnHand(i)
+                    .createdDate(LocalDateTime.now())
+                    .lastUpdatedDate(LocalDateTime.now())
+                    .build());
+        }
+
+        beerPagedList = new BeerPagedList(beers, PageRequest.of(0, pageSize), 1000);
+        beerPagedListJson = objectMapper.writeValueAsBytes(beerPagedList);
+    }
+
+    @Benchmark
+    public byte[] serializeBeerPagedList() throws Exception {
+        return objectMapper.writeValueAsBytes(beerPagedList);
+    }
+
+    @Benchmark
+    public BeerPagedList deserializeBeerPagedList() throws Exception {
+        return objectMapper.readValue(beerPagedListJson, BeerPagedList.class);
+    }
+}
@@ -0,0 +1,74 @@
+package guru.springframework.sfgrestbrewery.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code /api/v1/beer} list pages over real HTTP connections, against the server with Reactor Netty's
+ * defaults and with the {@code prod} profile (compression, event loop size, h2c, idle timeout, sampled access
+ * log). The client asks for gzip either way, as browsers do, and speaks HTTP/1.1; {@code -p protocol=H2C}
+ * with {@code -p profile=prod} measures h2c clients with prior knowledge instead.
+ *
+ * Offset pages come pre-gzipped from the page cache; cursor pages are encoded per request and, at 25 beers,
+ * fall under the {@code prod} compression threshold.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@State(Scope.Benchmark)
+public class ServerProfileLoadBenchmark {
+
+    @Param({"default", "prod"})
+    String profile;
+
+    @Param({"/api/v1/beer?pageSize=25", "/api/v1/beer?pageSize=25&cursor="})
+    String uri;
+
+    @Param({"HTTP11"})
+    HttpProtocol protocol;
+
+    ConfigurableApplicationContext context;
+    LoopResources clientLoops;
+    HttpClient client;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BreweryApplicationState.start("--spring.profiles.active=" + profile);
+        int port = ((ReactiveWebServerApplicationContext) context).getWebServer().getPort();
+
+        // the client gets its own event loops, as it would in another process
+        clientLoops = LoopResources.create("load-client", 2, true);
+        client = HttpClient.create()
+                .runOn(clientLoops)
+                .baseUrl("http://localhost:" + port)
+                .protocol(protocol)
+                .compress(true);
+
+        // a few requests one at a time first: sixteen cold ones at once can outlast the timeout on a small machine
+        for (int i = 0; i < 20; i++) {
+            listBeers();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+        clientLoops.dispose();
+    }
+
+    @Benchmark
+    public byte[] listBeers() {
+        return client.get().uri(uri)
+                .responseSingle((response, body) -> body.asByteArray())
+                .block(Duration.ofSeconds(30));
+    }
+}
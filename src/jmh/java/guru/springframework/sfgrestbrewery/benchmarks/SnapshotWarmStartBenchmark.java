@@ -0,0 +1,74 @@
+package guru.springframework.sfgrestbrewery.benchmarks;
+
+import guru.springframework.sfgrestbrewery.services.BeerSearchIndex;
+import guru.springframework.sfgrestbrewery.services.BeerSnapshots;
+import guru.springframework.sfgrestbrewery.services.BeerStyleStats;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warm start: the time from starting the application until the catalog is loaded and the search index and
+ * style statistics are built, seeding the beers from the generator versus restoring them from a snapshot
+ * exported once per trial. Each invocation starts a fresh application on its own in-memory database.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SnapshotWarmStartBenchmark {
+
+    private static final int SEED_BEERS = 30;
+
+    @Param({"100000", "1000000"})
+    int beers;
+
+    Path snapshot;
+    ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void exportSnapshot() throws IOException {
+        snapshot = Files.createTempFile("beers", ".snapshot");
+        ConfigurableApplicationContext exporter = start("--sfg.brewery.bootstrap.synthetic-beers=" + (beers - SEED_BEERS));
+        try {
+            exporter.getBean(BeerSnapshots.class).export(snapshot).block(Duration.ofMinutes(5));
+        } finally {
+            exporter.close();
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSnapshot() throws IOException {
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Benchmark
+    public void seed() {
+        context = start("--sfg.brewery.bootstrap.synthetic-beers=" + (beers - SEED_BEERS));
+    }
+
+    @Benchmark
+    public void restore() {
+        context = start("--sfg.brewery.snapshot.file=" + snapshot);
+    }
+
+    private static ConfigurableApplicationContext start(String argument) {
+        ConfigurableApplicationContext context = BreweryApplicationState.start(argument,
+                "--spring.r2dbc.generate-unique-name=true");
+        context.getBean(BeerSearchIndex.class).built().block(Duration.ofMinutes(5));
+        context.getBean(BeerStyleStats.class).built().block(Duration.ofMinutes(5));
+        return context;
+    }
+}
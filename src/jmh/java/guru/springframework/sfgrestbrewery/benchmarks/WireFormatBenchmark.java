@@ -0,0 +1,84 @@
+package guru.springframework.sfgrestbrewery.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import guru.springframework.sfgrestbrewery.web.controller.WireFormat;
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerPagedList;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A list page in each {@link WireFormat}: encoding and decoding time here, and the bytes on the wire
+ * (plain and gzipped) printed once per trial, as JMH has no per-operation size metric.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class WireFormatBenchmark {
+
+    @Param({"JSON", "COMPACT_JSON", "SMILE", "CBOR"})
+    WireFormat format;
+
+    @Param({"25", "100"})
+    int pageSize;
+
+    ObjectMapper objectMapper;
+    Object page;
+    Class<?> pageType;
+    byte[] encoded;
+
+    @Setup
+    public void setUp() throws Exception {
+        // configured as the application's mapper is
+        objectMapper = format.objectMapper(Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+
+        List<BeerDto> beers = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            beers.add(BeerDto.builder()
+                    .id(i + 1)
+                    .version(1L)
+                    .beerName("Beer " + i)
+                    .beerStyle(BeerStyleEnum.values()[i % BeerStyleEnum.values().length].name())
+                    .upc(String.format("%013d", i))
+                    .price(new BigDecimal("9.99"))
+                    .quantityOnHand(i)
+                    .createdDate(LocalDateTime.now())
+                    .lastUpdatedDate(LocalDateTime.now())
+                    .build());
+        }
+
+        page = format.envelope(new BeerPagedList(beers, PageRequest.of(0, pageSize), 1000));
+        pageType = page.getClass();
+        encoded = objectMapper.writeValueAsBytes(page);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(encoded);
+        }
+        System.out.printf("%n%s, %d beers: %d bytes, %d gzipped%n", format, pageSize, encoded.length, compressed.size());
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public Object decode() throws Exception {
+        return objectMapper.readValue(encoded, pageType);
+    }
+}
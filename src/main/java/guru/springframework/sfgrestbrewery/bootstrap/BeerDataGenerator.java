@@ -0,0 +1,83 @@
+package guru.springframework.sfgrestbrewery.bootstrap;
+
+import guru.springframework.sfgrestbrewery.domain.Beer;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic beers for load testing against production sized catalogs. Beers are produced lazily,
+ * so any count can be generated in constant memory, and the same seed always yields the same catalog.
+ */
+public class BeerDataGenerator {
+
+    private static final String[] ADJECTIVES = {"Hazy", "Golden", "Dark", "Double", "Imperial", "Wild", "Smoked",
+            "Juicy", "Crisp", "Barrel Aged", "Midnight", "Electric", "Lazy", "Rusty", "Cosmic", "Galaxy"};
+
+    private static final String[] NOUNS = {"Cat", "Trail", "Harbor", "Dock", "Owl", "Hammer", "Comet", "Lantern",
+            "Fox", "Canyon", "Anchor", "Orchard", "Bison", "Pilot", "Lighthouse", "Monk"};
+
+    // style distribution, in percent, ordered as BeerStyleEnum.values()
+    // LAGER, PILSNER, STOUT, GOSE, PORTER, ALE, WHEAT, IPA, PALE_ALE, SAISON
+    private static final int[] STYLE_WEIGHTS = {12, 6, 10, 3, 7, 10, 7, 25, 15, 5};
+
+    // synthetic UPCs all start with this, which no hand written seed beer uses, so they never collide
+    private static final String UPC_PREFIX = "20";
+
+    private final long seed;
+
+    public BeerDataGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public Flux<Beer> generate(int count) {
+        return Flux.defer(() -> {
+            SplittableRandom random = new SplittableRandom(seed);
+            return Flux.range(0, count).map(index -> beer(index, random));
+        });
+    }
+
+    private Beer beer(int index, SplittableRandom random) {
+        LocalDateTime now = LocalDateTime.now();
+
+        return Beer.builder()
+                .beerName(ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + NOUNS[random.nextInt(NOUNS.length)] + " " + index)
+                .beerStyle(style(random.nextInt(100)))
+                .upc(upc(index))
+                .price(new BigDecimal(BigInteger.valueOf(100 + random.nextInt(9900)), 2))
+                .quantityOnHand(random.nextInt(5000))
+                .createdDate(now)
+                .lastModifiedDate(now)
+                .build();
+    }
+
+    static BeerStyleEnum style(int percentile) {
+        int cumulative = 0;
+        for (int i = 0; i < STYLE_WEIGHTS.length; i++) {
+            cumulative += STYLE_WEIGHTS[i];
+            if (percentile < cumulative) {
+                return BeerStyleEnum.values()[i];
+            }
+        }
+        return BeerStyleEnum.values()[STYLE_WEIGHTS.length - 1];
+    }
+
+    /**
+     * EAN-13 for the index: prefix, zero padded index, check digit.
+     */
+    static String upc(long index) {
+        String digits = UPC_PREFIX + String.format("%010d", index);
+
+        int sum = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            int digit = digits.charAt(i) - '0';
+            sum += i % 2 == 0 ? digit : digit * 3;
+        }
+
+        return digits + (10 - sum % 10) % 10;
+    }
+}
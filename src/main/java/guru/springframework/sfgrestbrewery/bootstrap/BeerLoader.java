@@ -1,25 +1,45 @@
 package guru.springframework.sfgrestbrewery.bootstrap;
 
 import guru.springframework.sfgrestbrewery.domain.Beer;
+import guru.springframework.sfgrestbrewery.repositories.BeerBatchRepository;
 import guru.springframework.sfgrestbrewery.repositories.BeerRepository;
+import guru.springframework.sfgrestbrewery.services.BeerCache;
+import guru.springframework.sfgrestbrewery.services.BeerSnapshots;
 import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Random;
 
 /**
+ * Seeds an empty beer table on startup: from the {@code sfg.brewery.snapshot.file} snapshot when there is one,
+ * otherwise the hand written beers below, followed by {@code sfg.brewery.bootstrap.synthetic-beers} generated
+ * ones. Rows are written in multi-row batches with bounded concurrency, off the startup thread;
+ * {@link #loaded()} completes once seeding is done and the loader reports DOWN as a health indicator until
+ * then. A failed seed leaves it DOWN, and {@link #loaded()} fails with the error.
+ *
  * Created by jt on 3/7/21.
  */
 @Slf4j
 @RequiredArgsConstructor
 @Component
-public class BeerLoader implements CommandLineRunner {
+public class BeerLoader implements CommandLineRunner, ReactiveHealthIndicator {
 
     public static final String BEER_1_UPC = "0631234200036";
     public static final String BEER_2_UPC = "9122089364369";
@@ -54,320 +74,138 @@ public class BeerLoader implements CommandLineRunner {
 
 
     private final BeerRepository beerRepository;
+    private final BeerBatchRepository beerBatchRepository;
+    private final BeerCache beerCache;
+    private final BeerSnapshots beerSnapshots;
 
-    @Override
-    public void run(String... args) throws Exception {
-        loadBeerObjects();
-    }
-
-    private synchronized void loadBeerObjects() {
-        log.debug("Loading initial data. Count is: {}", beerRepository.count().block() );
-
-        if (beerRepository.count().block() == 0) {
-
-            Random random = new Random();
-
-            beerRepository.save(Beer.builder()
-                    .beerName("Mango Bobs")
-                    .beerStyle(BeerStyleEnum.ALE)
-                    .upc(BEER_1_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                            .createdDate(LocalDateTime.now())
-                            .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
-
-            beerRepository.save(Beer.builder()
-                    .beerName("Galaxy Cat")
-                    .beerStyle(BeerStyleEnum.PALE_ALE)
-                    .upc(BEER_2_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
-
-            beerRepository.save(Beer.builder()
-                    .beerName("No Hammers On The Bar")
-                    .beerStyle(BeerStyleEnum.WHEAT)
-                    .upc(BEER_3_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
-
-            beerRepository.save(Beer.builder()
-                    .beerName("Blessed")
-                    .beerStyle(BeerStyleEnum.STOUT)
-                    .upc(BEER_4_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
-
-            beerRepository.save(Beer.builder()
-                    .beerName("Adjunct Trail")
-                    .beerStyle(BeerStyleEnum.STOUT)
-                    .upc(BEER_5_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
-
-            beerRepository.save(Beer.builder()
-                    .beerName("Very GGGreenn")
-                    .beerStyle(BeerStyleEnum.IPA)
-                    .upc(BEER_6_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
-
-            beerRepository.save(Beer.builder()
-                    .beerName("Double Barrel Hunahpu's")
-                    .beerStyle(BeerStyleEnum.STOUT)
-                    .upc(BEER_7_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
-
-            beerRepository.save(Beer.builder()
-                    .beerName("Very Hazy")
-                    .beerStyle(BeerStyleEnum.IPA)
-                    .upc(BEER_8_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
-
-            beerRepository.save(Beer.builder()
-                    .beerName("SR-71")
-                    .beerStyle(BeerStyleEnum.STOUT)
-                    .upc(BEER_9_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
-
-            beerRepository.save(Beer.builder()
-                    .beerName("Pliny the Younger")
-                    .beerStyle(BeerStyleEnum.IPA)
-                    .upc(BEER_10_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
-
-            beerRepository.save(Beer.builder()
-                    .beerName("Blessed")
-                    .beerStyle(BeerStyleEnum.STOUT)
-                    .upc(BEER_11_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
-
-            beerRepository.save(Beer.builder()
-                    .beerName("King Krush")
-                    .beerStyle(BeerStyleEnum.IPA)
-                    .upc(BEER_12_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
-
-            beerRepository.save(Beer.builder()
-                    .beerName("PBS Porter")
-                    .beerStyle(BeerStyleEnum.PORTER)
-                    .upc(BEER_13_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
+    private final Random random = new Random();
+    private final Sinks.Empty<Void> loaded = Sinks.empty();
+    private volatile boolean loading = true;
+    private volatile Throwable failure;
 
-            beerRepository.save(Beer.builder()
-                    .beerName("Pinball Porter")
-                    .beerStyle(BeerStyleEnum.STOUT)
-                    .upc(BEER_14_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
+    @Value("${sfg.brewery.bootstrap.synthetic-beers:0}")
+    private int syntheticBeers;
 
-            beerRepository.save(Beer.builder()
-                    .beerName("Golden Budda")
-                    .beerStyle(BeerStyleEnum.STOUT)
-                    .upc(BEER_15_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
+    @Value("${sfg.brewery.bootstrap.batch-size:1000}")
+    private int batchSize;
 
-            beerRepository.save(Beer.builder()
-                    .beerName("Grand Central Red")
-                    .beerStyle(BeerStyleEnum.LAGER)
-                    .upc(BEER_16_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
+    @Value("${sfg.brewery.bootstrap.concurrency:4}")
+    private int concurrency;
 
-            beerRepository.save(Beer.builder()
-                    .beerName("Pac-Man")
-                    .beerStyle(BeerStyleEnum.STOUT)
-                    .upc(BEER_17_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
+    @Value("${sfg.brewery.bootstrap.seed:42}")
+    private long seed;
 
-            beerRepository.save(Beer.builder()
-                    .beerName("Ro Sham Bo")
-                    .beerStyle(BeerStyleEnum.IPA)
-                    .upc(BEER_18_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
-
-            beerRepository.save(Beer.builder()
-                    .beerName("Summer Wheatly")
-                    .beerStyle(BeerStyleEnum.WHEAT)
-                    .upc(BEER_19_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
-
-            beerRepository.save(Beer.builder()
-                    .beerName("Java Jill")
-                    .beerStyle(BeerStyleEnum.LAGER)
-                    .upc(BEER_20_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
-
-            beerRepository.save(Beer.builder()
-                    .beerName("Bike Trail Pale")
-                    .beerStyle(BeerStyleEnum.PALE_ALE)
-                    .upc(BEER_21_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
-
-            beerRepository.save(Beer.builder()
-                    .beerName("N.Z.P")
-                    .beerStyle(BeerStyleEnum.IPA)
-                    .upc(BEER_22_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
-
-            beerRepository.save(Beer.builder()
-                    .beerName("Stawberry Blond")
-                    .beerStyle(BeerStyleEnum.WHEAT)
-                    .upc(BEER_23_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
-
-            beerRepository.save(Beer.builder()
-                    .beerName("Loco")
-                    .beerStyle(BeerStyleEnum.PORTER)
-                    .upc(BEER_24_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
+    @Override
+    public void run(String... args) throws Exception {
+        // H2's driver does its work on the subscribing thread, so keep it off the startup thread
+        loadBeerObjects()
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe(null, e -> log.error("Loading initial data failed", e));
+    }
 
-            beerRepository.save(Beer.builder()
-                    .beerName("Spocktoberfest")
-                    .beerStyle(BeerStyleEnum.STOUT)
-                    .upc(BEER_25_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
+    /**
+     * Completes once the initial data is loaded (or was already present), and errors if loading failed.
+     */
+    public Mono<Void> loaded() {
+        return loaded.asMono();
+    }
 
-            beerRepository.save(Beer.builder()
-                    .beerName("Beach Blond Ale")
-                    .beerStyle(BeerStyleEnum.ALE)
-                    .upc(BEER_26_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
+    @Override
+    public Mono<Health> health() {
+        if (failure != null) {
+            return Mono.just(Health.down().withDetail("beerLoader", "failed").withDetail("error", String.valueOf(failure)).build());
+        }
+        return Mono.just(loading ? Health.down().withDetail("beerLoader", "loading").build() : Health.up().build());
+    }
 
-            beerRepository.save(Beer.builder()
-                    .beerName("Bimini Twist IPA")
-                    .beerStyle(BeerStyleEnum.IPA)
-                    .upc(BEER_27_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
+    Mono<Void> loadBeerObjects() {
+        return beerRepository.count()
+                .doOnNext(count -> log.debug("Loading initial data. Count is: {}", count))
+                .filter(count -> count == 0)
+                .flatMap(count -> beerSnapshots.file().filter(Files::isRegularFile)
+                        .map(this::restoreSnapshot)
+                        .orElseGet(this::insertBeers))
+                .doOnSuccess(done -> {
+                    loading = false;
+                    loaded.tryEmitEmpty();
+                })
+                .doOnError(e -> {
+                    failure = e;
+                    loaded.tryEmitError(e);
+                });
+    }
 
-            beerRepository.save(Beer.builder()
-                    .beerName("Rod Bender Red Ale")
-                    .beerStyle(BeerStyleEnum.ALE)
-                    .upc(BEER_28_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
+    private Mono<Void> restoreSnapshot(Path snapshot) {
+        return beerSnapshots.restore(snapshot)
+                .doOnNext(result -> log.debug("Beer Records restored from {}: {} in {} ms", snapshot,
+                        result.getBeers(), result.getElapsedMillis()))
+                .then();
+    }
 
-            beerRepository.save(Beer.builder()
-                    .beerName("Floating Dock")
-                    .beerStyle(BeerStyleEnum.SAISON)
-                    .upc(BEER_29_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
+    private Mono<Void> insertBeers() {
+        long start = System.nanoTime();
+
+        // the hand written beers go in first, on their own, so they keep the low ids
+        return Flux.concat(
+                        beerBatchRepository.insertAll(seedBeers()),
+                        new BeerDataGenerator(seed).generate(syntheticBeers)
+                                .buffer(batchSize)
+                                .flatMap(batch -> beerBatchRepository.insertAll(batch)
+                                        .subscribeOn(Schedulers.boundedElastic()), concurrency))
+                .count()
+                .doOnNext(inserted -> {
+                    beerCache.evictAll();
+
+                    long elapsedNanos = Math.max(System.nanoTime() - start, 1);
+                    log.debug("Beer Records loaded: {} in {} ms ({} beers/s)", inserted,
+                            Duration.ofNanos(elapsedNanos).toMillis(), inserted * 1_000_000_000L / elapsedNanos);
+                })
+                .then();
+    }
 
-            beerRepository.save(Beer.builder()
-                    .beerName("El Hefe")
-                    .beerStyle(BeerStyleEnum.WHEAT)
-                    .upc(BEER_30_UPC)
-                    .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
-                    .quantityOnHand(random.nextInt(5000))
-                    .createdDate(LocalDateTime.now())
-                    .lastModifiedDate(LocalDateTime.now())
-                    .build()).block();
+    private List<Beer> seedBeers() {
+        return List.of(
+                seed("Mango Bobs", BeerStyleEnum.ALE, BEER_1_UPC),
+                seed("Galaxy Cat", BeerStyleEnum.PALE_ALE, BEER_2_UPC),
+                seed("No Hammers On The Bar", BeerStyleEnum.WHEAT, BEER_3_UPC),
+                seed("Blessed", BeerStyleEnum.STOUT, BEER_4_UPC),
+                seed("Adjunct Trail", BeerStyleEnum.STOUT, BEER_5_UPC),
+                seed("Very GGGreenn", BeerStyleEnum.IPA, BEER_6_UPC),
+                seed("Double Barrel Hunahpu's", BeerStyleEnum.STOUT, BEER_7_UPC),
+                seed("Very Hazy", BeerStyleEnum.IPA, BEER_8_UPC),
+                seed("SR-71", BeerStyleEnum.STOUT, BEER_9_UPC),
+                seed("Pliny the Younger", BeerStyleEnum.IPA, BEER_10_UPC),
+                seed("Blessed", BeerStyleEnum.STOUT, BEER_11_UPC),
+                seed("King Krush", BeerStyleEnum.IPA, BEER_12_UPC),
+                seed("PBS Porter", BeerStyleEnum.PORTER, BEER_13_UPC),
+                seed("Pinball Porter", BeerStyleEnum.STOUT, BEER_14_UPC),
+                seed("Golden Budda", BeerStyleEnum.STOUT, BEER_15_UPC),
+                seed("Grand Central Red", BeerStyleEnum.LAGER, BEER_16_UPC),
+                seed("Pac-Man", BeerStyleEnum.STOUT, BEER_17_UPC),
+                seed("Ro Sham Bo", BeerStyleEnum.IPA, BEER_18_UPC),
+                seed("Summer Wheatly", BeerStyleEnum.WHEAT, BEER_19_UPC),
+                seed("Java Jill", BeerStyleEnum.LAGER, BEER_20_UPC),
+                seed("Bike Trail Pale", BeerStyleEnum.PALE_ALE, BEER_21_UPC),
+                seed("N.Z.P", BeerStyleEnum.IPA, BEER_22_UPC),
+                seed("Stawberry Blond", BeerStyleEnum.WHEAT, BEER_23_UPC),
+                seed("Loco", BeerStyleEnum.PORTER, BEER_24_UPC),
+                seed("Spocktoberfest", BeerStyleEnum.STOUT, BEER_25_UPC),
+                seed("Beach Blond Ale", BeerStyleEnum.ALE, BEER_26_UPC),
+                seed("Bimini Twist IPA", BeerStyleEnum.IPA, BEER_27_UPC),
+                seed("Rod Bender Red Ale", BeerStyleEnum.ALE, BEER_28_UPC),
+                seed("Floating Dock", BeerStyleEnum.SAISON, BEER_29_UPC),
+                seed("El Hefe", BeerStyleEnum.WHEAT, BEER_30_UPC));
+    }
 
-            log.debug("Beer Records loaded: {}", beerRepository.count().block());
-        }
+    private Beer seed(String beerName, BeerStyleEnum beerStyle, String upc) {
+        return Beer.builder()
+                .beerName(beerName)
+                .beerStyle(beerStyle)
+                .upc(upc)
+                .price(new BigDecimal(BigInteger.valueOf(random.nextInt(10000)), 2))
+                .quantityOnHand(random.nextInt(5000))
+                .createdDate(LocalDateTime.now())
+                .lastModifiedDate(LocalDateTime.now())
+                .build();
     }
 }
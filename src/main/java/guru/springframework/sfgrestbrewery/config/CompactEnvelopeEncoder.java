@@ -0,0 +1,113 @@
+package guru.springframework.sfgrestbrewery.config;
+
+import guru.springframework.sfgrestbrewery.web.controller.WireFormat;
+import guru.springframework.sfgrestbrewery.web.model.BeerPage;
+import guru.springframework.sfgrestbrewery.web.model.BeerPagedList;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wraps a Jackson encoder for one of the compact {@link WireFormat}s so that a {@link BeerPagedList} goes
+ * out as a {@link BeerPage}; everything else is passed through unchanged.
+ */
+class CompactEnvelopeEncoder implements HttpMessageEncoder<Object> {
+
+    private static final ResolvableType PAGE_TYPE = ResolvableType.forClass(BeerPage.class);
+
+    private final HttpMessageEncoder<Object> delegate;
+
+    CompactEnvelopeEncoder(HttpMessageEncoder<Object> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        // only when asked for by name: functional responses without a content type pick the first writer
+        // that can encode the body, which must stay the default JSON one. That makes this a typed writer,
+        // consulted before the default ones, so finished bodies are left to them explicitly
+        return mimeType != null && !isRaw(elementType.toClass()) && delegate.canEncode(envelopeType(elementType), mimeType);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                   MimeType mimeType, Map<String, Object> hints) {
+        // single values through encodeValue, as the CBOR encoder does not take publishers
+        if (inputStream instanceof Mono) {
+            return Mono.from(inputStream)
+                    .map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+                    .flux();
+        }
+        return delegate.encode(Flux.from(inputStream).map(this::envelope), bufferFactory, envelopeType(elementType), mimeType, hints);
+    }
+
+    @Override
+    public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                  MimeType mimeType, Map<String, Object> hints) {
+        return delegate.encodeValue(envelope(value), bufferFactory, envelopeType(valueType), mimeType, hints);
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return delegate.getEncodableMimeTypes();
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes(ResolvableType elementType) {
+        return delegate.getEncodableMimeTypes(envelopeType(elementType));
+    }
+
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return delegate.getStreamingMediaTypes();
+    }
+
+    @Override
+    public Map<String, Object> getEncodeHints(ResolvableType actualType, ResolvableType elementType, MediaType mediaType,
+                                              ServerHttpRequest request, ServerHttpResponse response) {
+        return delegate.getEncodeHints(envelopeType(actualType), envelopeType(elementType), mediaType, request, response);
+    }
+
+    private Object envelope(Object value) {
+        // sparse fieldsets come wrapped for their filters
+        if (value instanceof MappingJacksonValue && ((MappingJacksonValue) value).getValue() instanceof BeerPagedList) {
+            MappingJacksonValue wrapped = (MappingJacksonValue) value;
+            MappingJacksonValue enveloped = new MappingJacksonValue(BeerPage.of((BeerPagedList) wrapped.getValue()));
+            enveloped.setFilters(wrapped.getFilters());
+            return enveloped;
+        }
+        return value instanceof BeerPagedList ? BeerPage.of((BeerPagedList) value) : value;
+    }
+
+    private static boolean isRaw(Class<?> type) {
+        return byte[].class == type || ByteBuffer.class.isAssignableFrom(type) || DataBuffer.class.isAssignableFrom(type)
+                || Resource.class.isAssignableFrom(type) || CharSequence.class.isAssignableFrom(type);
+    }
+
+    private static ResolvableType envelopeType(ResolvableType type) {
+        return BeerPagedList.class.isAssignableFrom(type.toClass()) ? PAGE_TYPE : type;
+    }
+
+    /**
+     * For the unchecked casts of Jackson encoders, which are typed to {@code Encoder<Object>}.
+     */
+    @SuppressWarnings("unchecked")
+    static CompactEnvelopeEncoder wrap(Encoder<?> delegate) {
+        return new CompactEnvelopeEncoder((HttpMessageEncoder<Object>) delegate);
+    }
+}
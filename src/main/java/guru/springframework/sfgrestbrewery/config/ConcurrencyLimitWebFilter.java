@@ -0,0 +1,179 @@
+package guru.springframework.sfgrestbrewery.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Adaptive load shedding in front of the beer routes. Single beer and list reads, and beer writes, each get a
+ * {@link GradientConcurrencyLimit}; a request over its limit is answered 503 with a Retry-After straight away,
+ * before any work is done, so an overloaded database shows up as fast failures rather than as ever longer
+ * queues. Streams, events, search, batch imports, stock and everything else pass through unlimited.
+ */
+@Component
+public class ConcurrencyLimitWebFilter implements WebFilter, MeterBinder {
+
+    public enum Routes {
+        READ, WRITE;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final List<PathPattern> READ_PATTERNS = patterns(
+            "/api/v1/beer", "/api/v1/beer/{beerId:\\d+}", "/api/v1/beerUpc/{upc}",
+            "/api/v2/beer/{beerId:\\d+}", "/api/v2/beerUpc/{upc}");
+
+    private static final List<PathPattern> WRITE_PATTERNS = patterns("/api/v1/beer/**", "/api/v2/beer/**");
+
+    // under the write patterns but not single beer writes: a read sent as a POST, an import that runs as long as
+    // its body does, and stock that is changed in memory; their latencies would skew the write limit
+    private static final List<PathPattern> UNLIMITED_WRITE_PATTERNS = patterns(
+            "/api/v2/beer/lookup", "/api/v2/beer/batch",
+            "/api/v2/beer/{beerId}/inventory/**", "/api/v2/beer/{beerId}/reservations", "/api/v2/beer/reservations/**");
+
+    private final boolean enabled;
+    private final Duration retryAfter;
+    private final Map<Routes, Limiter> limiters = new EnumMap<>(Routes.class);
+
+    public ConcurrencyLimitWebFilter(@Value("${sfg.brewery.concurrency.enabled:true}") boolean enabled,
+                                     @Value("${sfg.brewery.concurrency.read.initial-limit:64}") int readInitialLimit,
+                                     @Value("${sfg.brewery.concurrency.read.max-limit:1024}") int readMaxLimit,
+                                     @Value("${sfg.brewery.concurrency.write.initial-limit:16}") int writeInitialLimit,
+                                     @Value("${sfg.brewery.concurrency.write.max-limit:64}") int writeMaxLimit,
+                                     @Value("${sfg.brewery.concurrency.min-limit:4}") int minLimit,
+                                     @Value("${sfg.brewery.concurrency.tolerance:2.0}") double tolerance,
+                                     @Value("${sfg.brewery.concurrency.window-size:50}") int windowSize,
+                                     @Value("${sfg.brewery.concurrency.retry-after:1s}") Duration retryAfter) {
+        this.enabled = enabled;
+        this.retryAfter = retryAfter;
+        limiters.put(Routes.READ, new Limiter(new GradientConcurrencyLimit(readInitialLimit, minLimit, readMaxLimit, tolerance, windowSize)));
+        limiters.put(Routes.WRITE, new Limiter(new GradientConcurrencyLimit(writeInitialLimit, minLimit, writeMaxLimit, tolerance, windowSize)));
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        Routes routes = enabled ? routes(exchange) : null;
+        if (routes == null) {
+            return chain.filter(exchange);
+        }
+
+        Limiter limiter = limiters.get(routes);
+
+        return Mono.defer(() -> {
+            int inFlight = limiter.inFlight.incrementAndGet();
+            if (inFlight > limiter.limit.getLimit()) {
+                limiter.inFlight.decrementAndGet();
+                limiter.shed.increment();
+                return shed(exchange.getResponse());
+            }
+
+            long started = System.nanoTime();
+            return chain.filter(exchange)
+                    .doFinally(signal -> {
+                        limiter.inFlight.decrementAndGet();
+                        // a cancelled request says nothing about how long it would have taken
+                        if (signal != SignalType.CANCEL) {
+                            limiter.limit.onSample(System.nanoTime() - started, inFlight);
+                        }
+                    });
+        });
+    }
+
+    private Mono<Void> shed(ServerHttpResponse response) {
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())));
+        return response.setComplete();
+    }
+
+    static Routes routes(ServerWebExchange exchange) {
+        HttpMethod method = exchange.getRequest().getMethod();
+        PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+
+        if (method == HttpMethod.GET || method == HttpMethod.HEAD) {
+            return matches(READ_PATTERNS, path) ? Routes.READ : null;
+        }
+        if (method == HttpMethod.POST || method == HttpMethod.PUT || method == HttpMethod.PATCH || method == HttpMethod.DELETE) {
+            return matches(WRITE_PATTERNS, path) && !matches(UNLIMITED_WRITE_PATTERNS, path) ? Routes.WRITE : null;
+        }
+        return null;
+    }
+
+    public int limit(Routes routes) {
+        return limiters.get(routes).limit.getLimit();
+    }
+
+    public int inFlight(Routes routes) {
+        return limiters.get(routes).inFlight.get();
+    }
+
+    public long shedCount(Routes routes) {
+        return limiters.get(routes).shed.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        limiters.forEach((routes, limiter) -> {
+            Gauge.builder("beer.requests.concurrency.limit", limiter.limit, GradientConcurrencyLimit::getLimit)
+                    .tag("routes", routes.tag())
+                    .description("Current adaptive limit on concurrent beer requests")
+                    .register(registry);
+            Gauge.builder("beer.requests.concurrency.active", limiter.inFlight, AtomicInteger::get)
+                    .tag("routes", routes.tag())
+                    .description("Limited beer requests currently in flight")
+                    .register(registry);
+            FunctionCounter.builder("beer.requests.shed", limiter.shed, LongAdder::doubleValue)
+                    .tag("routes", routes.tag())
+                    .description("Beer requests answered 503 because the concurrency limit was reached")
+                    .register(registry);
+        });
+    }
+
+    private static boolean matches(List<PathPattern> patterns, PathContainer path) {
+        for (PathPattern pattern : patterns) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<PathPattern> patterns(String... patterns) {
+        return Stream.of(patterns).map(PathPatternParser.defaultInstance::parse).collect(Collectors.toList());
+    }
+
+    private static class Limiter {
+        final GradientConcurrencyLimit limit;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final LongAdder shed = new LongAdder();
+
+        Limiter(GradientConcurrencyLimit limit) {
+            this.limit = limit;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package guru.springframework.sfgrestbrewery.config;
+
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Opens the pool's {@code spring.r2dbc.pool.initial-size} connections on startup, so the first burst of
+ * requests does not pay for connection setup. Reports DOWN as a health indicator until the pool is warm.
+ *
+ * A failed warm-up is logged and otherwise ignored; the pool still opens connections on demand.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Component
+public class ConnectionPoolWarmer implements CommandLineRunner, ReactiveHealthIndicator {
+
+    private final ConnectionFactory connectionFactory;
+
+    private volatile boolean warming = true;
+
+    @Override
+    public void run(String... args) {
+        DatabaseConfig.connectionPool(connectionFactory).ifPresentOrElse(pool -> {
+            long start = System.nanoTime();
+
+            pool.warmup()
+                    .doFinally(signal -> warming = false)
+                    .subscribe(connections -> log.debug("Connection pool warm, opened {} new connections in {} ms", connections,
+                                    (System.nanoTime() - start) / 1_000_000),
+                            e -> log.warn("Connection pool warm-up failed", e));
+        }, () -> warming = false);
+    }
+
+    @Override
+    public Mono<Health> health() {
+        return Mono.just(warming ? Health.down().withDetail("connectionPool", "warming up").build() : Health.up().build());
+    }
+}
@@ -0,0 +1,96 @@
+package guru.springframework.sfgrestbrewery.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.boot.autoconfigure.r2dbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.PropertyMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Optional;
+
+/**
+ * Database wiring. The ConnectionFactory is a pool configured from {@code spring.r2dbc.*} as Spring Boot
+ * would, except that connections are handed out on their own scheduler; the schema comes from the
+ * versioned scripts in {@code db/migration}.
+ */
+@Configuration
+public class DatabaseConfig {
+
+    /**
+     * Threads that borrowed connections are delivered on, one per pooled connection.
+     */
+    @Bean(destroyMethod = "dispose")
+    Scheduler r2dbcScheduler(R2dbcProperties properties) {
+        return Schedulers.newBoundedElastic(properties.getPool().getMaxSize(), Integer.MAX_VALUE, "r2dbc");
+    }
+
+    /**
+     * Spring Boot's pool, delivering connections on {@link #r2dbcScheduler}. The H2 driver runs a query on the
+     * thread that subscribes to it, and the pool hands a released connection straight to the next waiting
+     * borrower on the releasing thread; left on the event loops, one loop under load ended up running every
+     * other request's queries back to back while its own connections sat unserved for tens of seconds.
+     */
+    @Bean(destroyMethod = "dispose")
+    ConnectionPool connectionFactory(R2dbcProperties properties, ResourceLoader resourceLoader, Scheduler r2dbcScheduler) {
+        ConnectionFactory connectionFactory = ConnectionFactoryBuilder
+                .of(properties, () -> EmbeddedDatabaseConnection.get(resourceLoader.getClassLoader()))
+                .build();
+        R2dbcProperties.Pool pool = properties.getPool();
+        PropertyMapper map = PropertyMapper.get().alwaysApplyingWhenNonNull();
+        ConnectionPoolConfiguration.Builder builder = ConnectionPoolConfiguration.builder(connectionFactory);
+        map.from(pool.getMaxIdleTime()).to(builder::maxIdleTime);
+        map.from(pool.getMaxLifeTime()).to(builder::maxLifeTime);
+        map.from(pool.getMaxAcquireTime()).to(builder::maxAcquireTime);
+        map.from(pool.getMaxCreateConnectionTime()).to(builder::maxCreateConnectionTime);
+        map.from(pool.getInitialSize()).to(builder::initialSize);
+        map.from(pool.getMaxSize()).to(builder::maxSize);
+        map.from(pool.getValidationQuery()).whenHasText().to(builder::validationQuery);
+        map.from(pool.getValidationDepth()).to(builder::validationDepth);
+        builder.customizer(poolBuilder -> poolBuilder.acquisitionScheduler(r2dbcScheduler));
+        return new ConnectionPool(builder.build());
+    }
+
+    @Bean
+    SchemaMigrator schemaMigrator(DatabaseClient databaseClient,
+                                  @Value("${sfg.brewery.schema.location:classpath:db/migration}") String location) {
+        return new SchemaMigrator(databaseClient, location);
+    }
+
+    /**
+     * Spring Boot's conversions for the dialect, plus UUIDs as binary(16).
+     */
+    @Bean
+    R2dbcCustomConversions r2dbcCustomConversions(ConnectionFactory connectionFactory) {
+        return R2dbcCustomConversions.of(DialectResolver.getDialect(connectionFactory), UuidConverters.converters());
+    }
+
+    /**
+     * The pool behind the ConnectionFactory bean, looking through any proxies (such as the metrics one)
+     * wrapped around it. Empty when pooling is disabled.
+     */
+    public static Optional<ConnectionPool> connectionPool(ConnectionFactory connectionFactory) {
+        ConnectionFactory current = connectionFactory;
+
+        while (!(current instanceof ConnectionPool) && current instanceof Wrapped) {
+            Object unwrapped = ((Wrapped<?>) current).unwrap();
+            if (!(unwrapped instanceof ConnectionFactory)) {
+                break;
+            }
+            current = (ConnectionFactory) unwrapped;
+        }
+
+        return current instanceof ConnectionPool ? Optional.of((ConnectionPool) current) : Optional.empty();
+    }
+}
@@ -0,0 +1,96 @@
+package guru.springframework.sfgrestbrewery.config;
+
+/**
+ * A concurrency limit that follows latency: it grows while requests are as fast as usual and the limit is
+ * actually being used, and shrinks in proportion once they slow down.
+ *
+ * Latency samples are averaged over windows of {@code windowSize} requests. Each window's average (the
+ * short-term latency) is compared with a slow moving average of past windows (the long-term latency):
+ * <pre>
+ *   gradient = clamp(tolerance * longRtt / shortRtt, 0.5, 1)
+ *   limit    = limit * gradient + sqrt(limit)
+ * </pre>
+ * so the limit keeps a little headroom ({@code sqrt(limit)}) for growth while latency holds, and at worst halves
+ * per window when it climbs beyond {@code tolerance} times the usual. The new value is smoothed into the old.
+ * A window that never used half the limit leaves it alone: an idle service says nothing about its capacity.
+ */
+class GradientConcurrencyLimit {
+
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double SMOOTHING = 0.2;
+    // windows averaged into the long-term latency
+    private static final int LONG_WINDOWS = 100;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final int windowSize;
+
+    private double limit;
+    private double longRtt;
+    private long windowRtt;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    private volatile int currentLimit;
+
+    GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, int windowSize) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Need 1 <= min (" + minLimit + ") <= initial (" + initialLimit
+                    + ") <= max (" + maxLimit + ")");
+        }
+        if (tolerance < 1) {
+            throw new IllegalArgumentException("Tolerance must be at least 1, was " + tolerance);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.windowSize = Math.max(1, windowSize);
+        this.limit = initialLimit;
+        this.currentLimit = initialLimit;
+    }
+
+    int getLimit() {
+        return currentLimit;
+    }
+
+    /**
+     * Records a completed request.
+     *
+     * @param rttNanos how long the request took
+     * @param inFlight requests in flight when it started, itself included
+     */
+    synchronized void onSample(long rttNanos, int inFlight) {
+        windowRtt += rttNanos;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+
+        if (++windowSamples < windowSize) {
+            return;
+        }
+
+        double shortRtt = Math.max(1, (double) windowRtt / windowSamples);
+        int maxInFlight = windowMaxInFlight;
+        windowRtt = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt += (shortRtt - longRtt) / LONG_WINDOWS;
+            // after a long slow spell, let the baseline come back down quickly once latency recovers
+            if (longRtt > 2 * shortRtt) {
+                longRtt *= 0.95;
+            }
+        }
+
+        if (maxInFlight < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longRtt / shortRtt));
+        double next = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + next * SMOOTHING));
+        currentLimit = (int) limit;
+    }
+}
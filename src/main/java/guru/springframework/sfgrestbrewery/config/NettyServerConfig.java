@@ -0,0 +1,59 @@
+package guru.springframework.sfgrestbrewery.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorResourceFactory;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+
+/**
+ * Reactor Netty tuning beyond what {@code server.*} offers in this Boot version. Every setting defaults to
+ * Reactor Netty's own behaviour; the {@code prod} profile turns them on.
+ */
+@Configuration
+public class NettyServerConfig {
+
+    /**
+     * Replaces Boot's resource factory when the event loop is sized explicitly; otherwise Reactor Netty's
+     * global loops (one worker per core, and no fewer than 4) are used, as by default.
+     */
+    @Bean
+    ReactorResourceFactory reactorServerResourceFactory(@Value("${sfg.brewery.server.io-worker-threads:0}") int ioWorkerThreads) {
+        ReactorResourceFactory resourceFactory = new ReactorResourceFactory();
+        if (ioWorkerThreads > 0) {
+            resourceFactory.setUseGlobalResources(false);
+            resourceFactory.setLoopResourcesSupplier(() -> LoopResources.create("sfg-http", 1, ioWorkerThreads, true));
+        }
+        return resourceFactory;
+    }
+
+    @Bean
+    NettyServerCustomizer breweryNettyServerCustomizer(@Value("${sfg.brewery.server.idle-timeout:}") Duration idleTimeout,
+                                                       @Value("${sfg.brewery.server.tcp-keep-alive:false}") boolean tcpKeepAlive,
+                                                       @Value("${sfg.brewery.server.h2c:false}") boolean h2c,
+                                                       @Value("${sfg.brewery.server.access-log.sample-rate:0}") double accessLogSampleRate,
+                                                       @Value("${sfg.brewery.server.access-log.slow-threshold:1s}") Duration slowThreshold) {
+        return httpServer -> {
+            if (idleTimeout != null) {
+                // closes keep-alive connections nobody has used for this long
+                httpServer = httpServer.idleTimeout(idleTimeout);
+            }
+            if (tcpKeepAlive) {
+                httpServer = httpServer.childOption(ChannelOption.SO_KEEPALIVE, true);
+            }
+            if (h2c) {
+                // server.http2.enabled only covers TLS here; this takes prior-knowledge and upgraded h2c
+                httpServer = httpServer.protocol(HttpProtocol.HTTP11, HttpProtocol.H2C);
+            }
+            if (accessLogSampleRate > 0) {
+                httpServer = httpServer.accessLog(true, new SampledAccessLog(accessLogSampleRate, slowThreshold));
+            }
+            return httpServer;
+        };
+    }
+}
@@ -0,0 +1,43 @@
+package guru.springframework.sfgrestbrewery.config;
+
+import reactor.netty.http.server.logging.AccessLog;
+import reactor.netty.http.server.logging.AccessLogArgProvider;
+import reactor.netty.http.server.logging.AccessLogFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Reactor Netty access log entries for a random sample of requests, plus every server error and every
+ * request slower than the threshold. Entries go to the {@code reactor.netty.http.server.AccessLog} logger,
+ * which {@code logback-spring.xml} writes through an async appender.
+ */
+class SampledAccessLog implements AccessLogFactory {
+
+    private static final String FORMAT = "{} - {} [{}] \"{} {} {}\" {} {} {} ms";
+
+    private final double sampleRate;
+    private final long slowMillis;
+
+    SampledAccessLog(double sampleRate, Duration slowThreshold) {
+        this.sampleRate = sampleRate;
+        this.slowMillis = slowThreshold.toMillis();
+    }
+
+    @Override
+    public AccessLog apply(AccessLogArgProvider args) {
+        if (!shouldLog(args)) {
+            // null tells Reactor Netty to skip this request
+            return null;
+        }
+        return AccessLog.create(FORMAT, args.remoteAddress(), args.user(), args.zonedDateTime(), args.method(),
+                args.uri(), args.protocol(), args.status(), args.contentLength(), args.duration());
+    }
+
+    boolean shouldLog(AccessLogArgProvider args) {
+        CharSequence status = args.status();
+        return (status != null && status.length() > 0 && status.charAt(0) == '5')
+                || args.duration() >= slowMillis
+                || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+}
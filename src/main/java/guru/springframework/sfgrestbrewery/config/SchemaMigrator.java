@@ -0,0 +1,152 @@
+package guru.springframework.sfgrestbrewery.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.r2dbc.connection.init.ScriptUtils;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned schema migrations. Scripts named {@code V<version>__<description>.sql} in the configured location
+ * are applied once each, in version order, and recorded in the {@code schema_version} table. Editing a script
+ * that has already been applied fails startup rather than leaving the schema in an unknown state.
+ *
+ * Runs on startup, before anything else can use the database.
+ */
+@Slf4j
+public class SchemaMigrator implements InitializingBean {
+
+    static final String HISTORY_TABLE = "schema_version";
+
+    private static final Pattern MIGRATION_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    private static final String CREATE_HISTORY_TABLE = "CREATE TABLE if NOT EXISTS " + HISTORY_TABLE + " ("
+            + "version integer NOT NULL PRIMARY KEY, "
+            + "description varchar(255), "
+            + "script varchar(255), "
+            + "checksum bigint, "
+            + "installed_on timestamp)";
+
+    private final DatabaseClient databaseClient;
+    private final String location;
+    private final ResourcePatternResolver resourceResolver = new PathMatchingResourcePatternResolver();
+
+    public SchemaMigrator(DatabaseClient databaseClient, String location) {
+        this.databaseClient = databaseClient;
+        this.location = location;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        migrate().block();
+    }
+
+    /**
+     * @return the number of migrations applied
+     */
+    public Mono<Long> migrate() {
+        return Mono.fromCallable(this::resolveMigrations)
+                .flatMap(migrations -> databaseClient.sql(CREATE_HISTORY_TABLE).then()
+                        .then(appliedChecksums())
+                        .flatMap(applied -> Flux.fromIterable(migrations)
+                                .filter(migration -> isPending(migration, applied))
+                                .concatMap(migration -> apply(migration).thenReturn(migration))
+                                .count()))
+                .doOnNext(count -> log.debug("Applied {} schema migrations", count));
+    }
+
+    private Mono<Map<Integer, Long>> appliedChecksums() {
+        return databaseClient.sql("SELECT version, checksum FROM " + HISTORY_TABLE)
+                .map(row -> Map.entry(row.get("version", Integer.class), row.get("checksum", Long.class)))
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    private static boolean isPending(Migration migration, Map<Integer, Long> applied) {
+        Long checksum = applied.get(migration.version);
+
+        if (checksum == null) {
+            return true;
+        }
+        if (checksum != migration.checksum) {
+            throw new IllegalStateException("Schema migration " + migration.script + " was changed after it was applied");
+        }
+        return false;
+    }
+
+    private Mono<Void> apply(Migration migration) {
+        log.debug("Applying schema migration {}", migration.script);
+
+        return databaseClient.inConnection(connection -> ScriptUtils.executeSqlScript(connection, migration.resource))
+                .then(databaseClient.sql("INSERT INTO " + HISTORY_TABLE
+                                + " (version, description, script, checksum, installed_on)"
+                                + " VALUES (:version, :description, :script, :checksum, :installedOn)")
+                        .bind("version", migration.version)
+                        .bind("description", migration.description)
+                        .bind("script", migration.script)
+                        .bind("checksum", migration.checksum)
+                        .bind("installedOn", LocalDateTime.now())
+                        .then());
+    }
+
+    private List<Migration> resolveMigrations() throws IOException {
+        List<Migration> migrations = new ArrayList<>();
+
+        for (Resource resource : resourceResolver.getResources(location + "/V*__*.sql")) {
+            Matcher matcher = MIGRATION_NAME.matcher(resource.getFilename());
+            if (!matcher.matches()) {
+                throw new IllegalStateException("Invalid schema migration name: " + resource.getFilename());
+            }
+
+            migrations.add(new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '),
+                    resource.getFilename(), checksum(resource), resource));
+        }
+
+        migrations.sort(Comparator.comparingInt(migration -> migration.version));
+
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version == migrations.get(i - 1).version) {
+                throw new IllegalStateException("Duplicate schema migration version " + migrations.get(i).version);
+            }
+        }
+
+        return migrations;
+    }
+
+    private static long checksum(Resource resource) {
+        CRC32 crc = new CRC32();
+
+        try (InputStream in = resource.getInputStream()) {
+            crc.update(in.readAllBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return crc.getValue();
+    }
+
+    @lombok.Value
+    static class Migration {
+        int version;
+        String description;
+        String script;
+        long checksum;
+        Resource resource;
+    }
+}
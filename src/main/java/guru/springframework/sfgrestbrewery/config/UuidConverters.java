@@ -0,0 +1,59 @@
+package guru.springframework.sfgrestbrewery.config;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Stores UUIDs as 16 bytes rather than as 36 characters, which keeps keys and their index a third of the size
+ * and compares them as plain bytes.
+ */
+public final class UuidConverters {
+
+    private UuidConverters() {
+    }
+
+    public static List<Object> converters() {
+        return List.of(UuidToBytesConverter.INSTANCE, BytesToUuidConverter.INSTANCE);
+    }
+
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID toUuid(byte[] bytes) {
+        if (bytes.length != 16) {
+            throw new IllegalArgumentException("A UUID takes 16 bytes, not " + bytes.length);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    @WritingConverter
+    enum UuidToBytesConverter implements Converter<UUID, byte[]> {
+        INSTANCE;
+
+        @Override
+        public byte[] convert(UUID source) {
+            return toBytes(source);
+        }
+    }
+
+    @ReadingConverter
+    enum BytesToUuidConverter implements Converter<byte[], UUID> {
+        INSTANCE;
+
+        @Override
+        public UUID convert(byte[] source) {
+            return toUuid(source);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package guru.springframework.sfgrestbrewery.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.springframework.sfgrestbrewery.web.controller.WireFormat;
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerFields;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.CodecConfigurer;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+/**
+ * Server codecs for the {@link WireFormat}s beyond plain JSON: the compact JSON envelope, and Smile and CBOR
+ * both ways, with Jackson configured as for JSON. Custom codecs are consulted before the default ones, so
+ * the compact JSON type is not picked up by the default {@code application/*+json} encoder.
+ */
+@Configuration
+public class WireFormatCodecConfig implements WebFluxConfigurer {
+
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    public WireFormatCodecConfig(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.objectMapperBuilder = objectMapperBuilder;
+    }
+
+    /**
+     * Sparse beer fieldsets: BeerDto goes through the {@link BeerFields} filter, which writes every property
+     * unless a request wraps its body with other filters. Static, as the builder this class takes needs it.
+     */
+    @Bean
+    static Jackson2ObjectMapperBuilderCustomizer beerFieldsFilter() {
+        return builder -> builder.mixIn(BeerDto.class, BeerFields.FilteredMixin.class)
+                .filters(BeerFields.ALL.filters());
+    }
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        ObjectMapper json = WireFormat.COMPACT_JSON.objectMapper(objectMapperBuilder);
+        ObjectMapper smile = WireFormat.SMILE.objectMapper(objectMapperBuilder);
+        ObjectMapper cbor = WireFormat.CBOR.objectMapper(objectMapperBuilder);
+
+        CodecConfigurer.CustomCodecs codecs = configurer.customCodecs();
+        codecs.register(CompactEnvelopeEncoder.wrap(new Jackson2JsonEncoder(json, WireFormat.COMPACT_JSON.getMediaType())));
+        // the media types must be given, with only a mapper these codecs claim JSON
+        codecs.register(CompactEnvelopeEncoder.wrap(new Jackson2SmileEncoder(smile, WireFormat.SMILE.getMediaType())));
+        codecs.register(new Jackson2SmileDecoder(smile, WireFormat.SMILE.getMediaType()));
+        codecs.register(CompactEnvelopeEncoder.wrap(new Jackson2CborEncoder(cbor, WireFormat.CBOR.getMediaType())));
+        codecs.register(new Jackson2CborDecoder(cbor, WireFormat.CBOR.getMediaType()));
+    }
+}
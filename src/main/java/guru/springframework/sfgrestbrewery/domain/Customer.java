@@ -4,7 +4,10 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 /**
@@ -15,6 +18,16 @@ import java.util.UUID;
 @AllArgsConstructor
 @Builder
 public class Customer {
+
+    // assigned by the service and stored as binary(16); a null version marks the row as new
+    @Id
     private UUID id;
+
+    @Version
+    private Long version;
+
     private String name;
+
+    private LocalDateTime createdDate;
+    private LocalDateTime lastModifiedDate;
 }
@@ -0,0 +1,45 @@
+package guru.springframework.sfgrestbrewery.functional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.springframework.sfgrestbrewery.services.BeerEventPublisher;
+import guru.springframework.sfgrestbrewery.web.model.BeerEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import static guru.springframework.sfgrestbrewery.functional.BeerRouterConfiguration.BEER_PARAM_AFTER_V2;
+
+/**
+ * Beer change events over a WebSocket, one JSON text message per event. Resume by reconnecting with
+ * {@code ?after=<last sequence seen>}.
+ */
+@Component
+@RequiredArgsConstructor
+public class BeerEventWebSocketHandler implements WebSocketHandler {
+
+    private final BeerEventPublisher beerEventPublisher;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public Mono<Void> handle(WebSocketSession session) {
+        Long afterSequence = BeerHandler.toSequence(UriComponentsBuilder.fromUri(session.getHandshakeInfo().getUri())
+                .build().getQueryParams().getFirst(BEER_PARAM_AFTER_V2));
+
+        // the client never sends anything meaningful; completing its side ends the subscription
+        return session.send(beerEventPublisher.events(afterSequence).map(event -> session.textMessage(toJson(event))))
+                .and(session.receive().then());
+    }
+
+    private String toJson(BeerEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+}
@@ -1,10 +1,32 @@
 package guru.springframework.sfgrestbrewery.functional;
 
+import guru.springframework.sfgrestbrewery.services.BeerEventPublisher;
+import guru.springframework.sfgrestbrewery.services.BeerSearchIndex;
 import guru.springframework.sfgrestbrewery.services.BeerService;
+import guru.springframework.sfgrestbrewery.services.BeerStyleStats;
+import guru.springframework.sfgrestbrewery.services.WritesSaturatedException;
+import guru.springframework.sfgrestbrewery.web.controller.BeerETags;
 import guru.springframework.sfgrestbrewery.web.controller.NotFoundException;
+import guru.springframework.sfgrestbrewery.web.controller.PreconditionFailedException;
+import guru.springframework.sfgrestbrewery.web.controller.WireFormat;
+import guru.springframework.sfgrestbrewery.web.mappers.BeerJsonWriter;
 import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerFields;
+import guru.springframework.sfgrestbrewery.web.model.BeerImportResult;
+import guru.springframework.sfgrestbrewery.web.model.BeerLookupRequest;
+import guru.springframework.sfgrestbrewery.web.model.BeerLookupResult;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleStatistics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.PooledDataBuffer;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.Errors;
@@ -15,6 +37,8 @@ import org.springframework.web.server.ServerWebInputException;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 
 import static guru.springframework.sfgrestbrewery.functional.BeerRouterConfiguration.*;
 
@@ -24,26 +48,125 @@ import static guru.springframework.sfgrestbrewery.functional.BeerRouterConfigura
 public class BeerHandler {
     private final BeerService beerService;
     private final Validator validator;
+    private final BeerLookupCoalescer beerLookupCoalescer;
+    private final BeerEventPublisher beerEventPublisher;
+    private final BeerJsonWriter beerJsonWriter;
+    private final BeerSearchIndex beerSearchIndex;
+    private final BeerStyleStats beerStyleStats;
 
     public Mono<ServerResponse> getBeerById(ServerRequest request) {
         Integer beerId = Integer.valueOf(request.pathVariable(BEER_PATH_ID_V2));
         Boolean showInventory = Boolean.valueOf(request.queryParam(BEER_PARAM_SHOW_INVENTORY_V2).orElse("false"));
+        BeerFields fields = fields(request);
 
-        return beerService.getById(beerId, showInventory)
+        // a single row comes whole from the beer cache; only the written properties are narrowed
+        return beerLookupCoalescer.getById(beerId, showInventory, () -> beerService.getById(beerId, showInventory))
                 .flatMap(beerDto -> {
-                    return ServerResponse.ok().bodyValue(beerDto);
+                    return ServerResponse.ok().contentType(responseType(request)).eTag(BeerETags.of(beerDto)).bodyValue(fields.wrap(beerDto));
                 }).switchIfEmpty(ServerResponse.notFound().build());
     }
 
     public Mono<ServerResponse> getBeerByUpc(ServerRequest request) {
         String upc = request.pathVariable(BEER_PATH_UPC_V2);
+        BeerFields fields = fields(request);
 
-        return beerService.getByUpc(upc)
+        return beerLookupCoalescer.getByUpc(upc, () -> beerService.getByUpc(upc))
                 .flatMap(beerDto -> {
-                    return ServerResponse.ok().bodyValue(beerDto);
+                    return ServerResponse.ok().contentType(responseType(request)).eTag(BeerETags.of(beerDto)).bodyValue(fields.wrap(beerDto));
                 }).switchIfEmpty(ServerResponse.notFound().build());
     }
 
+    public Mono<ServerResponse> lookupBeers(ServerRequest request) {
+        Boolean showInventory = Boolean.valueOf(request.queryParam(BEER_PARAM_SHOW_INVENTORY_V2).orElse("false"));
+
+        return request.bodyToMono(BeerLookupRequest.class)
+                .doOnNext(this::validate)
+                .flatMap(lookupRequest -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(beerService.lookupBeers(lookupRequest.getIds(), lookupRequest.getUpcs(), showInventory),
+                                BeerLookupResult.class));
+    }
+
+    /**
+     * Beers whose name or style matches {@code q}, ranked, from the in-memory search index.
+     */
+    public Mono<ServerResponse> searchBeers(ServerRequest request) {
+        String query = request.queryParam(BEER_PARAM_QUERY_V2).orElse("").trim();
+        int pageNumber = toInt(request.queryParam(BEER_PARAM_PAGE_NUMBER_V2).orElse(null), 0);
+        int pageSize = toInt(request.queryParam(BEER_PARAM_PAGE_SIZE_V2).orElse(null), 25);
+
+        if (query.isEmpty() || query.length() > BEER_SEARCH_MAX_QUERY_LENGTH_V2) {
+            throw new ServerWebInputException("Query must be 1 to " + BEER_SEARCH_MAX_QUERY_LENGTH_V2 + " characters");
+        }
+        if (pageNumber < 0 || pageSize < 1 || pageSize > BEER_SEARCH_MAX_PAGE_SIZE_V2) {
+            throw new ServerWebInputException("Page size must be 1 to " + BEER_SEARCH_MAX_PAGE_SIZE_V2 + ", page number at least 0");
+        }
+        if ((long) (pageNumber + 1) * pageSize > BEER_SEARCH_MAX_RESULTS_V2) {
+            throw new ServerWebInputException("Only the first " + BEER_SEARCH_MAX_RESULTS_V2 + " results can be paged through");
+        }
+
+        return beerSearchIndex.search(query, pageNumber, pageSize)
+                .flatMap(page -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(page));
+    }
+
+    /**
+     * Per-style counts, inventory and prices from the in-memory statistics, or with {@code source=sql} from a
+     * {@code GROUP BY} over the beer table.
+     */
+    public Mono<ServerResponse> beerStats(ServerRequest request) {
+        String source = request.queryParam(BEER_PARAM_SOURCE_V2).orElse(null);
+
+        if (source != null && !source.equals(BEER_STATS_SOURCE_SQL_V2)) {
+            throw new ServerWebInputException("Invalid source: " + source);
+        }
+
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(source == null ? beerStyleStats.statistics() : beerStyleStats.sqlStatistics(),
+                        new ParameterizedTypeReference<List<BeerStyleStatistics>>() {});
+    }
+
+    public Mono<ServerResponse> streamBeers(ServerRequest request) {
+        String beerName = request.queryParam(BEER_PARAM_NAME_V2).orElse(null);
+        BeerStyleEnum beerStyle = request.queryParam(BEER_PARAM_STYLE_V2).map(this::toBeerStyle).orElse(null);
+        Boolean showInventory = Boolean.valueOf(request.queryParam(BEER_PARAM_SHOW_INVENTORY_V2).orElse("false"));
+        BeerFields fields = fields(request);
+
+        if (request.headers().accept().contains(MediaType.TEXT_EVENT_STREAM)) {
+            if (fields.isAll()) {
+                return ServerResponse.ok()
+                        .contentType(MediaType.TEXT_EVENT_STREAM)
+                        .body(beerService.streamBeers(beerName, beerStyle, showInventory), BeerDto.class);
+            }
+            return ServerResponse.ok()
+                    .contentType(MediaType.TEXT_EVENT_STREAM)
+                    .body(beerService.streamBeers(beerName, beerStyle, showInventory, fields).map(fields::wrap), Object.class);
+        }
+
+        // NDJSON rows go straight from the entity into response buffers, without a BeerDto per row
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body((outputMessage, context) -> outputMessage.writeWith(beerService.streamBeerRows(beerName, beerStyle, fields)
+                        .map(beer -> beerJsonWriter.writeLine(beer, showInventory, fields, outputMessage.bufferFactory()))
+                        .doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release)));
+    }
+
+    /**
+     * Beer change events as server-sent events, with the sequence as the event id. A reconnecting
+     * EventSource resumes through Last-Event-ID; other clients can pass {@code after=<sequence>}.
+     */
+    public Mono<ServerResponse> beerEvents(ServerRequest request) {
+        String lastEventId = request.headers().firstHeader("Last-Event-ID");
+        Long afterSequence = toSequence(lastEventId != null ? lastEventId : request.queryParam(BEER_PARAM_AFTER_V2).orElse(null));
+
+        return ServerResponse.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(beerEventPublisher.events(afterSequence)
+                        .map(event -> ServerSentEvent.builder(event)
+                                .id(String.valueOf(event.getSequence()))
+                                .event(event.getType().name())
+                                .build()), ServerSentEvent.class);
+    }
+
     public Mono<ServerResponse> addBeer(ServerRequest request) {
         Mono<BeerDto> monoBeer = request.bodyToMono(BeerDto.class).doOnNext(this::validate);
 
@@ -52,25 +175,116 @@ public class BeerHandler {
                     return ServerResponse.created(UriComponentsBuilder
                             .fromHttpUrl("http://localhost:8080/api/v2/beer/" + beerDto.getId())
                             .build().toUri()).build();
-                });
+                })
+                .onErrorResume(DataIntegrityViolationException.class, e -> ServerResponse.status(HttpStatus.CONFLICT).build());
+    }
+
+    public Mono<ServerResponse> importBeers(ServerRequest request) {
+        // results stream back as NDJSON unless the client insists on a (buffered) JSON array
+        List<MediaType> accept = request.headers().accept();
+        MediaType mediaType = accept.contains(MediaType.APPLICATION_JSON) && !accept.contains(MediaType.APPLICATION_NDJSON)
+                ? MediaType.APPLICATION_JSON : MediaType.APPLICATION_NDJSON;
+
+        return ServerResponse.ok()
+                .contentType(mediaType)
+                .body(beerService.importBeers(request.bodyToFlux(BeerDto.class)), BeerImportResult.class);
     }
 
     public Mono<ServerResponse> updateBeer(ServerRequest request){
         return request.bodyToMono(BeerDto.class).doOnNext(this::validate)
-                .flatMap(beerDto -> beerService.updateBeer(Integer.valueOf(request.pathVariable(BEER_PATH_ID_V2)), beerDto))
+                .flatMap(beerDto -> beerService.updateBeer(Integer.valueOf(request.pathVariable(BEER_PATH_ID_V2)), beerDto,
+                        BeerETags.expectedVersion(request.headers().asHttpHeaders().getIfMatch())))
                 .flatMap(savedBeerDto -> {
-                    if(savedBeerDto.getId() != null){
-                        log.info("saved id: {}", savedBeerDto.getId());
-                        return ServerResponse.noContent().build();
-                    }
-                    return ServerResponse.notFound().build();
-                });
+                    log.info("saved id: {}", savedBeerDto.getId());
+                    return ServerResponse.noContent().eTag(BeerETags.of(savedBeerDto)).build();
+                })
+                .onErrorResume(e -> e instanceof NotFoundException, e -> ServerResponse.notFound().build())
+                .onErrorResume(this::isStaleVersion, this::staleVersion)
+                // a duplicate UPC under the unique upc index
+                .onErrorResume(DataIntegrityViolationException.class, e -> ServerResponse.status(HttpStatus.CONFLICT).build());
     }
 
     public Mono<ServerResponse> deleteBeer(ServerRequest request){
-        return beerService.reactiveDeleteBeerById(Integer.valueOf(request.pathVariable(BEER_PATH_ID_V2)))
-                .flatMap(voidMano -> ServerResponse.noContent().build())
-                .onErrorResume(e -> e instanceof NotFoundException, e -> ServerResponse.notFound().build());
+        return beerService.deleteBeerById(Integer.valueOf(request.pathVariable(BEER_PATH_ID_V2)),
+                        BeerETags.expectedVersion(request.headers().asHttpHeaders().getIfMatch()))
+                .then(ServerResponse.noContent().build())
+                .onErrorResume(e -> e instanceof NotFoundException, e -> ServerResponse.notFound().build())
+                .onErrorResume(this::isStaleVersion, this::staleVersion);
+    }
+
+    private boolean isStaleVersion(Throwable e) {
+        return e instanceof PreconditionFailedException || e instanceof OptimisticLockingFailureException;
+    }
+
+    private Mono<ServerResponse> staleVersion(Throwable e) {
+        return ServerResponse.status(e instanceof PreconditionFailedException ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT)
+                .build();
+    }
+
+    public Mono<ServerResponse> writesSaturated(Throwable e, ServerRequest request) {
+        return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .headers(headers -> headers.addAll(((WritesSaturatedException) e).getResponseHeaders()))
+                .build();
+    }
+
+    static Long toSequence(String sequence) {
+        if (sequence == null || sequence.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return Long.valueOf(sequence);
+        } catch (NumberFormatException e) {
+            throw new ServerWebInputException("Invalid event sequence: " + sequence);
+        }
+    }
+
+    private static int toInt(String value, int defaultValue) {
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ServerWebInputException("Invalid number: " + value);
+        }
+    }
+
+    private static BeerFields fields(ServerRequest request) {
+        String fields = request.queryParam(BeerFields.PARAM).orElse(null);
+
+        try {
+            return BeerFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ServerWebInputException(e.getMessage());
+        }
+    }
+
+    private static MediaType responseType(ServerRequest request) {
+        return WireFormat.negotiate(request.headers().accept()).getMediaType();
+    }
+
+    private BeerStyleEnum toBeerStyle(String beerStyle) {
+        try {
+            return BeerStyleEnum.valueOf(beerStyle);
+        } catch (IllegalArgumentException e) {
+            throw new ServerWebInputException("Invalid beer style: " + beerStyle);
+        }
+    }
+
+    private void validate(BeerLookupRequest lookupRequest) {
+        int keys = (lookupRequest.getIds() == null ? 0 : lookupRequest.getIds().size())
+                + (lookupRequest.getUpcs() == null ? 0 : lookupRequest.getUpcs().size());
+
+        if (keys > BEER_LOOKUP_MAX_KEYS_V2) {
+            throw new ServerWebInputException("At most " + BEER_LOOKUP_MAX_KEYS_V2 + " ids and upcs per lookup");
+        }
+
+        if ((lookupRequest.getIds() != null && lookupRequest.getIds().contains(null))
+                || (lookupRequest.getUpcs() != null && lookupRequest.getUpcs().contains(null))) {
+            throw new ServerWebInputException("Lookup keys must not be null");
+        }
     }
 
     private void validate(BeerDto beerDto){
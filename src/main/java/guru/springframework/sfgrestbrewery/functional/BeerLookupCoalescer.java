@@ -0,0 +1,78 @@
+package guru.springframework.sfgrestbrewery.functional;
+
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Shares one pending lookup between all concurrent requests for the same beer, so a burst of identical
+ * requests issues a single query. Nothing is retained once the lookup completes.
+ */
+@Component
+public class BeerLookupCoalescer {
+
+    public static final String METRIC_NAME = "beer.lookup.coalescing";
+
+    private final InFlight<BeerIdKey> byId;
+    private final InFlight<String> byUpc;
+
+    public BeerLookupCoalescer(MeterRegistry meterRegistry) {
+        this.byId = new InFlight<>(meterRegistry, "id");
+        this.byUpc = new InFlight<>(meterRegistry, "upc");
+    }
+
+    public Mono<BeerDto> getById(Integer beerId, Boolean showInventory, Supplier<Mono<BeerDto>> lookup) {
+        return byId.get(new BeerIdKey(beerId, showInventory), lookup);
+    }
+
+    public Mono<BeerDto> getByUpc(String upc, Supplier<Mono<BeerDto>> lookup) {
+        return byUpc.get(upc, lookup);
+    }
+
+    public double issuedCount() {
+        return byId.issued.count() + byUpc.issued.count();
+    }
+
+    public double coalescedCount() {
+        return byId.coalesced.count() + byUpc.coalesced.count();
+    }
+
+    private static class InFlight<K> {
+        private final Map<K, Mono<BeerDto>> pending = new ConcurrentHashMap<>();
+        private final Counter issued;
+        private final Counter coalesced;
+
+        InFlight(MeterRegistry meterRegistry, String lookup) {
+            this.issued = meterRegistry.counter(METRIC_NAME, "lookup", lookup, "result", "issued");
+            this.coalesced = meterRegistry.counter(METRIC_NAME, "lookup", lookup, "result", "coalesced");
+        }
+
+        Mono<BeerDto> get(K key, Supplier<Mono<BeerDto>> lookup) {
+            return Mono.defer(() -> {
+                boolean[] created = {false};
+
+                Mono<BeerDto> shared = pending.computeIfAbsent(key, k -> {
+                    created[0] = true;
+                    return lookup.get()
+                            .doFinally(signal -> pending.remove(k))
+                            .cache();
+                });
+
+                (created[0] ? issued : coalesced).increment();
+                return shared;
+            });
+        }
+    }
+
+    @lombok.Value
+    private static class BeerIdKey {
+        Integer beerId;
+        Boolean showInventory;
+    }
+}
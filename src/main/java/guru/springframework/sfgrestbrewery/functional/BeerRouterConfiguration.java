@@ -1,12 +1,20 @@
 package guru.springframework.sfgrestbrewery.functional;
 
+import guru.springframework.sfgrestbrewery.services.WritesSaturatedException;
+import guru.springframework.sfgrestbrewery.web.controller.WireFormat;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.MediaType;
+import org.springframework.web.reactive.HandlerMapping;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
+
+import java.util.Arrays;
+import java.util.Map;
 
 import static org.springframework.web.reactive.function.server.RequestPredicates.accept;
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
 import static org.springframework.web.reactive.function.server.RouterFunctions.route;
 
 @Configuration
@@ -16,17 +24,79 @@ public class BeerRouterConfiguration {
     public static final String BEER_PATH_ID_V2 ="beerId";
     public static final String BEER_ROUTE_BEER_ID = BEER_ROUTE_V2 + "/{" + BEER_PATH_ID_V2 + "}";
     public static final String BEER_PARAM_SHOW_INVENTORY_V2="showInventory";
+    public static final String BEER_STREAM_ROUTE_V2 = BEER_ROUTE_V2 + "/stream";
+    public static final String BEER_EVENTS_ROUTE_V2 = BEER_ROUTE_V2 + "/events";
+    public static final String BEER_EVENTS_WEBSOCKET_V2 = "/ws/v2/beer/events";
+    public static final String BEER_PARAM_AFTER_V2 = "after";
+    public static final String BEER_BATCH_ROUTE_V2 = BEER_ROUTE_V2 + "/batch";
+    public static final String BEER_LOOKUP_ROUTE_V2 = BEER_ROUTE_V2 + "/lookup";
+    public static final int BEER_LOOKUP_MAX_KEYS_V2 = 1000;
+    public static final String BEER_SEARCH_ROUTE_V2 = BEER_ROUTE_V2 + "/search";
+    public static final String BEER_PARAM_QUERY_V2 = "q";
+    public static final String BEER_PARAM_PAGE_NUMBER_V2 = "pageNumber";
+    public static final String BEER_PARAM_PAGE_SIZE_V2 = "pageSize";
+    public static final int BEER_SEARCH_MAX_QUERY_LENGTH_V2 = 100;
+    public static final int BEER_SEARCH_MAX_PAGE_SIZE_V2 = 100;
+    // deeper pages cost a bigger ranking heap per query
+    public static final int BEER_SEARCH_MAX_RESULTS_V2 = 10000;
+    public static final String BEER_STATS_ROUTE_V2 = BEER_ROUTE_V2 + "/stats";
+    public static final String BEER_PARAM_SOURCE_V2 = "source";
+    public static final String BEER_STATS_SOURCE_SQL_V2 = "sql";
+    public static final String BEER_PARAM_NAME_V2="beerName";
+    public static final String BEER_PARAM_STYLE_V2="beerStyle";
+    public static final String BEER_INVENTORY_ROUTE_V2 = BEER_ROUTE_BEER_ID + "/inventory";
+    public static final String BEER_RESTOCK_ROUTE_V2 = BEER_INVENTORY_ROUTE_V2 + "/restock";
+    public static final String BEER_RESERVATIONS_ROUTE_V2 = BEER_ROUTE_BEER_ID + "/reservations";
+    public static final String BEER_PATH_RESERVATION_ID_V2 = "reservationId";
+    public static final String BEER_RESERVATION_ROUTE_V2 = BEER_ROUTE_V2 + "/reservations/{" + BEER_PATH_RESERVATION_ID_V2 + "}";
+    public static final String BEER_RESERVATION_COMMIT_ROUTE_V2 = BEER_RESERVATION_ROUTE_V2 + "/commit";
+    public static final String BEER_SNAPSHOT_ROUTE_V2 = "admin/v2/beer/snapshot";
+    public static final String BEER_SNAPSHOT_IMPORT_ROUTE_V2 = BEER_SNAPSHOT_ROUTE_V2 + "/import";
     public static final String BEER_UPC_ROUTE_V2="api/v2/beerUpc";
     public static final String BEER_PATH_UPC_V2 ="upc";
 
+    private static final MediaType[] WIRE_FORMAT_MEDIA_TYPES = Arrays.stream(WireFormat.values())
+            .map(WireFormat::getMediaType).toArray(MediaType[]::new);
+
     @Bean
     public RouterFunction<ServerResponse> beerRouter(BeerHandler beerHandler){
         return route()
-                .GET(BEER_ROUTE_BEER_ID, accept(MediaType.APPLICATION_JSON), beerHandler::getBeerById)
-                .GET(BEER_UPC_ROUTE_V2 +  "/{" + BEER_PATH_UPC_V2 + "}", accept(MediaType.APPLICATION_JSON), beerHandler::getBeerByUpc)
+                .GET(BEER_STREAM_ROUTE_V2, accept(MediaType.APPLICATION_NDJSON, MediaType.TEXT_EVENT_STREAM), beerHandler::streamBeers)
+                .GET(BEER_EVENTS_ROUTE_V2, accept(MediaType.TEXT_EVENT_STREAM), beerHandler::beerEvents)
+                .GET(BEER_SEARCH_ROUTE_V2, accept(MediaType.APPLICATION_JSON), beerHandler::searchBeers)
+                .GET(BEER_STATS_ROUTE_V2, accept(MediaType.APPLICATION_JSON), beerHandler::beerStats)
+                .GET(BEER_ROUTE_BEER_ID, accept(WIRE_FORMAT_MEDIA_TYPES), beerHandler::getBeerById)
+                .GET(BEER_UPC_ROUTE_V2 +  "/{" + BEER_PATH_UPC_V2 + "}", accept(WIRE_FORMAT_MEDIA_TYPES), beerHandler::getBeerByUpc)
+                .POST(BEER_BATCH_ROUTE_V2, contentType(MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON), beerHandler::importBeers)
+                .POST(BEER_LOOKUP_ROUTE_V2, accept(MediaType.APPLICATION_JSON), beerHandler::lookupBeers)
                 .POST(BEER_ROUTE_V2, accept(MediaType.APPLICATION_JSON), beerHandler::addBeer)
                 .PUT(BEER_ROUTE_BEER_ID, accept(MediaType.APPLICATION_JSON), beerHandler::updateBeer)
                 .DELETE(BEER_ROUTE_BEER_ID, accept(MediaType.APPLICATION_JSON), beerHandler::deleteBeer)
+                .onError(WritesSaturatedException.class, beerHandler::writesSaturated)
+                .build();
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> inventoryRouter(InventoryHandler inventoryHandler) {
+        return route()
+                .GET(BEER_INVENTORY_ROUTE_V2, accept(MediaType.APPLICATION_JSON), inventoryHandler::getInventory)
+                .POST(BEER_RESTOCK_ROUTE_V2, accept(MediaType.APPLICATION_JSON), inventoryHandler::restock)
+                .POST(BEER_RESERVATIONS_ROUTE_V2, accept(MediaType.APPLICATION_JSON), inventoryHandler::reserve)
+                .POST(BEER_RESERVATION_COMMIT_ROUTE_V2, inventoryHandler::commit)
+                .DELETE(BEER_RESERVATION_ROUTE_V2, inventoryHandler::release)
                 .build();
     }
+
+    @Bean
+    public RouterFunction<ServerResponse> beerSnapshotRouter(BeerSnapshotHandler beerSnapshotHandler) {
+        return route()
+                .POST(BEER_SNAPSHOT_ROUTE_V2, accept(MediaType.APPLICATION_JSON), beerSnapshotHandler::exportSnapshot)
+                .POST(BEER_SNAPSHOT_IMPORT_ROUTE_V2, accept(MediaType.APPLICATION_JSON), beerSnapshotHandler::importSnapshot)
+                .build();
+    }
+
+    @Bean
+    public HandlerMapping beerEventsWebSocketMapping(BeerEventWebSocketHandler beerEventWebSocketHandler) {
+        return new SimpleUrlHandlerMapping(Map.of(BEER_EVENTS_WEBSOCKET_V2, beerEventWebSocketHandler), -1);
+    }
 }
@@ -0,0 +1,38 @@
+package guru.springframework.sfgrestbrewery.functional;
+
+import guru.springframework.sfgrestbrewery.services.BeerSnapshots;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.NoSuchFileException;
+
+/**
+ * Admin triggers for the beer catalog snapshot at {@code sfg.brewery.snapshot.file}; 404 when none is set.
+ */
+@Component
+@RequiredArgsConstructor
+public class BeerSnapshotHandler {
+    private final BeerSnapshots beerSnapshots;
+
+    public Mono<ServerResponse> exportSnapshot(ServerRequest request) {
+        return beerSnapshots.file()
+                .map(file -> beerSnapshots.export(file)
+                        .flatMap(result -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(result)))
+                .orElseGet(() -> ServerResponse.notFound().build());
+    }
+
+    /**
+     * Replaces the catalog with the snapshot; see {@link BeerSnapshots#replace}.
+     */
+    public Mono<ServerResponse> importSnapshot(ServerRequest request) {
+        return beerSnapshots.file()
+                .map(file -> beerSnapshots.replace(file)
+                        .flatMap(result -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(result))
+                        .onErrorResume(e -> e instanceof NoSuchFileException, e -> ServerResponse.notFound().build()))
+                .orElseGet(() -> ServerResponse.notFound().build());
+    }
+}
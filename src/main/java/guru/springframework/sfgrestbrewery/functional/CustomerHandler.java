@@ -0,0 +1,96 @@
+package guru.springframework.sfgrestbrewery.functional;
+
+import guru.springframework.sfgrestbrewery.services.CustomerService;
+import guru.springframework.sfgrestbrewery.web.controller.NotFoundException;
+import guru.springframework.sfgrestbrewery.web.controller.WireFormat;
+import guru.springframework.sfgrestbrewery.web.model.CustomerBatchResult;
+import guru.springframework.sfgrestbrewery.web.model.CustomerDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+
+import static guru.springframework.sfgrestbrewery.functional.CustomerRouterConfiguration.*;
+
+@Component
+@RequiredArgsConstructor
+public class CustomerHandler {
+    private final CustomerService customerService;
+    private final Validator validator;
+
+    public Mono<ServerResponse> getCustomerById(ServerRequest request) {
+        UUID customerId = customerId(request);
+
+        return customerService.getCustomerById(customerId)
+                .flatMap(customerDto -> ServerResponse.ok()
+                        .contentType(WireFormat.negotiate(request.headers().accept()).getMediaType())
+                        .bodyValue(customerDto))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> addCustomer(ServerRequest request) {
+        return request.bodyToMono(CustomerDto.class).doOnNext(this::validate)
+                .flatMap(customerService::saveNewCustomer)
+                .flatMap(customerDto -> ServerResponse.created(UriComponentsBuilder
+                        .fromHttpUrl("http://localhost:8080/api/v2/customer/" + customerDto.getId())
+                        .build().toUri()).build());
+    }
+
+    public Mono<ServerResponse> saveCustomers(ServerRequest request) {
+        // results stream back as NDJSON unless the client insists on a (buffered) JSON array
+        List<MediaType> accept = request.headers().accept();
+        MediaType mediaType = accept.contains(MediaType.APPLICATION_JSON) && !accept.contains(MediaType.APPLICATION_NDJSON)
+                ? MediaType.APPLICATION_JSON : MediaType.APPLICATION_NDJSON;
+
+        return ServerResponse.ok()
+                .contentType(mediaType)
+                .body(customerService.saveCustomers(request.bodyToFlux(CustomerDto.class)), CustomerBatchResult.class);
+    }
+
+    public Mono<ServerResponse> updateCustomer(ServerRequest request) {
+        UUID customerId = customerId(request);
+
+        return request.bodyToMono(CustomerDto.class).doOnNext(this::validate)
+                .flatMap(customerDto -> customerService.updateCustomer(customerId, customerDto))
+                .flatMap(customerDto -> ServerResponse.noContent().build())
+                .onErrorResume(e -> e instanceof NotFoundException, e -> ServerResponse.notFound().build())
+                .onErrorResume(OptimisticLockingFailureException.class, e -> ServerResponse.status(HttpStatus.CONFLICT).build());
+    }
+
+    public Mono<ServerResponse> deleteCustomer(ServerRequest request) {
+        return customerService.deleteById(customerId(request))
+                .then(ServerResponse.noContent().build())
+                .onErrorResume(e -> e instanceof NotFoundException, e -> ServerResponse.notFound().build());
+    }
+
+    private static UUID customerId(ServerRequest request) {
+        String customerId = request.pathVariable(CUSTOMER_PATH_ID_V2);
+
+        try {
+            return UUID.fromString(customerId);
+        } catch (IllegalArgumentException e) {
+            throw new ServerWebInputException("Invalid customer id: " + customerId);
+        }
+    }
+
+    private void validate(CustomerDto customerDto) {
+        Errors errors = new BeanPropertyBindingResult(customerDto, "customerDto");
+        validator.validate(customerDto, errors);
+
+        if (errors.hasErrors()) {
+            throw new ServerWebInputException(errors.toString());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package guru.springframework.sfgrestbrewery.functional;
+
+import guru.springframework.sfgrestbrewery.web.controller.WireFormat;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import java.util.Arrays;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.accept;
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+@Configuration
+public class CustomerRouterConfiguration {
+
+    public static final String CUSTOMER_ROUTE_V2 = "api/v2/customer";
+    public static final String CUSTOMER_PATH_ID_V2 = "customerId";
+    public static final String CUSTOMER_ROUTE_CUSTOMER_ID = CUSTOMER_ROUTE_V2 + "/{" + CUSTOMER_PATH_ID_V2 + "}";
+    public static final String CUSTOMER_BATCH_ROUTE_V2 = CUSTOMER_ROUTE_V2 + "/batch";
+
+    private static final MediaType[] WIRE_FORMAT_MEDIA_TYPES = Arrays.stream(WireFormat.values())
+            .map(WireFormat::getMediaType).toArray(MediaType[]::new);
+
+    @Bean
+    public RouterFunction<ServerResponse> customerRouter(CustomerHandler customerHandler) {
+        return route()
+                .POST(CUSTOMER_BATCH_ROUTE_V2, contentType(MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON), customerHandler::saveCustomers)
+                .GET(CUSTOMER_ROUTE_CUSTOMER_ID, accept(WIRE_FORMAT_MEDIA_TYPES), customerHandler::getCustomerById)
+                .POST(CUSTOMER_ROUTE_V2, accept(MediaType.APPLICATION_JSON), customerHandler::addCustomer)
+                .PUT(CUSTOMER_ROUTE_CUSTOMER_ID, accept(MediaType.APPLICATION_JSON), customerHandler::updateCustomer)
+                .DELETE(CUSTOMER_ROUTE_CUSTOMER_ID, accept(MediaType.APPLICATION_JSON), customerHandler::deleteCustomer)
+                .build();
+    }
+}
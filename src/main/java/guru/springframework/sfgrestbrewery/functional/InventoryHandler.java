@@ -0,0 +1,88 @@
+package guru.springframework.sfgrestbrewery.functional;
+
+import guru.springframework.sfgrestbrewery.services.InsufficientStockException;
+import guru.springframework.sfgrestbrewery.services.InventoryService;
+import guru.springframework.sfgrestbrewery.web.controller.NotFoundException;
+import guru.springframework.sfgrestbrewery.web.model.BeerInventoryRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+import static guru.springframework.sfgrestbrewery.functional.BeerRouterConfiguration.*;
+
+/**
+ * Beer stock: reservations that are later committed or released, and restocking.
+ */
+@Component
+@RequiredArgsConstructor
+public class InventoryHandler {
+    private final InventoryService inventoryService;
+    private final Validator validator;
+
+    public Mono<ServerResponse> getInventory(ServerRequest request) {
+        return inventoryService.getInventory(Integer.valueOf(request.pathVariable(BEER_PATH_ID_V2)))
+                .flatMap(inventory -> ServerResponse.ok().bodyValue(inventory))
+                .onErrorResume(e -> e instanceof NotFoundException, e -> ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> reserve(ServerRequest request) {
+        Integer beerId = Integer.valueOf(request.pathVariable(BEER_PATH_ID_V2));
+
+        return request.bodyToMono(BeerInventoryRequest.class).doOnNext(this::validate)
+                .flatMap(inventoryRequest -> inventoryService.reserve(beerId, inventoryRequest.getQuantity()))
+                .flatMap(reservation -> ServerResponse.created(UriComponentsBuilder
+                                .fromHttpUrl("http://localhost:8080/" + BEER_ROUTE_V2 + "/reservations/" + reservation.getId())
+                                .build().toUri())
+                        .bodyValue(reservation))
+                .onErrorResume(e -> e instanceof NotFoundException, e -> ServerResponse.notFound().build())
+                .onErrorResume(e -> e instanceof InsufficientStockException, e -> ServerResponse.status(HttpStatus.CONFLICT).build());
+    }
+
+    public Mono<ServerResponse> commit(ServerRequest request) {
+        return inventoryService.commit(toReservationId(request.pathVariable(BEER_PATH_RESERVATION_ID_V2)))
+                .then(ServerResponse.noContent().build())
+                .onErrorResume(e -> e instanceof NotFoundException, e -> ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> release(ServerRequest request) {
+        return inventoryService.release(toReservationId(request.pathVariable(BEER_PATH_RESERVATION_ID_V2)))
+                .then(ServerResponse.noContent().build())
+                .onErrorResume(e -> e instanceof NotFoundException, e -> ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> restock(ServerRequest request) {
+        Integer beerId = Integer.valueOf(request.pathVariable(BEER_PATH_ID_V2));
+
+        return request.bodyToMono(BeerInventoryRequest.class).doOnNext(this::validate)
+                .flatMap(inventoryRequest -> inventoryService.restock(beerId, inventoryRequest.getQuantity()))
+                .flatMap(inventory -> ServerResponse.ok().bodyValue(inventory))
+                .onErrorResume(e -> e instanceof NotFoundException, e -> ServerResponse.notFound().build());
+    }
+
+    private UUID toReservationId(String reservationId) {
+        try {
+            return UUID.fromString(reservationId);
+        } catch (IllegalArgumentException e) {
+            throw new ServerWebInputException("Invalid reservation id: " + reservationId);
+        }
+    }
+
+    private void validate(BeerInventoryRequest inventoryRequest) {
+        Errors errors = new BeanPropertyBindingResult(inventoryRequest, "beerInventoryRequest");
+        validator.validate(inventoryRequest, errors);
+
+        if (errors.hasErrors()) {
+            throw new ServerWebInputException(errors.toString());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package guru.springframework.sfgrestbrewery.metrics;
+
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * API generation a request belongs to: v1 is the annotated BeerController, v2 the functional routes.
+ */
+public enum ApiVersion {
+    V1, V2, NONE;
+
+    public static ApiVersion of(ServerWebExchange exchange) {
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+
+        if (path.startsWith("/api/v1/")) {
+            return V1;
+        } else if (path.startsWith("/api/v2/")) {
+            return V2;
+        }
+        return NONE;
+    }
+
+    public String tag() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,20 @@
+package guru.springframework.sfgrestbrewery.metrics;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.actuate.metrics.web.reactive.server.WebFluxTagsContributor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Adds an {@code api} tag (v1 / v2) to {@code http.server.requests}, so the annotated and functional APIs
+ * can be compared route by route.
+ */
+@Component
+public class ApiVersionTagsContributor implements WebFluxTagsContributor {
+
+    @Override
+    public Iterable<Tag> httpRequestTags(ServerWebExchange exchange, Throwable ex) {
+        return Tags.of("api", ApiVersion.of(exchange).tag());
+    }
+}
@@ -0,0 +1,90 @@
+package guru.springframework.sfgrestbrewery.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Times every BeerService method as {@code beer.service}, tagged by method and outcome. For reactive
+ * results the timer runs from subscription until the publisher terminates, not just while the pipeline is
+ * assembled (which is all {@code @Timed} would measure).
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class BeerServiceMetricsAspect {
+
+    public static final String METRIC_NAME = "beer.service";
+
+    private final MeterRegistry meterRegistry;
+
+    @Around("execution(* guru.springframework.sfgrestbrewery.services.BeerService.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+        Class<?> returnType = ((MethodSignature) joinPoint.getSignature()).getReturnType();
+
+        if (Mono.class.isAssignableFrom(returnType)) {
+            return Mono.defer(() -> {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                return proceedMono(joinPoint).doFinally(signal -> sample.stop(timer(method, signal)));
+            });
+        } else if (Flux.class.isAssignableFrom(returnType)) {
+            return Flux.defer(() -> {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                return proceedFlux(joinPoint).doFinally(signal -> sample.stop(timer(method, signal)));
+            });
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            Object result = joinPoint.proceed();
+            sample.stop(timer(method, SignalType.ON_COMPLETE));
+            return result;
+        } catch (Throwable e) {
+            sample.stop(timer(method, SignalType.ON_ERROR));
+            throw e;
+        }
+    }
+
+    private static Mono<?> proceedMono(ProceedingJoinPoint joinPoint) {
+        try {
+            return (Mono<?>) joinPoint.proceed();
+        } catch (Throwable e) {
+            return Mono.error(e);
+        }
+    }
+
+    private static Flux<?> proceedFlux(ProceedingJoinPoint joinPoint) {
+        try {
+            return (Flux<?>) joinPoint.proceed();
+        } catch (Throwable e) {
+            return Flux.error(e);
+        }
+    }
+
+    private Timer timer(String method, SignalType signal) {
+        return Timer.builder(METRIC_NAME)
+                .tag("method", method)
+                .tag("outcome", outcome(signal))
+                .register(meterRegistry);
+    }
+
+    private static String outcome(SignalType signal) {
+        switch (signal) {
+            case ON_COMPLETE:
+                return "success";
+            case ON_ERROR:
+                return "error";
+            default:
+                return "cancelled";
+        }
+    }
+}
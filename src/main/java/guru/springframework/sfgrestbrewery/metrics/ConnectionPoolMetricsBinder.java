@@ -0,0 +1,50 @@
+package guru.springframework.sfgrestbrewery.metrics;
+
+import guru.springframework.sfgrestbrewery.config.DatabaseConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+
+/**
+ * Publishes the standard {@code r2dbc.pool.*} gauges (acquired, allocated, idle, pending, ...) plus
+ * {@code r2dbc.pool.utilization}, the share of the maximum pool size currently acquired.
+ *
+ * Spring Boot only binds these for a ConnectionFactory bean that is itself the pool, which the
+ * {@link R2dbcMetricsPostProcessor} proxy hides.
+ */
+@Component
+public class ConnectionPoolMetricsBinder implements MeterBinder {
+
+    private static final String POOL_NAME = "connectionFactory";
+
+    private final ConnectionFactory connectionFactory;
+
+    public ConnectionPoolMetricsBinder(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        DatabaseConfig.connectionPool(connectionFactory).ifPresent(pool -> {
+            new ConnectionPoolMetrics(pool, POOL_NAME, Collections.emptyList()).bindTo(registry);
+
+            Gauge.builder("r2dbc.pool.utilization", pool, ConnectionPoolMetricsBinder::utilization)
+                    .tag("name", POOL_NAME)
+                    .description("Acquired connections as a share of the maximum pool size")
+                    .register(registry);
+        });
+    }
+
+    private static double utilization(ConnectionPool pool) {
+        return pool.getMetrics()
+                .filter(metrics -> metrics.getMaxAllocatedSize() > 0)
+                .map(metrics -> (double) metrics.acquiredSize() / metrics.getMaxAllocatedSize())
+                .orElse(Double.NaN);
+    }
+}
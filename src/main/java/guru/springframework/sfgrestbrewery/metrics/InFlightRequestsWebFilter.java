@@ -0,0 +1,52 @@
+package guru.springframework.sfgrestbrewery.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks requests currently being processed, per API generation, as the
+ * {@code http.server.requests.active} gauge.
+ */
+@Component
+public class InFlightRequestsWebFilter implements WebFilter, MeterBinder {
+
+    private final Map<ApiVersion, AtomicInteger> inFlight = new EnumMap<>(ApiVersion.class);
+
+    public InFlightRequestsWebFilter() {
+        for (ApiVersion apiVersion : ApiVersion.values()) {
+            inFlight.put(apiVersion, new AtomicInteger());
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        AtomicInteger counter = inFlight.get(ApiVersion.of(exchange));
+
+        return Mono.defer(() -> {
+            counter.incrementAndGet();
+            return chain.filter(exchange);
+        }).doFinally(signal -> counter.decrementAndGet());
+    }
+
+    public int inFlight(ApiVersion apiVersion) {
+        return inFlight.get(apiVersion).get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        inFlight.forEach((apiVersion, counter) -> Gauge.builder("http.server.requests.active", counter, AtomicInteger::get)
+                .tag("api", apiVersion.tag())
+                .description("Requests currently in flight")
+                .register(registry));
+    }
+}
@@ -0,0 +1,77 @@
+package guru.springframework.sfgrestbrewery.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.proxy.ProxyConnectionFactory;
+import io.r2dbc.proxy.core.QueryExecutionInfo;
+import io.r2dbc.proxy.listener.ProxyExecutionListener;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Wraps the ConnectionFactory in an r2dbc-proxy that records every statement as the {@code r2dbc.query}
+ * timer and every row read as the {@code r2dbc.query.rows} counter, both tagged by statement type.
+ */
+@Component
+public class R2dbcMetricsPostProcessor implements BeanPostProcessor {
+
+    public static final String QUERY_METRIC_NAME = "r2dbc.query";
+    public static final String ROWS_METRIC_NAME = "r2dbc.query.rows";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public R2dbcMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof ConnectionFactory) {
+            return ProxyConnectionFactory.builder((ConnectionFactory) bean)
+                    .listener(new MetricsListener())
+                    .build();
+        }
+        return bean;
+    }
+
+    private class MetricsListener implements ProxyExecutionListener {
+
+        @Override
+        public void afterQuery(QueryExecutionInfo execInfo) {
+            meterRegistry.ifAvailable(registry -> Timer.builder(QUERY_METRIC_NAME)
+                    .tag("type", statementType(execInfo))
+                    .tag("success", String.valueOf(execInfo.isSuccess()))
+                    .register(registry)
+                    .record(execInfo.getExecuteDuration()));
+        }
+
+        @Override
+        public void eachQueryResult(QueryExecutionInfo execInfo) {
+            meterRegistry.ifAvailable(registry -> registry.counter(ROWS_METRIC_NAME, "type", statementType(execInfo)).increment());
+        }
+    }
+
+    private static String statementType(QueryExecutionInfo execInfo) {
+        if (execInfo.getQueries().isEmpty()) {
+            return "other";
+        }
+
+        String query = execInfo.getQueries().get(0).getQuery().stripLeading();
+        int end = query.indexOf(' ');
+        String keyword = (end < 0 ? query : query.substring(0, end)).toLowerCase(Locale.ROOT);
+
+        switch (keyword) {
+            case "select":
+            case "insert":
+            case "update":
+            case "delete":
+                return keyword;
+            default:
+                return "other";
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package guru.springframework.sfgrestbrewery.repositories;
+
+import guru.springframework.sfgrestbrewery.domain.Beer;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multi-row writes for the beer table. Each call sends one statement with a binding per beer
+ * ({@link Statement#add()}), rather than a round trip per row as {@link BeerRepository#saveAll} does.
+ */
+@Component
+@RequiredArgsConstructor
+public class BeerBatchRepository {
+
+    static final String INSERT_SQL = "INSERT INTO beer (beer_name, beer_style, upc, version, quantity_on_hand, price, "
+            + "created_date, last_modified_date) VALUES ($1, $2, $3, $4, $5, $6, $7, $8)";
+
+    static final String RESTORE_SQL = "INSERT INTO beer (beer_name, beer_style, upc, version, quantity_on_hand, price, "
+            + "created_date, last_modified_date, id) VALUES ($1, $2, $3, $4, $5, $6, $7, $8, $9)";
+
+    static final String ADD_QUANTITY_SQL = "UPDATE beer SET quantity_on_hand = COALESCE(quantity_on_hand, 0) + $1 WHERE id = $2";
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * @return the generated ids, in the order of the given beers
+     */
+    public Flux<Integer> insertAll(List<Beer> beers) {
+        if (beers.isEmpty()) {
+            return Flux.empty();
+        }
+
+        return databaseClient.inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(INSERT_SQL).returnGeneratedValues("id");
+
+            for (int i = 0; i < beers.size(); i++) {
+                if (i > 0) {
+                    statement.add();
+                }
+                bind(statement, beers.get(i));
+            }
+
+            return Flux.from(statement.execute())
+                    .concatMap(result -> result.map((row, rowMetadata) -> row.get("id", Integer.class)));
+        });
+    }
+
+    /**
+     * Inserts beers with the ids they already have, as restored from a snapshot. Call {@link #restartIds()}
+     * afterwards so generated ids carry on after them.
+     *
+     * @return the number of rows inserted
+     */
+    public Mono<Integer> restoreAll(List<Beer> beers) {
+        if (beers.isEmpty()) {
+            return Mono.just(0);
+        }
+
+        return databaseClient.inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(RESTORE_SQL);
+
+            for (int i = 0; i < beers.size(); i++) {
+                if (i > 0) {
+                    statement.add();
+                }
+                bind(statement, beers.get(i));
+                statement.bind(8, beers.get(i).getId());
+            }
+
+            return Flux.from(statement.execute()).flatMap(Result::getRowsUpdated);
+        }).reduce(0, Integer::sum);
+    }
+
+    /**
+     * Removes every beer, without a row at a time delete.
+     */
+    public Mono<Void> truncate() {
+        return databaseClient.sql("TRUNCATE TABLE beer").then();
+    }
+
+    /**
+     * Restarts the id sequence after the highest id in the table.
+     */
+    public Mono<Void> restartIds() {
+        return databaseClient.sql("SELECT COALESCE(MAX(id), 0) AS max_id FROM beer")
+                .map((row, rowMetadata) -> ((Number) row.get("max_id")).longValue())
+                .one()
+                // DDL takes no bind parameters; the value is a number read just above
+                .flatMap(maxId -> databaseClient.sql("ALTER TABLE beer ALTER COLUMN id RESTART WITH " + (maxId + 1)).then());
+    }
+
+    /**
+     * Adds each delta to its beer's quantity on hand. Relative updates leave the row version alone, so they
+     * commute with concurrent catalog updates instead of conflicting with them.
+     *
+     * @return the number of rows updated; beers deleted in the meantime are skipped
+     */
+    public Mono<Integer> addToQuantityOnHand(Map<Integer, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return Mono.just(0);
+        }
+
+        return databaseClient.inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(ADD_QUANTITY_SQL);
+            boolean first = true;
+
+            for (Map.Entry<Integer, Long> delta : deltas.entrySet()) {
+                if (!first) {
+                    statement.add();
+                }
+                statement.bind(0, Math.toIntExact(delta.getValue()));
+                statement.bind(1, delta.getKey());
+                first = false;
+            }
+
+            return Flux.from(statement.execute()).flatMap(Result::getRowsUpdated);
+        }).reduce(0, Integer::sum);
+    }
+
+    private void bind(Statement statement, Beer beer) {
+        bind(statement, 0, beer.getBeerName(), String.class);
+        bind(statement, 1, beer.getBeerStyle() == null ? null : beer.getBeerStyle().name(), String.class);
+        bind(statement, 2, beer.getUpc(), String.class);
+        // new rows start at version 0, as R2dbcEntityTemplate.insert does for @Version
+        statement.bind(3, beer.getVersion() == null ? 0 : beer.getVersion().intValue());
+        bind(statement, 4, beer.getQuantityOnHand(), Integer.class);
+        bind(statement, 5, beer.getPrice(), BigDecimal.class);
+        bind(statement, 6, beer.getCreatedDate(), LocalDateTime.class);
+        bind(statement, 7, beer.getLastModifiedDate(), LocalDateTime.class);
+    }
+
+    private static <T> void bind(Statement statement, int index, T value, Class<T> type) {
+        if (value == null) {
+            statement.bindNull(index, type);
+        } else {
+            statement.bind(index, value);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package guru.springframework.sfgrestbrewery.repositories;
+
+import guru.springframework.sfgrestbrewery.config.UuidConverters;
+import guru.springframework.sfgrestbrewery.domain.Customer;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Multi-row writes for the customer table, one statement with a binding per customer ({@link Statement#add()})
+ * as in {@link BeerBatchRepository}.
+ */
+@Component
+@RequiredArgsConstructor
+public class CustomerBatchRepository {
+
+    static final String INSERT_SQL = "INSERT INTO customer (id, version, name, created_date, last_modified_date) "
+            + "VALUES ($1, $2, $3, $4, $5)";
+
+    static final String UPDATE_SQL = "UPDATE customer SET name = $1, last_modified_date = $2, version = version + 1 "
+            + "WHERE id = $3";
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * Inserts customers whose ids are already assigned.
+     *
+     * @return the number of rows inserted
+     */
+    public Mono<Integer> insertAll(List<Customer> customers) {
+        if (customers.isEmpty()) {
+            return Mono.just(0);
+        }
+
+        return databaseClient.inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(INSERT_SQL);
+
+            for (int i = 0; i < customers.size(); i++) {
+                if (i > 0) {
+                    statement.add();
+                }
+                Customer customer = customers.get(i);
+                statement.bind(0, UuidConverters.toBytes(customer.getId()));
+                statement.bind(1, 0);
+                statement.bind(2, customer.getName());
+                bind(statement, 3, customer.getCreatedDate());
+                bind(statement, 4, customer.getLastModifiedDate());
+            }
+
+            return Flux.from(statement.execute()).flatMap(Result::getRowsUpdated);
+        }).reduce(0, Integer::sum);
+    }
+
+    /**
+     * Renames existing customers. Batch updates are last-write-wins: each bumps the row version without
+     * checking it.
+     *
+     * @return per customer, in the order given, the number of rows updated: 0 when the customer does not exist
+     */
+    public Flux<Integer> updateAll(List<Customer> customers) {
+        if (customers.isEmpty()) {
+            return Flux.empty();
+        }
+
+        return databaseClient.inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(UPDATE_SQL);
+
+            for (int i = 0; i < customers.size(); i++) {
+                if (i > 0) {
+                    statement.add();
+                }
+                Customer customer = customers.get(i);
+                statement.bind(0, customer.getName());
+                bind(statement, 1, customer.getLastModifiedDate());
+                statement.bind(2, UuidConverters.toBytes(customer.getId()));
+            }
+
+            // one result per binding, in binding order
+            return Flux.from(statement.execute()).concatMap(Result::getRowsUpdated);
+        });
+    }
+
+    private static void bind(Statement statement, int index, LocalDateTime value) {
+        if (value == null) {
+            statement.bindNull(index, LocalDateTime.class);
+        } else {
+            statement.bind(index, value);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import guru.springframework.sfgrestbrewery.web.model.BeerPagedList;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache for beer lookups.
+ *
+ * Stores the resolved values rather than the (cold) Mono, so a hit never touches R2DBC. Misses are
+ * held as a pending future, so concurrent callers for the same key share a single query.
+ */
+@Slf4j
+@Component
+public class BeerCache implements MeterBinder {
+
+    private final AsyncCache<Integer, BeerDto> beerCache;
+    private final AsyncCache<String, BeerDto> beerUpcCache;
+    private final AsyncCache<BeerListKey, BeerPagedList> beerListCache;
+    private final AsyncCache<BeerCountKey, Long> beerCountCache;
+
+    public BeerCache(@Value("${sfg.brewery.cache.max-size:10000}") long maxSize,
+                     @Value("${sfg.brewery.cache.time-to-live:5m}") Duration timeToLive) {
+        this.beerCache = newCache(maxSize, timeToLive);
+        this.beerUpcCache = newCache(maxSize, timeToLive);
+        this.beerListCache = newCache(maxSize, timeToLive);
+        this.beerCountCache = newCache(maxSize, timeToLive);
+    }
+
+    public Mono<BeerDto> getById(Integer beerId, Supplier<Mono<BeerDto>> loader) {
+        return get(beerCache, beerId, loader);
+    }
+
+    public Mono<BeerDto> getByUpc(String upc, Supplier<Mono<BeerDto>> loader) {
+        return get(beerUpcCache, upc, loader);
+    }
+
+    /**
+     * Bulk variant of {@link #getById}: the loader is called once with only the ids not already cached or
+     * being loaded. Ids the loader does not return are absent from the result.
+     */
+    public Mono<Map<Integer, BeerDto>> getAllById(Collection<Integer> beerIds,
+                                                  Function<Set<Integer>, Mono<Map<Integer, BeerDto>>> loader) {
+        return getAll(beerCache, beerIds, loader);
+    }
+
+    public Mono<Map<String, BeerDto>> getAllByUpc(Collection<String> upcs,
+                                                  Function<Set<String>, Mono<Map<String, BeerDto>>> loader) {
+        return getAll(beerUpcCache, upcs, loader);
+    }
+
+    public Mono<BeerPagedList> listBeers(String beerName, BeerStyleEnum beerStyle, PageRequest pageRequest,
+                                         Supplier<Mono<BeerPagedList>> loader) {
+        return get(beerListCache, new BeerListKey(beerName, beerStyle, pageRequest.getPageNumber(), pageRequest.getPageSize()), loader);
+    }
+
+    public Mono<Long> countBeers(String beerName, BeerStyleEnum beerStyle, Supplier<Mono<Long>> loader) {
+        return get(beerCountCache, new BeerCountKey(beerName, beerStyle), loader);
+    }
+
+    /**
+     * Caches a beer by id and UPC without loading it, to warm the cache.
+     */
+    public void put(BeerDto beer) {
+        beerCache.synchronous().put(beer.getId(), beer);
+        if (beer.getUpc() != null) {
+            beerUpcCache.synchronous().put(beer.getUpc(), beer);
+        }
+    }
+
+    /**
+     * Drops everything a mutation of the given beer may have made stale. Any list page can contain the
+     * beer, so list and count entries are dropped wholesale.
+     */
+    public void evict(Integer beerId, String... upcs) {
+        if (beerId != null) {
+            beerCache.synchronous().invalidate(beerId);
+        }
+
+        for (String upc : upcs) {
+            if (upc != null) {
+                beerUpcCache.synchronous().invalidate(upc);
+            }
+        }
+
+        beerListCache.synchronous().invalidateAll();
+        beerCountCache.synchronous().invalidateAll();
+        log.debug("Evicted beer cache entries for id: {}", beerId);
+    }
+
+    public void evictAll() {
+        beerCache.synchronous().invalidateAll();
+        beerUpcCache.synchronous().invalidateAll();
+        beerListCache.synchronous().invalidateAll();
+        beerCountCache.synchronous().invalidateAll();
+    }
+
+    /**
+     * Publishes hit / miss / eviction statistics of each cache as the standard {@code cache.*} meters.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, beerCache.synchronous(), "beerCache");
+        CaffeineCacheMetrics.monitor(registry, beerUpcCache.synchronous(), "beerUpcCache");
+        CaffeineCacheMetrics.monitor(registry, beerListCache.synchronous(), "beerListCache");
+        CaffeineCacheMetrics.monitor(registry, beerCountCache.synchronous(), "beerCountCache");
+    }
+
+    private static <K, V> Mono<V> get(AsyncCache<K, V> cache, K key, Supplier<Mono<V>> loader) {
+        // empty or failed loads complete the future with null / exceptionally, which Caffeine does not retain.
+        // copy() so a cancelled subscriber cannot cancel the shared load out from under the other waiters
+        return Mono.defer(() -> Mono.fromFuture(cache.get(key, (k, executor) -> loader.get().toFuture()).copy()));
+    }
+
+    private static <K, V> Mono<Map<K, V>> getAll(AsyncCache<K, V> cache, Collection<K> keys, Function<Set<K>, Mono<Map<K, V>>> loader) {
+        return Mono.defer(() -> Mono.fromFuture(cache.getAll(keys, (missing, executor) -> {
+            Set<K> missingKeys = new HashSet<>();
+            missing.forEach(missingKeys::add);
+            return loader.apply(missingKeys).toFuture();
+        }).copy()));
+    }
+
+    private static <K, V> AsyncCache<K, V> newCache(long maxSize, Duration timeToLive) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .buildAsync();
+    }
+
+    @lombok.Value
+    static class BeerListKey {
+        String beerName;
+        BeerStyleEnum beerStyle;
+        int pageNumber;
+        int pageSize;
+    }
+
+    @lombok.Value
+    static class BeerCountKey {
+        String beerName;
+        BeerStyleEnum beerStyle;
+    }
+}
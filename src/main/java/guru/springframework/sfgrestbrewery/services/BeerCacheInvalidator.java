@@ -0,0 +1,48 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import guru.springframework.sfgrestbrewery.web.model.BeerEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+
+/**
+ * Keeps the beer cache consistent with the database by consuming the beer event stream. Events are
+ * delivered on the writing thread, so entries are gone by the time a write completes.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BeerCacheInvalidator implements InitializingBean, DisposableBean {
+
+    private final BeerEventPublisher beerEventPublisher;
+    private final BeerCache beerCache;
+
+    private Disposable subscription;
+
+    @Override
+    public void afterPropertiesSet() {
+        subscription = beerEventPublisher.events(null)
+                .subscribe(this::invalidate, e -> {
+                    // only an overflow can end the stream; drop everything rather than risk serving stale beers
+                    log.warn("Beer event stream failed, clearing the beer cache", e);
+                    beerCache.evictAll();
+                    afterPropertiesSet();
+                });
+    }
+
+    private void invalidate(BeerEvent event) {
+        if (event.getType() == BeerEvent.Type.RESET) {
+            beerCache.evictAll();
+            return;
+        }
+        beerCache.evict(event.getBeerId(), event.getUpc(), event.getPreviousUpc());
+    }
+
+    @Override
+    public void destroy() {
+        subscription.dispose();
+    }
+}
@@ -0,0 +1,205 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In-process stream of committed beer changes.
+ *
+ * Every subscriber gets its own bounded {@link Sinks.Many} (room for a full replay plus
+ * {@code sfg.brewery.events.subscriber-buffer-size} live events), so a slow consumer never holds up the writer
+ * or the other consumers: once its buffer overflows it is dropped, sees an overflow error after the events
+ * already buffered, and can resume from the last sequence it saw. The last {@code sfg.brewery.events.replay-size} events are retained for that.
+ *
+ * Events are delivered on the publishing thread, in sequence order, but outside the lock that guards the
+ * sequence, replay and subscribers, so subscribing never waits for a delivery. Subscribers doing more than
+ * evicting cache entries should {@code publishOn} a scheduler of their own, as they hold up the writer otherwise.
+ */
+@Slf4j
+@Component
+public class BeerEventPublisher implements MeterBinder {
+
+    private final int replaySize;
+    private final int subscriberBufferSize;
+
+    // guards sequence, replay and subscribers, so a new subscriber's replay and live events never overlap or gap
+    private final Object lock = new Object();
+    // held from numbering an event until it is delivered, so every subscriber sees events in sequence order
+    private final Object deliveryLock = new Object();
+    private final ArrayDeque<BeerEvent> replay;
+    private final Set<Sinks.Many<BeerEvent>> subscribers = new LinkedHashSet<>();
+    private long sequence;
+    private long overflows;
+
+    public BeerEventPublisher(@Value("${sfg.brewery.events.replay-size:1024}") int replaySize,
+                              @Value("${sfg.brewery.events.subscriber-buffer-size:256}") int subscriberBufferSize) {
+        this.replaySize = replaySize;
+        this.subscriberBufferSize = subscriberBufferSize;
+        this.replay = new ArrayDeque<>(replaySize);
+    }
+
+    public BeerEvent created(BeerDto beer) {
+        return publish(BeerEvent.Type.CREATED, beer.getId(), beer.getUpc(), null, beer);
+    }
+
+    public BeerEvent updated(BeerDto beer, String previousUpc) {
+        return publish(BeerEvent.Type.UPDATED, beer.getId(), beer.getUpc(),
+                previousUpc == null || previousUpc.equals(beer.getUpc()) ? null : previousUpc, beer);
+    }
+
+    public BeerEvent deleted(Integer beerId, String upc) {
+        return publish(BeerEvent.Type.DELETED, beerId, upc, null, null);
+    }
+
+    /**
+     * Tells every subscriber to reload, after the catalog was replaced wholesale (a snapshot import).
+     */
+    public BeerEvent reset() {
+        return publish(BeerEvent.Type.RESET, null, null, null, null);
+    }
+
+    /**
+     * Live events, preceded by the retained ones after {@code afterSequence} when given. If some events after
+     * it are no longer retained (or it is from before a restart), a {@link BeerEvent.Type#RESET} is sent
+     * instead of the replay.
+     */
+    public Flux<BeerEvent> events(Long afterSequence) {
+        return Flux.defer(() -> {
+            Sinks.Many<BeerEvent> sink = Sinks.many().unicast()
+                    .onBackpressureBuffer(Queues.<BeerEvent>get(replaySize + subscriberBufferSize).get());
+
+            synchronized (lock) {
+                if (afterSequence != null) {
+                    replayAfter(afterSequence, sink);
+                }
+                subscribers.add(sink);
+            }
+
+            return sink.asFlux().doFinally(signal -> {
+                synchronized (lock) {
+                    subscribers.remove(sink);
+                }
+            });
+        });
+    }
+
+    public long currentSequence() {
+        synchronized (lock) {
+            return sequence;
+        }
+    }
+
+    private void replayAfter(long afterSequence, Sinks.Many<BeerEvent> sink) {
+        long oldestRetained = replay.isEmpty() ? sequence + 1 : replay.peekFirst().getSequence();
+
+        if (afterSequence + 1 < oldestRetained || afterSequence > sequence) {
+            // the client reloads current state, which covers everything up to now, and carries on live
+            sink.tryEmitNext(BeerEvent.builder()
+                    .sequence(sequence)
+                    .type(BeerEvent.Type.RESET)
+                    .occurredAt(LocalDateTime.now())
+                    .build());
+            return;
+        }
+
+        for (BeerEvent event : replay) {
+            if (event.getSequence() > afterSequence) {
+                sink.tryEmitNext(event);
+            }
+        }
+    }
+
+    private BeerEvent publish(BeerEvent.Type type, Integer beerId, String upc, String previousUpc, BeerDto beer) {
+        List<Sinks.Many<BeerEvent>> overflowed = new ArrayList<>();
+        List<Sinks.Many<BeerEvent>> failed = new ArrayList<>();
+        BeerEvent event;
+
+        synchronized (deliveryLock) {
+            List<Sinks.Many<BeerEvent>> recipients;
+
+            synchronized (lock) {
+                event = BeerEvent.builder()
+                        .sequence(++sequence)
+                        .type(type)
+                        .beerId(beerId)
+                        .upc(upc)
+                        .previousUpc(previousUpc)
+                        .beer(beer)
+                        .occurredAt(LocalDateTime.now())
+                        .build();
+
+                if (replay.size() == replaySize) {
+                    replay.removeFirst();
+                }
+                replay.addLast(event);
+
+                // a subscriber added from here on finds this event in its replay
+                recipients = new ArrayList<>(subscribers);
+            }
+
+            for (Sinks.Many<BeerEvent> sink : recipients) {
+                Sinks.EmitResult result = sink.tryEmitNext(event);
+
+                if (result == Sinks.EmitResult.FAIL_OVERFLOW) {
+                    overflowed.add(sink);
+                } else if (result.isFailure()) {
+                    failed.add(sink);
+                }
+            }
+
+            if (!overflowed.isEmpty() || !failed.isEmpty()) {
+                synchronized (lock) {
+                    subscribers.removeAll(overflowed);
+                    subscribers.removeAll(failed);
+                    overflows += overflowed.size();
+                }
+            }
+        }
+
+        for (Sinks.Many<BeerEvent> sink : overflowed) {
+            log.debug("Dropping beer event subscriber that fell too far behind");
+            sink.tryEmitError(Exceptions.failWithOverflow("Beer event subscriber fell behind; resume from the last sequence"));
+        }
+
+        return event;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("beer.events.published", this, BeerEventPublisher::currentSequence)
+                .description("Beer change events published")
+                .register(registry);
+        Gauge.builder("beer.events.subscribers", this, publisher -> {
+                    synchronized (publisher.lock) {
+                        return publisher.subscribers.size();
+                    }
+                })
+                .description("Current beer event subscribers")
+                .register(registry);
+        FunctionCounter.builder("beer.events.overflows", this, publisher -> {
+                    synchronized (publisher.lock) {
+                        return publisher.overflows;
+                    }
+                })
+                .description("Beer event subscribers dropped for falling behind")
+                .register(registry);
+    }
+}
@@ -0,0 +1,174 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import guru.springframework.sfgrestbrewery.bootstrap.BeerLoader;
+import guru.springframework.sfgrestbrewery.repositories.BeerRepository;
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerEvent;
+import guru.springframework.sfgrestbrewery.web.model.BeerSearchHit;
+import guru.springframework.sfgrestbrewery.web.model.BeerSearchPage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.stream.Collectors;
+
+/**
+ * Beer search by name and style over an in-memory {@link NGramIndex}, so a query never touches the database.
+ *
+ * The index is built from the beer table once the initial data is loaded, and kept current from the beer
+ * event stream through a {@link BeerTableMirror}. Events arriving during a build win over the rows being read;
+ * if the stream overflows the index is rebuilt. A build fills a new index and swaps it in when done, so
+ * searches find nothing until the first build completes, and the index reports DOWN as a health indicator
+ * until then.
+ */
+@Slf4j
+@Component
+public class BeerSearchIndex implements InitializingBean, DisposableBean, ReactiveHealthIndicator, MeterBinder {
+
+    private final BeerEventPublisher beerEventPublisher;
+    private final BeerLoader beerLoader;
+    private final double minSimilarity;
+
+    private final BeerTableMirror<NGramIndex<BeerSearchHit>> index;
+    private final Sinks.Empty<Void> built = Sinks.empty();
+    private volatile boolean ready;
+
+    private Disposable events;
+    private Disposable loaded;
+
+    public BeerSearchIndex(BeerRepository beerRepository, BeerEventPublisher beerEventPublisher, BeerLoader beerLoader,
+                           @Value("${sfg.brewery.search.min-similarity:0.5}") double minSimilarity) {
+        this.beerEventPublisher = beerEventPublisher;
+        this.beerLoader = beerLoader;
+        this.minSimilarity = minSimilarity;
+        this.index = new BeerTableMirror<>("search index", beerRepository, NGramIndex::new, (target, beer) ->
+                put(target, hit(beer.getId(), beer.getBeerName(),
+                        beer.getBeerStyle() == null ? null : beer.getBeerStyle().name(), beer.getUpc())));
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        subscribe();
+        loaded = beerLoader.loaded().then(Mono.fromRunnable(this::rebuild)).subscribe();
+    }
+
+    private void subscribe() {
+        // off the writing thread: a RESET rebuilds, and every change takes the lock searches read under
+        events = beerEventPublisher.events(null)
+                .publishOn(Schedulers.boundedElastic())
+                .subscribe(this::apply, e -> {
+                    log.warn("Beer event stream failed, rebuilding the search index", e);
+                    subscribe();
+                    rebuild();
+                });
+    }
+
+    /**
+     * Beers whose name or style matches {@code query}, best first. Words match as prefixes and tolerate
+     * typos; {@code sfg.brewery.search.min-similarity} is the share of the query's grams a beer must have.
+     */
+    public Mono<BeerSearchPage> search(String query, int pageNumber, int pageSize) {
+        return Mono.fromCallable(() -> {
+            NGramIndex.Matches<BeerSearchHit> matches =
+                    index.read(current -> current.search(query, minSimilarity, pageNumber * pageSize, pageSize));
+
+            return BeerSearchPage.builder()
+                    .content(matches.getMatches().stream()
+                            .map(match -> BeerSearchHit.builder()
+                                    .id(match.getValue().getId())
+                                    .beerName(match.getValue().getBeerName())
+                                    .beerStyle(match.getValue().getBeerStyle())
+                                    .upc(match.getValue().getUpc())
+                                    .score(match.getSimilarity())
+                                    .build())
+                            .collect(Collectors.toList()))
+                    .pageNumber(pageNumber)
+                    .pageSize(pageSize)
+                    .totalElements(matches.getTotal())
+                    .build();
+        });
+    }
+
+    /**
+     * Completes once the index has been built from the beer table.
+     */
+    public Mono<Void> built() {
+        return built.asMono();
+    }
+
+    /**
+     * Reads the beer table into a new index, in batches so searches and events interleave, and swaps it in.
+     */
+    void rebuild() {
+        long started = System.nanoTime();
+        index.rebuild(next -> {
+            log.debug("Search index built: {} beers in {} ms", next.size(), (System.nanoTime() - started) / 1_000_000);
+            ready = true;
+            built.tryEmitEmpty();
+        });
+    }
+
+    private void apply(BeerEvent event) {
+        if (event.getType() == BeerEvent.Type.RESET) {
+            rebuild();
+            return;
+        }
+        if (event.getBeerId() == null) {
+            return;
+        }
+
+        index.change(event.getBeerId(), target -> apply(target, event));
+    }
+
+    private static void apply(NGramIndex<BeerSearchHit> target, BeerEvent event) {
+        if (event.getType() == BeerEvent.Type.DELETED) {
+            target.remove(event.getBeerId());
+        } else if (event.getBeer() != null) {
+            BeerDto beer = event.getBeer();
+            put(target, hit(beer.getId(), beer.getBeerName(), beer.getBeerStyle(), beer.getUpc()));
+        }
+    }
+
+    private static void put(NGramIndex<BeerSearchHit> target, BeerSearchHit hit) {
+        target.put(hit.getId(), hit.getBeerName() + " " + hit.getBeerStyle(), hit);
+    }
+
+    private static BeerSearchHit hit(Integer id, String beerName, String beerStyle, String upc) {
+        return BeerSearchHit.builder()
+                .id(id)
+                .beerName(beerName)
+                .beerStyle(beerStyle)
+                .upc(upc)
+                .build();
+    }
+
+    @Override
+    public Mono<Health> health() {
+        return Mono.just(ready ? Health.up().build() : Health.down().withDetail("beerSearchIndex", "building").build());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("beer.search.beers", index, mirror -> mirror.read(NGramIndex::size))
+                .description("Beers in the search index")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        events.dispose();
+        loaded.dispose();
+        index.dispose();
+    }
+}
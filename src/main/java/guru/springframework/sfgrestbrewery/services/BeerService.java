@@ -1,11 +1,18 @@
 package guru.springframework.sfgrestbrewery.services;
 
+import guru.springframework.sfgrestbrewery.domain.Beer;
 import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerFields;
+import guru.springframework.sfgrestbrewery.web.model.BeerImportResult;
+import guru.springframework.sfgrestbrewery.web.model.BeerLookupResult;
+import guru.springframework.sfgrestbrewery.web.model.BeerPageCursor;
 import guru.springframework.sfgrestbrewery.web.model.BeerPagedList;
 import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
 import org.springframework.data.domain.PageRequest;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -14,17 +21,85 @@ import java.util.UUID;
 public interface BeerService {
     Mono<BeerPagedList> listBeers(String beerName, BeerStyleEnum beerStyle, PageRequest pageRequest, Boolean showInventoryOnHand);
 
+    /**
+     * As above, selecting only the columns behind {@code fields}; the other properties come back null.
+     */
+    Mono<BeerPagedList> listBeers(String beerName, BeerStyleEnum beerStyle, PageRequest pageRequest, Boolean showInventoryOnHand,
+                                  BeerFields fields);
+
+    /**
+     * As above, but the page and its total always come from the database, never from the beer cache: for callers
+     * that cache pages themselves and would otherwise refill them from a cache not yet invalidated.
+     */
+    Mono<BeerPagedList> findBeers(String beerName, BeerStyleEnum beerStyle, PageRequest pageRequest, Boolean showInventoryOnHand,
+                                  BeerFields fields);
+
+    /**
+     * Keyset (seek) paged listing: the page starts after the cursor position rather than at an offset, so
+     * deep pages cost the same as the first one. The total is only counted when includeTotal is set, and is
+     * {@link BeerPagedList#UNKNOWN_TOTAL} otherwise.
+     */
+    Mono<BeerPagedList> listBeers(String beerName, BeerStyleEnum beerStyle, BeerPageCursor cursor, int pageSize,
+                                  Boolean showInventoryOnHand, Boolean includeTotal);
+
+    Mono<BeerPagedList> listBeers(String beerName, BeerStyleEnum beerStyle, BeerPageCursor cursor, int pageSize,
+                                  Boolean showInventoryOnHand, Boolean includeTotal, BeerFields fields);
+
+    /**
+     * Emits every matching beer as it is read, with demand propagated to the R2DBC result, so the whole
+     * catalog can be consumed without buffering it.
+     */
+    Flux<BeerDto> streamBeers(String beerName, BeerStyleEnum beerStyle, Boolean showInventoryOnHand);
+
+    Flux<BeerDto> streamBeers(String beerName, BeerStyleEnum beerStyle, Boolean showInventoryOnHand, BeerFields fields);
+
+    /**
+     * As {@link #streamBeers}, but the rows themselves, for writers that serialize them without a BeerDto
+     * ({@link guru.springframework.sfgrestbrewery.web.mappers.BeerJsonWriter}).
+     */
+    Flux<Beer> streamBeerRows(String beerName, BeerStyleEnum beerStyle);
+
+    Flux<Beer> streamBeerRows(String beerName, BeerStyleEnum beerStyle, BeerFields fields);
+
     Mono<BeerDto> getById(Integer beerId, Boolean showInventoryOnHand);
 
+    /**
+     * Resolves many beers with one IN query per key type, answering from the beer cache where possible; the cache
+     * holds no stock, so lookups with inventory always query. Emits one result per requested id, then one per
+     * requested UPC, in request order, misses included.
+     */
+    Flux<BeerLookupResult> lookupBeers(List<Integer> beerIds, List<String> upcs, Boolean showInventoryOnHand);
+
+    /**
+     * Writes (save, update, delete) are admitted through the {@link BeerWriteLimiter} and fail with
+     * {@link WritesSaturatedException} when too many are already in flight.
+     */
     Mono<BeerDto> saveNewBeer(BeerDto beerDto);
 
     Mono<BeerDto> saveNewBeer(Mono<BeerDto> beerDto);
 
-    Mono<BeerDto> updateBeer(Integer beerId, BeerDto beerDto);
+    /**
+     * Validates and inserts beers in multi-row batches, one batch at a time, so arbitrarily large inputs run
+     * in constant memory. Emits one result per input beer, in input order.
+     */
+    Flux<BeerImportResult> importBeers(Flux<BeerDto> beerDtos);
 
-    Mono<BeerDto> getByUpc(String upc);
+    /**
+     * @param expectedVersion the version the client last saw (If-Match), or {@code null} for an unconditional update
+     * @return the updated beer, or a {@link guru.springframework.sfgrestbrewery.web.controller.NotFoundException}
+     * error if there is no beer with that id, or a
+     * {@link guru.springframework.sfgrestbrewery.web.controller.PreconditionFailedException} if it has moved
+     * past the expected version. An unconditional update that races another write fails with
+     * {@link org.springframework.dao.OptimisticLockingFailureException}.
+     */
+    Mono<BeerDto> updateBeer(Integer beerId, BeerDto beerDto, Long expectedVersion);
 
-    void deleteBeerById(Integer beerId);
+    Mono<BeerDto> getByUpc(String upc);
 
-    Mono<Void> reactiveDeleteBeerById(Integer beerId);
+    /**
+     * Completes once the beer is deleted, or errors with a
+     * {@link guru.springframework.sfgrestbrewery.web.controller.NotFoundException} if there is none. Versions
+     * are checked as for {@link #updateBeer}.
+     */
+    Mono<Void> deleteBeerById(Integer beerId, Long expectedVersion);
 }
@@ -1,29 +1,50 @@
 package guru.springframework.sfgrestbrewery.services;
 
 import guru.springframework.sfgrestbrewery.domain.Beer;
+import guru.springframework.sfgrestbrewery.repositories.BeerBatchRepository;
 import guru.springframework.sfgrestbrewery.repositories.BeerRepository;
 import guru.springframework.sfgrestbrewery.web.controller.NotFoundException;
+import guru.springframework.sfgrestbrewery.web.controller.PreconditionFailedException;
 import guru.springframework.sfgrestbrewery.web.mappers.BeerMapper;
 import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerFields;
+import guru.springframework.sfgrestbrewery.web.model.BeerImportResult;
+import guru.springframework.sfgrestbrewery.web.model.BeerLookupResult;
+import guru.springframework.sfgrestbrewery.web.model.BeerPageCursor;
 import guru.springframework.sfgrestbrewery.web.model.BeerPagedList;
 import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
 import org.springframework.data.relational.core.query.Query;
+import org.springframework.data.relational.core.query.Update;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import org.springframework.util.StringUtils;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 import static org.springframework.data.relational.core.query.Criteria.where;
-import static org.springframework.data.relational.core.query.Query.empty;
 import static org.springframework.data.relational.core.query.Query.query;
 
 /**
@@ -36,95 +57,380 @@ public class BeerServiceImpl implements BeerService {
     private final BeerRepository beerRepository;
     private final BeerMapper beerMapper;
     private final R2dbcEntityTemplate template;
+    private final BeerCache beerCache;
+    private final BeerBatchRepository beerBatchRepository;
+    private final Validator validator;
+    private final BeerWriteLimiter writeLimiter;
+    private final BeerEventPublisher beerEventPublisher;
+    private final TransactionalOperator transactionalOperator;
+
+    @Value("${sfg.brewery.import.batch-size:500}")
+    private int importBatchSize;
 
-    @Cacheable(cacheNames = "beerListCache", condition = "#showInventoryOnHand == false ")
     @Override
     public Mono<BeerPagedList> listBeers(String beerName, BeerStyleEnum beerStyle, PageRequest pageRequest, Boolean showInventoryOnHand) {
+        if (showInventoryOnHand) {
+            return findBeers(beerName, beerStyle, pageRequest, true);
+        }
+
+        return beerCache.listBeers(beerName, beerStyle, pageRequest, () -> findBeers(beerName, beerStyle, pageRequest, false));
+    }
+
+    @Override
+    public Mono<BeerPagedList> listBeers(String beerName, BeerStyleEnum beerStyle, PageRequest pageRequest, Boolean showInventoryOnHand,
+                                         BeerFields fields) {
+        if (fields.isAll()) {
+            return listBeers(beerName, beerStyle, pageRequest, showInventoryOnHand);
+        }
+
+        return findBeers(beerName, beerStyle, pageRequest, showInventoryOnHand, fields, countBeers(beerName, beerStyle));
+    }
+
+    @Override
+    public Mono<BeerPagedList> findBeers(String beerName, BeerStyleEnum beerStyle, PageRequest pageRequest, Boolean showInventoryOnHand,
+                                         BeerFields fields) {
+        return findBeers(beerName, beerStyle, pageRequest, showInventoryOnHand, fields,
+                template.count(query(filterCriteria(beerName, beerStyle)), Beer.class));
+    }
+
+    private Mono<BeerPagedList> findBeers(String beerName, BeerStyleEnum beerStyle, PageRequest pageRequest, Boolean showInventoryOnHand) {
+        return findBeers(beerName, beerStyle, pageRequest, showInventoryOnHand, BeerFields.ALL, countBeers(beerName, beerStyle));
+    }
+
+    private Mono<BeerPagedList> findBeers(String beerName, BeerStyleEnum beerStyle, PageRequest pageRequest, Boolean showInventoryOnHand,
+                                          BeerFields fields, Mono<Long> total) {
+        Mono<List<BeerDto>> beers = template.select(Beer.class)
+                .matching(select(query(filterCriteria(beerName, beerStyle)), fields, showInventoryOnHand).with(pageRequest))
+                .all()
+                .map(beer -> showInventoryOnHand ? beerMapper.beerToBeerDtoWithInventory(beer) : beerMapper.beerToBeerDto(beer))
+                .collect(Collectors.toList());
+
+        return Mono.zip(beers, total)
+                .map(tuple -> new BeerPagedList(tuple.getT1(), PageRequest.of(pageRequest.getPageNumber(), pageRequest.getPageSize()), tuple.getT2()));
+    }
+
+    @Override
+    public Mono<BeerPagedList> listBeers(String beerName, BeerStyleEnum beerStyle, BeerPageCursor cursor, int pageSize,
+                                         Boolean showInventoryOnHand, Boolean includeTotal) {
+        return listBeers(beerName, beerStyle, cursor, pageSize, showInventoryOnHand, includeTotal, BeerFields.ALL);
+    }
+
+    @Override
+    public Mono<BeerPagedList> listBeers(String beerName, BeerStyleEnum beerStyle, BeerPageCursor cursor, int pageSize,
+                                         Boolean showInventoryOnHand, Boolean includeTotal, BeerFields fields) {
+        Criteria criteria = filterCriteria(beerName, beerStyle);
+
+        if (!cursor.isFirst()) {
+            criteria = criteria.isEmpty() ? seekCriteria(cursor) : criteria.and(seekCriteria(cursor));
+        }
 
-        Query query = null;
+        Sort sort = cursor.getSortOrder() == BeerPageCursor.SortOrder.BEER_NAME ? Sort.by("beerName", "id") : Sort.by("id");
+        // the next cursor is made from the last beer's sort key
+        BeerFields.Field[] sortKey = cursor.getSortOrder() == BeerPageCursor.SortOrder.BEER_NAME
+                ? new BeerFields.Field[]{BeerFields.Field.ID, BeerFields.Field.BEER_NAME} : new BeerFields.Field[]{BeerFields.Field.ID};
+
+        // one extra row tells us whether there is a next page without a second query
+        Mono<List<BeerDto>> beers = template.select(Beer.class)
+                .matching(select(query(criteria), fields, showInventoryOnHand, sortKey).sort(sort).limit(pageSize + 1))
+                .all()
+                .map(beer -> showInventoryOnHand ? beerMapper.beerToBeerDtoWithInventory(beer) : beerMapper.beerToBeerDto(beer))
+                .collect(Collectors.toList());
+
+        Mono<Long> total = includeTotal ? countBeers(beerName, beerStyle) : Mono.just(BeerPagedList.UNKNOWN_TOTAL);
+
+        return Mono.zip(beers, total).map(tuple -> {
+            List<BeerDto> page = tuple.getT1();
+            String nextCursor = null;
+
+            if (page.size() > pageSize) {
+                page = new ArrayList<>(page.subList(0, pageSize));
+                nextCursor = cursor.after(page.get(pageSize - 1)).encode();
+            }
+
+            return new BeerPagedList(page, PageRequest.of(0, pageSize), tuple.getT2(), nextCursor);
+        });
+    }
+
+    @Override
+    public Flux<BeerDto> streamBeers(String beerName, BeerStyleEnum beerStyle, Boolean showInventoryOnHand) {
+        return streamBeers(beerName, beerStyle, showInventoryOnHand, BeerFields.ALL);
+    }
+
+    @Override
+    public Flux<BeerDto> streamBeers(String beerName, BeerStyleEnum beerStyle, Boolean showInventoryOnHand, BeerFields fields) {
+        return streamBeerRows(beerName, beerStyle, fields)
+                .map(beer -> showInventoryOnHand ? beerMapper.beerToBeerDtoWithInventory(beer) : beerMapper.beerToBeerDto(beer));
+    }
+
+    @Override
+    public Flux<Beer> streamBeerRows(String beerName, BeerStyleEnum beerStyle) {
+        return streamBeerRows(beerName, beerStyle, BeerFields.ALL);
+    }
+
+    @Override
+    public Flux<Beer> streamBeerRows(String beerName, BeerStyleEnum beerStyle, BeerFields fields) {
+        // the inventory column is selected when asked for; writers drop it unless inventory is shown
+        return template.select(Beer.class)
+                .matching(select(query(filterCriteria(beerName, beerStyle)), fields, true).sort(Sort.by("id")))
+                .all();
+    }
+
+    /**
+     * Narrows the select list to the columns behind {@code fields} and the {@code required} ones; all columns
+     * for every field.
+     */
+    private static Query select(Query query, BeerFields fields, boolean showInventoryOnHand, BeerFields.Field... required) {
+        if (fields.isAll()) {
+            return query;
+        }
+
+        BeerFields selected = showInventoryOnHand ? fields : fields.without(BeerFields.Field.QUANTITY_ON_HAND);
+        return query.columns(selected.columns(required).toArray(new String[0]));
+    }
+
+    private Mono<Long> countBeers(String beerName, BeerStyleEnum beerStyle) {
+        return beerCache.countBeers(beerName, beerStyle,
+                () -> template.count(query(filterCriteria(beerName, beerStyle)), Beer.class));
+    }
+
+    private Criteria filterCriteria(String beerName, BeerStyleEnum beerStyle) {
         if (!StringUtils.isEmpty(beerName) && !StringUtils.isEmpty(beerStyle)) {
             //search both
-            query = query(where("beerName").is(beerName).and("beerStyle").is(beerStyle));
+            return where("beerName").is(beerName).and("beerStyle").is(beerStyle);
         } else if (!StringUtils.isEmpty(beerName) && StringUtils.isEmpty(beerStyle)) {
             //search beer_service name
-            query = query(where("beerName").is(beerName));
+            return where("beerName").is(beerName);
         } else if (StringUtils.isEmpty(beerName) && !StringUtils.isEmpty(beerStyle)) {
             //search beer_service style
-            query = query(where("beerStyle").is(beerStyle));
+            return where("beerStyle").is(beerStyle);
         } else {
-            query = empty();
+            return Criteria.empty();
         }
+    }
 
+    private Criteria seekCriteria(BeerPageCursor cursor) {
+        if (cursor.getSortOrder() == BeerPageCursor.SortOrder.BEER_NAME) {
+            return where("beerName").greaterThan(cursor.getLastBeerName())
+                    .or(where("beerName").is(cursor.getLastBeerName()).and("id").greaterThan(cursor.getLastId()));
+        }
 
-        return template.select(Beer.class)
-                .matching(query.with(pageRequest))
-                .all()
-                .map(beer -> showInventoryOnHand ? beerMapper.beerToBeerDtoWithInventory(beer) : beerMapper.beerToBeerDto(beer))
-                .collect(Collectors.toList())
-                .map(beers -> new BeerPagedList(beers, PageRequest.of(pageRequest.getPageNumber(), pageRequest.getPageSize()), beers.size()));
-
-
+        return where("id").greaterThan(cursor.getLastId());
     }
 
-    @Cacheable(cacheNames = "beerCache", key = "#beerId", condition = "#showInventoryOnHand == false ")
     @Override
     public Mono<BeerDto> getById(Integer beerId, Boolean showInventoryOnHand) {
         if (showInventoryOnHand) {
             return beerRepository.findById(beerId).map(beerMapper::beerToBeerDtoWithInventory);
         } else {
-            return beerRepository.findById(beerId).map(beerMapper::beerToBeerDto);
+            return beerCache.getById(beerId, () -> beerRepository.findById(beerId).map(beerMapper::beerToBeerDto));
         }
     }
 
+    @Override
+    public Flux<BeerLookupResult> lookupBeers(List<Integer> beerIds, List<String> upcs, Boolean showInventoryOnHand) {
+        List<Integer> ids = beerIds == null ? List.of() : beerIds;
+        List<String> upcList = upcs == null ? List.of() : upcs;
+
+        Mono<Map<Integer, BeerDto>> byId = ids.isEmpty() ? Mono.just(Map.of())
+                : showInventoryOnHand ? findAllById(new HashSet<>(ids), true)
+                : beerCache.getAllById(ids, missing -> findAllById(missing, false));
+
+        Mono<Map<String, BeerDto>> byUpc = upcList.isEmpty() ? Mono.just(Map.of())
+                : showInventoryOnHand ? findAllByUpc(new HashSet<>(upcList), true)
+                : beerCache.getAllByUpc(upcList, missing -> findAllByUpc(missing, false));
+
+        return Mono.zip(byId, byUpc).flatMapMany(found -> Flux.concat(
+                Flux.fromIterable(ids).map(id -> BeerLookupResult.builder().id(id)
+                        .found(found.getT1().containsKey(id)).beer(found.getT1().get(id)).build()),
+                Flux.fromIterable(upcList).map(upc -> BeerLookupResult.builder().upc(upc)
+                        .found(found.getT2().containsKey(upc)).beer(found.getT2().get(upc)).build())));
+    }
+
+    private Mono<Map<Integer, BeerDto>> findAllById(Set<Integer> beerIds, Boolean showInventoryOnHand) {
+        return template.select(Beer.class)
+                .matching(query(where("id").in(beerIds)))
+                .all()
+                .map(beer -> showInventoryOnHand ? beerMapper.beerToBeerDtoWithInventory(beer) : beerMapper.beerToBeerDto(beer))
+                .collectMap(BeerDto::getId);
+    }
+
+    private Mono<Map<String, BeerDto>> findAllByUpc(Set<String> upcs, Boolean showInventoryOnHand) {
+        return template.select(Beer.class)
+                .matching(query(where("upc").in(upcs)))
+                .all()
+                .map(beer -> showInventoryOnHand ? beerMapper.beerToBeerDtoWithInventory(beer) : beerMapper.beerToBeerDto(beer))
+                .collectMap(BeerDto::getUpc);
+    }
+
     @Override
     public Mono<BeerDto> saveNewBeer(BeerDto beerDto) {
-        Beer beer = beerMapper.beerDtoToBeer(beerDto);
-        beer.setCreatedDate(LocalDateTime.now());
-        return beerRepository.save(beer).map(beerMapper::beerToBeerDto);
+        return writeLimiter.limit(Mono.defer(() -> {
+                    Beer beer = beerMapper.beerDtoToBeer(beerDto);
+                    beer.setCreatedDate(LocalDateTime.now());
+                    return beerRepository.save(beer);
+                }))
+                .map(beerMapper::beerToBeerDto)
+                .doOnNext(beerEventPublisher::created);
     }
 
     @Override
     public Mono<BeerDto> saveNewBeer(Mono<BeerDto> beerDto) {
         return beerDto.map(beerMapper::beerDtoToBeer)
-                .flatMap(beerRepository::save)
-                .map(beerMapper::beerToBeerDto);
-    }
-
-    @Override
-    public Mono<BeerDto> updateBeer(Integer beerId, BeerDto beerDto) {
-        return beerRepository.findById(beerId).defaultIfEmpty(Beer.builder().build()).map(beer -> {
-            beer.setBeerName(beerDto.getBeerName());
-            beer.setBeerStyle(BeerStyleEnum.valueOf(beerDto.getBeerStyle()));
-            beer.setPrice(beerDto.getPrice());
-            beer.setUpc(beerDto.getUpc());
-            beer.setLastModifiedDate(LocalDateTime.now());
-            return beer;
-        }).flatMap(beer -> {
-            if (beer.getId() != null){
-                beerRepository.save(beer);
+                .flatMap(beer -> writeLimiter.limit(beerRepository.save(beer)))
+                .map(beerMapper::beerToBeerDto)
+                .doOnNext(beerEventPublisher::created);
+    }
+
+    @Override
+    public Flux<BeerImportResult> importBeers(Flux<BeerDto> beerDtos) {
+        return beerDtos.index()
+                .buffer(importBatchSize)
+                .concatMap(this::importBatch);
+    }
+
+    private Flux<BeerImportResult> importBatch(List<Tuple2<Long, BeerDto>> batch) {
+        BeerImportResult[] results = new BeerImportResult[batch.size()];
+        List<Integer> positions = new ArrayList<>(batch.size());
+        List<Beer> beers = new ArrayList<>(batch.size());
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < batch.size(); i++) {
+            long index = batch.get(i).getT1();
+            BeerDto beerDto = batch.get(i).getT2();
+            List<String> errors = validate(beerDto);
+
+            if (errors.isEmpty()) {
+                Beer beer = beerMapper.beerDtoToBeer(beerDto);
+                beer.setCreatedDate(now);
+                beer.setLastModifiedDate(now);
+                beers.add(beer);
+                positions.add(i);
+            } else {
+                results[i] = BeerImportResult.builder().index(index).status(BeerImportResult.Status.INVALID)
+                        .upc(beerDto.getUpc()).errors(errors).build();
             }
-            return Mono.just(beer);
+        }
+
+        // one transaction, so a failed batch leaves no rows behind and can be retried a beer at a time
+        return beerBatchRepository.insertAll(beers)
+                .as(transactionalOperator::transactional)
+                .collectList()
+                .doOnNext(ids -> created(batch, positions, beers, ids, results))
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("Beer import batch of {} failed, importing it a beer at a time: {}", beers.size(), e.getMessage());
+                    return Flux.range(0, beers.size())
+                            .concatMap(j -> beerBatchRepository.insertAll(beers.subList(j, j + 1))
+                                    .collectList()
+                                    .doOnNext(ids -> created(batch, positions.subList(j, j + 1), beers.subList(j, j + 1), ids, results))
+                                    .onErrorResume(rowError -> {
+                                        results[positions.get(j)] = importResult(batch.get(positions.get(j)), BeerImportResult.Status.FAILED)
+                                                .errors(List.of(String.valueOf(rowError.getMessage()))).build();
+                                        return Mono.empty();
+                                    }))
+                            .then();
                 })
-                .map(beerMapper::beerToBeerDto);
+                .thenMany(Flux.defer(() -> Flux.fromIterable(Arrays.asList(results))));
+    }
+
+    private void created(List<Tuple2<Long, BeerDto>> batch, List<Integer> positions, List<Beer> beers, List<Integer> ids,
+                         BeerImportResult[] results) {
+        for (int j = 0; j < positions.size(); j++) {
+            results[positions.get(j)] = importResult(batch.get(positions.get(j)), BeerImportResult.Status.CREATED)
+                    .id(ids.get(j)).build();
+
+            Beer beer = beers.get(j);
+            beer.setId(ids.get(j));
+            beer.setVersion(0L);
+            beerEventPublisher.created(beerMapper.beerToBeerDto(beer));
+        }
+    }
+
+    private BeerImportResult.BeerImportResultBuilder importResult(Tuple2<Long, BeerDto> item, BeerImportResult.Status status) {
+        return BeerImportResult.builder().index(item.getT1()).status(status).upc(item.getT2().getUpc());
+    }
+
+    private List<String> validate(BeerDto beerDto) {
+        Errors errors = new BeanPropertyBindingResult(beerDto, "beerDto");
+        validator.validate(beerDto, errors);
 
+        List<String> messages = errors.getFieldErrors().stream()
+                .map(fieldError -> fieldError.getField() + " : " + fieldError.getDefaultMessage())
+                .collect(Collectors.toCollection(ArrayList::new));
 
+        if (beerDto.getBeerStyle() != null && !beerDto.getBeerStyle().isBlank()
+                && Arrays.stream(BeerStyleEnum.values()).noneMatch(style -> style.name().equals(beerDto.getBeerStyle()))) {
+            messages.add("beerStyle : unknown beer style");
+        }
+
+        return messages;
     }
 
-    @Cacheable(cacheNames = "beerUpcCache")
     @Override
-    public Mono<BeerDto> getByUpc(String upc) {
-        return beerRepository.findByUpc(upc)
-                .map(beerMapper::beerToBeerDto);
+    public Mono<BeerDto> updateBeer(Integer beerId, BeerDto beerDto, Long expectedVersion) {
+        return writeLimiter.limit(findForWrite(beerId, expectedVersion)
+                .flatMap(beer -> {
+                    String previousUpc = beer.getUpc();
+                    beer.setBeerName(beerDto.getBeerName());
+                    beer.setBeerStyle(BeerStyleEnum.valueOf(beerDto.getBeerStyle()));
+                    beer.setPrice(beerDto.getPrice());
+                    beer.setUpc(beerDto.getUpc());
+                    beer.setLastModifiedDate(LocalDateTime.now());
+
+                    // only the catalog columns, as writing back the quantity just read would undo a flush landing in
+                    // between; only the version just read matches, so a concurrent write fails; the event goes out
+                    // once the row is written, so a read cannot re-cache the old state
+                    return template.update(Beer.class)
+                            .matching(query(where("id").is(beer.getId()).and("version").is(beer.getVersion())))
+                            .apply(Update.update("beerName", beer.getBeerName())
+                                    .set("beerStyle", beer.getBeerStyle().name())
+                                    .set("price", beer.getPrice())
+                                    .set("upc", beer.getUpc())
+                                    .set("lastModifiedDate", beer.getLastModifiedDate())
+                                    .set("version", beer.getVersion() + 1))
+                            .flatMap(updated -> {
+                                if (updated == 0) {
+                                    return Mono.error(staleVersion(expectedVersion,
+                                            new OptimisticLockingFailureException("Beer " + beerId + " was modified concurrently")));
+                                }
+                                beer.setVersion(beer.getVersion() + 1);
+                                return Mono.just(beerMapper.beerToBeerDto(beer));
+                            })
+                            .doOnNext(savedBeer -> beerEventPublisher.updated(savedBeer, previousUpc));
+                }));
     }
 
     @Override
-    public void deleteBeerById(Integer beerId) {
-        beerRepository.deleteById(beerId).subscribe();
+    public Mono<BeerDto> getByUpc(String upc) {
+        return beerCache.getByUpc(upc, () -> beerRepository.findByUpc(upc)
+                .map(beerMapper::beerToBeerDto));
     }
 
     @Override
-    public Mono<Void> reactiveDeleteBeerById(Integer beerId) {
-        return beerRepository.findById(beerId).switchIfEmpty(Mono.error(NotFoundException::new))
-                .map(Beer::getId).flatMap(beerRepository::deleteById);
+    public Mono<Void> deleteBeerById(Integer beerId, Long expectedVersion) {
+        return writeLimiter.limit(findForWrite(beerId, expectedVersion)
+                .flatMap(beer -> template.delete(Beer.class)
+                        .matching(query(where("id").is(beer.getId()).and("version").is(beer.getVersion())))
+                        .all()
+                        .flatMap(deleted -> deleted == 0
+                                ? Mono.<Void>error(staleVersion(expectedVersion,
+                                        new OptimisticLockingFailureException("Beer " + beerId + " was modified concurrently")))
+                                : Mono.<Void>empty())
+                        .doOnSuccess(unused -> beerEventPublisher.deleted(beer.getId(), beer.getUpc()))));
+    }
+
+    private Mono<Beer> findForWrite(Integer beerId, Long expectedVersion) {
+        return beerRepository.findById(beerId)
+                .switchIfEmpty(Mono.error(NotFoundException::new))
+                .filter(beer -> expectedVersion == null || expectedVersion.equals(beer.getVersion()))
+                .switchIfEmpty(Mono.error(PreconditionFailedException::new));
+    }
+
+    /**
+     * A write lost a race with another one: the client's If-Match no longer holds, or, for an unconditional
+     * write, an optimistic locking conflict.
+     */
+    private static RuntimeException staleVersion(Long expectedVersion, OptimisticLockingFailureException e) {
+        return expectedVersion == null ? e : new PreconditionFailedException();
     }
 }
@@ -0,0 +1,350 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import guru.springframework.sfgrestbrewery.domain.Beer;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The binary beer catalog snapshot: a header (magic, format version, row count), one length-prefixed record
+ * per beer, and a CRC32 of the records followed by the header, so a damaged row count fails it too. Nullable
+ * columns are flagged in a bitmask and take no space when null; numbers are big-endian, strings UTF-8 with an
+ * unsigned 16 bit length, timestamps UTC epoch seconds and nanos.
+ *
+ * {@link Writer} streams records through a direct buffer into a temporary file and moves it into place once
+ * complete, so a failed export never leaves a truncated snapshot behind. {@link Reader} memory-maps the file,
+ * a region at a time, and checks the CRC before handing out a single beer.
+ */
+public final class BeerSnapshotFile {
+
+    static final int MAGIC = 0x53464742; // "SFGB"
+    // 2: the checksum covers the header
+    static final short FORMAT_VERSION = 2;
+    static final int HEADER_SIZE = 16;
+    static final int TRAILER_SIZE = 4;
+
+    private static final int BEER_NAME = 1;
+    private static final int BEER_STYLE = 1 << 1;
+    private static final int UPC = 1 << 2;
+    private static final int QUANTITY_ON_HAND = 1 << 3;
+    private static final int PRICE = 1 << 4;
+    private static final int CREATED_DATE = 1 << 5;
+    private static final int LAST_MODIFIED_DATE = 1 << 6;
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final int REGION_SIZE = 1 << 28;
+
+    private BeerSnapshotFile() {
+    }
+
+    /**
+     * Thrown when a file is not a snapshot, is of an unknown format version, or fails its checksum.
+     */
+    public static class CorruptSnapshotException extends IOException {
+
+        CorruptSnapshotException(String message) {
+            super(message);
+        }
+    }
+
+    public static class Writer implements Closeable {
+
+        private final Path file;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final CRC32 crc = new CRC32();
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        private long count;
+        private boolean finished;
+
+        public Writer(Path file) throws IOException {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            this.file = file;
+            this.temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            this.channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+            // the count is filled in by finish()
+            writeFully(header(0), 0);
+        }
+
+        public void write(Beer beer) throws IOException {
+            byte[] beerName = bytes(beer.getBeerName());
+            byte[] beerStyle = beer.getBeerStyle() == null ? null : bytes(beer.getBeerStyle().name());
+            byte[] upc = bytes(beer.getUpc());
+            byte[] unscaledPrice = beer.getPrice() == null ? null : beer.getPrice().unscaledValue().toByteArray();
+
+            int nulls = flag(beerName, BEER_NAME) | flag(beerStyle, BEER_STYLE) | flag(upc, UPC)
+                    | flag(beer.getQuantityOnHand(), QUANTITY_ON_HAND) | flag(unscaledPrice, PRICE)
+                    | flag(beer.getCreatedDate(), CREATED_DATE) | flag(beer.getLastModifiedDate(), LAST_MODIFIED_DATE);
+            // id, version and the null flags, then whatever is not null
+            int length = 4 + 8 + 1 + size(beerName) + size(beerStyle) + size(upc)
+                    + (beer.getQuantityOnHand() == null ? 0 : 4)
+                    + (unscaledPrice == null ? 0 : 4 + size(unscaledPrice))
+                    + (beer.getCreatedDate() == null ? 0 : 12)
+                    + (beer.getLastModifiedDate() == null ? 0 : 12);
+
+            ensureRoom(4 + length);
+            buffer.putInt(length)
+                    .putInt(beer.getId())
+                    .putLong(beer.getVersion() == null ? 0 : beer.getVersion())
+                    .put((byte) nulls);
+            putString(beerName);
+            putString(beerStyle);
+            putString(upc);
+            if (beer.getQuantityOnHand() != null) {
+                buffer.putInt(beer.getQuantityOnHand());
+            }
+            if (unscaledPrice != null) {
+                buffer.putInt(beer.getPrice().scale());
+                putString(unscaledPrice);
+            }
+            putTimestamp(beer.getCreatedDate());
+            putTimestamp(beer.getLastModifiedDate());
+            count++;
+        }
+
+        /**
+         * Writes the checksum and row count and moves the snapshot into place, replacing any previous one.
+         *
+         * @return the size of the snapshot in bytes
+         */
+        public long finish() throws IOException {
+            flush();
+            ByteBuffer header = header(count);
+            crc.update(header.duplicate());
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE).putInt((int) crc.getValue());
+            long size = channel.position();
+            writeFully(trailer.flip(), size);
+            writeFully(header, 0);
+            channel.force(true);
+            channel.close();
+
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+            return size + TRAILER_SIZE;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                channel.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        private static ByteBuffer header(long count) {
+            return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putShort(FORMAT_VERSION).putShort((short) 0).putLong(count).flip();
+        }
+
+        private void ensureRoom(int size) throws IOException {
+            if (buffer.remaining() < size) {
+                flush();
+                if (buffer.capacity() < size) {
+                    buffer = ByteBuffer.allocateDirect(size);
+                }
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            writeFully(buffer, channel.position());
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer source, long position) throws IOException {
+            while (source.hasRemaining()) {
+                position += channel.write(source, position);
+            }
+            channel.position(Math.max(channel.position(), position));
+        }
+
+        private void putString(byte[] value) {
+            if (value != null) {
+                buffer.putShort((short) value.length).put(value);
+            }
+        }
+
+        private void putTimestamp(LocalDateTime value) {
+            if (value != null) {
+                buffer.putLong(value.toEpochSecond(ZoneOffset.UTC)).putInt(value.getNano());
+            }
+        }
+
+        private static int flag(Object value, int flag) {
+            return value == null ? flag : 0;
+        }
+
+        private static int size(byte[] value) {
+            return value == null ? 0 : 2 + value.length;
+        }
+
+        private static byte[] bytes(String value) {
+            if (value == null) {
+                return null;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IllegalArgumentException("Value too long for a snapshot: " + bytes.length + " bytes");
+            }
+            return bytes;
+        }
+    }
+
+    public static class Reader implements Closeable {
+
+        private final FileChannel channel;
+        private final int regionSize;
+        private final long count;
+        private final long recordsEnd;
+        private MappedByteBuffer region;
+        private long regionStart;
+        private long position = HEADER_SIZE;
+        private long read;
+
+        public Reader(Path file) throws IOException {
+            this(file, REGION_SIZE);
+        }
+
+        Reader(Path file, int regionSize) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.regionSize = regionSize;
+
+            try {
+                long size = channel.size();
+                if (size < HEADER_SIZE + TRAILER_SIZE) {
+                    throw new CorruptSnapshotException("Not a beer snapshot: " + file);
+                }
+                ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+                if (header.getInt() != MAGIC) {
+                    throw new CorruptSnapshotException("Not a beer snapshot: " + file);
+                }
+                short version = header.getShort();
+                if (version != FORMAT_VERSION) {
+                    throw new CorruptSnapshotException("Unsupported beer snapshot format version " + version + ": " + file);
+                }
+                header.getShort();
+                this.count = header.getLong();
+                this.recordsEnd = size - TRAILER_SIZE;
+                verify(file);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        public long count() {
+            return count;
+        }
+
+        /**
+         * @return up to {@code max} beers, none once all have been read
+         */
+        public List<Beer> next(int max) throws IOException {
+            List<Beer> beers = new ArrayList<>(Math.toIntExact(Math.min(max, count - read)));
+            while (beers.size() < max && read < count) {
+                beers.add(next());
+            }
+            return beers;
+        }
+
+        private Beer next() throws IOException {
+            map(4);
+            int length = region.getInt((int) (position - regionStart));
+            map(4 + length);
+            region.position((int) (position - regionStart) + 4);
+
+            Beer beer = new Beer();
+            beer.setId(region.getInt());
+            beer.setVersion(region.getLong());
+            int nulls = region.get();
+            beer.setBeerName(present(nulls, BEER_NAME) ? getString() : null);
+            beer.setBeerStyle(present(nulls, BEER_STYLE) ? BeerStyleEnum.valueOf(getString()) : null);
+            beer.setUpc(present(nulls, UPC) ? getString() : null);
+            beer.setQuantityOnHand(present(nulls, QUANTITY_ON_HAND) ? region.getInt() : null);
+            beer.setPrice(present(nulls, PRICE) ? getPrice() : null);
+            beer.setCreatedDate(present(nulls, CREATED_DATE) ? getTimestamp() : null);
+            beer.setLastModifiedDate(present(nulls, LAST_MODIFIED_DATE) ? getTimestamp() : null);
+
+            position += 4 + length;
+            read++;
+            return beer;
+        }
+
+        /**
+         * Maps the region starting at the current record if the next {@code size} bytes are not mapped yet.
+         */
+        private void map(int size) throws IOException {
+            if (position + size > recordsEnd) {
+                throw new CorruptSnapshotException("Beer snapshot ends within record " + (read + 1) + " of " + count);
+            }
+            if (region == null || position + size > regionStart + region.limit()) {
+                regionStart = position;
+                region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart,
+                        Math.min(Math.max(regionSize, size), recordsEnd - regionStart));
+            }
+        }
+
+        private void verify(Path file) throws IOException {
+            CRC32 crc = new CRC32();
+            for (long start = HEADER_SIZE; start < recordsEnd; start += regionSize) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(regionSize, recordsEnd - start)));
+            }
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE));
+            int expected = channel.map(FileChannel.MapMode.READ_ONLY, recordsEnd, TRAILER_SIZE).getInt();
+            if ((int) crc.getValue() != expected) {
+                throw new CorruptSnapshotException("Beer snapshot checksum mismatch: " + file);
+            }
+        }
+
+        private static boolean present(int nulls, int flag) {
+            return (nulls & flag) == 0;
+        }
+
+        private BigDecimal getPrice() {
+            int scale = region.getInt();
+            return new BigDecimal(new BigInteger(getBytes()), scale);
+        }
+
+        private String getString() {
+            return new String(getBytes(), StandardCharsets.UTF_8);
+        }
+
+        private byte[] getBytes() {
+            byte[] bytes = new byte[region.getShort() & 0xFFFF];
+            region.get(bytes);
+            return bytes;
+        }
+
+        private LocalDateTime getTimestamp() {
+            return LocalDateTime.ofEpochSecond(region.getLong(), region.getInt(), ZoneOffset.UTC);
+        }
+
+        @Override
+        public void close() throws IOException {
+            // the mappings are released once unreachable
+            channel.close();
+        }
+    }
+}
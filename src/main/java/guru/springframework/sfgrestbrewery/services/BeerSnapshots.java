@@ -0,0 +1,193 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import guru.springframework.sfgrestbrewery.domain.Beer;
+import guru.springframework.sfgrestbrewery.repositories.BeerBatchRepository;
+import guru.springframework.sfgrestbrewery.repositories.BeerRepository;
+import guru.springframework.sfgrestbrewery.web.mappers.BeerMapper;
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerSnapshotResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Exports the beer table to a {@link BeerSnapshotFile} and loads it back, so a new node starts from a copy of
+ * the catalog instead of seeding it or reloading it over HTTP.
+ *
+ * Rows are restored with their ids and versions, {@code sfg.brewery.snapshot.batch-size} to a batched
+ * statement with {@code sfg.brewery.snapshot.concurrency} statements in flight, and the first
+ * {@code sfg.brewery.snapshot.warm-cache-size} beers go into the beer cache. Only one export or import runs
+ * at a time.
+ */
+@Slf4j
+@Component
+public class BeerSnapshots {
+
+    private final BeerRepository beerRepository;
+    private final BeerBatchRepository beerBatchRepository;
+    private final BeerCache beerCache;
+    private final BeerMapper beerMapper;
+    private final BeerEventPublisher beerEventPublisher;
+    private final InventoryService inventoryService;
+    private final Path file;
+    private final int batchSize;
+    private final int concurrency;
+    private final int warmCacheSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public BeerSnapshots(BeerRepository beerRepository, BeerBatchRepository beerBatchRepository, BeerCache beerCache,
+                         BeerMapper beerMapper, BeerEventPublisher beerEventPublisher, InventoryService inventoryService,
+                         @Value("${sfg.brewery.snapshot.file:}") String file,
+                         @Value("${sfg.brewery.snapshot.batch-size:1000}") int batchSize,
+                         @Value("${sfg.brewery.snapshot.concurrency:4}") int concurrency,
+                         @Value("${sfg.brewery.snapshot.warm-cache-size:1000}") int warmCacheSize) {
+        this.beerRepository = beerRepository;
+        this.beerBatchRepository = beerBatchRepository;
+        this.beerCache = beerCache;
+        this.beerMapper = beerMapper;
+        this.beerEventPublisher = beerEventPublisher;
+        this.inventoryService = inventoryService;
+        this.file = file.isBlank() ? null : Path.of(file);
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.warmCacheSize = warmCacheSize;
+    }
+
+    /**
+     * The snapshot file set by {@code sfg.brewery.snapshot.file}, if any.
+     */
+    public Optional<Path> file() {
+        return Optional.ofNullable(file);
+    }
+
+    /**
+     * Writes every beer to {@code target}, replacing the previous snapshot once the new one is complete. Stock
+     * held in memory is flushed first, so the snapshot has it.
+     */
+    public Mono<BeerSnapshotResult> export(Path target) {
+        return exclusive(Mono.defer(() -> {
+            long start = System.nanoTime();
+
+            return inventoryService.flush().then(Mono.using(() -> new BeerSnapshotFile.Writer(target),
+                    writer -> beerRepository.findAll()
+                            // file writes block, and must not hold up the thread the rows are read on
+                            .publishOn(Schedulers.boundedElastic())
+                            .doOnNext(beer -> write(writer, beer))
+                            .then(Mono.fromCallable(writer::finish))
+                            .map(bytes -> result(target, writer.count(), bytes, start)),
+                    BeerSnapshots::close));
+        }).subscribeOn(Schedulers.boundedElastic()))
+                .doOnNext(result -> log.debug("Exported {} beers to {} in {} ms", result.getBeers(), result.getFile(),
+                        result.getElapsedMillis()));
+    }
+
+    /**
+     * Loads {@code source} into an empty beer table, as on startup.
+     */
+    public Mono<BeerSnapshotResult> restore(Path source) {
+        return exclusive(load(source, false));
+    }
+
+    /**
+     * Replaces the catalog with {@code source}: the beer table is emptied and reloaded, then a
+     * {@link guru.springframework.sfgrestbrewery.web.model.BeerEvent.Type#RESET} event has the caches, the
+     * search index, the statistics and the inventory reload. Reads in the meantime see a partial catalog,
+     * and writes made while it runs are lost, so it is meant for a node that is not serving traffic yet.
+     * The file is checked before anything is removed.
+     */
+    public Mono<BeerSnapshotResult> replace(Path source) {
+        return exclusive(load(source, true));
+    }
+
+    private Mono<BeerSnapshotResult> load(Path source, boolean replace) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            List<BeerDto> warm = new ArrayList<>();
+
+            // opening the reader verifies the checksum, before the table is touched
+            return Mono.using(() -> new BeerSnapshotFile.Reader(source),
+                    reader -> (replace ? inventoryService.flush().then(beerBatchRepository.truncate()) : Mono.<Void>empty())
+                            .thenMany(Flux.<List<Beer>>generate(sink -> {
+                                List<Beer> batch = next(reader);
+                                if (batch.isEmpty()) {
+                                    sink.complete();
+                                    return;
+                                }
+                                for (int i = 0; i < batch.size() && warm.size() < warmCacheSize; i++) {
+                                    warm.add(beerMapper.beerToBeerDto(batch.get(i)));
+                                }
+                                sink.next(batch);
+                            }))
+                            .flatMap(batch -> beerBatchRepository.restoreAll(batch)
+                                    .subscribeOn(Schedulers.boundedElastic()), concurrency)
+                            .reduce(0L, (total, rows) -> total + rows)
+                            .flatMap(restored -> beerBatchRepository.restartIds().thenReturn(restored))
+                            .map(restored -> {
+                                if (replace) {
+                                    // the cache invalidator clears the caches on the publishing thread
+                                    beerEventPublisher.reset();
+                                } else {
+                                    beerCache.evictAll();
+                                }
+                                warm.forEach(beerCache::put);
+                                return result(source, restored, source.toFile().length(), start);
+                            }),
+                    BeerSnapshots::close);
+        }).subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(result -> log.debug("Imported {} beers from {} in {} ms", result.getBeers(), result.getFile(),
+                        result.getElapsedMillis()));
+    }
+
+    private <T> Mono<T> exclusive(Mono<T> operation) {
+        return Mono.defer(() -> running.compareAndSet(false, true)
+                ? operation.doFinally(signal -> running.set(false))
+                : Mono.error(new SnapshotInProgressException()));
+    }
+
+    private List<Beer> next(BeerSnapshotFile.Reader reader) {
+        try {
+            return reader.next(batchSize);
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    private static void write(BeerSnapshotFile.Writer writer, Beer beer) {
+        try {
+            writer.write(beer);
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.warn("Closing a beer snapshot failed", e);
+        }
+    }
+
+    private static BeerSnapshotResult result(Path file, long beers, long bytes, long start) {
+        return BeerSnapshotResult.builder()
+                .file(file.toString())
+                .beers(beers)
+                .bytes(bytes)
+                .elapsedMillis(Duration.ofNanos(System.nanoTime() - start).toMillis())
+                .build();
+    }
+}
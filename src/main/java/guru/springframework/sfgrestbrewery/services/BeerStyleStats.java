@@ -0,0 +1,394 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import guru.springframework.sfgrestbrewery.bootstrap.BeerLoader;
+import guru.springframework.sfgrestbrewery.domain.Beer;
+import guru.springframework.sfgrestbrewery.repositories.BeerRepository;
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerEvent;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleStatistics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-style beer counts, inventory and prices, kept in memory so a query costs one entry per style rather than
+ * a scan of the beer table.
+ *
+ * The table is built from the beer table once the initial data is loaded, through a {@link BeerTableMirror} as
+ * {@link BeerSearchIndex} is, and kept current from the beer event stream and the inventory flushes. Events
+ * carry no stock, so the quantity on hand of a beer created, or updated before a build read its row, is read
+ * from the row shortly after. Flushes reaching the beer before that read are already in the row and left to
+ * it; a read that may or may not include a flush, because the flush was written but not yet published while it
+ * ran, is made again, as is a batch read by a build. {@link #sqlStatistics()} computes the same figures with
+ * {@code GROUP BY} to check against.
+ */
+@Slf4j
+@Component
+public class BeerStyleStats implements InitializingBean, DisposableBean, ReactiveHealthIndicator, MeterBinder {
+
+    static final String GROUP_BY_SQL = "SELECT beer_style, COUNT(*) AS beers, SUM(quantity_on_hand) AS inventory, "
+            + "COUNT(price) AS priced, SUM(price) AS price_sum, MIN(price) AS min_price, MAX(price) AS max_price "
+            + "FROM beer WHERE beer_style IS NOT NULL GROUP BY beer_style";
+
+    private static final int STOCK_READ_BATCH_SIZE = 1000;
+    private static final Duration STOCK_READ_DELAY = Duration.ofMillis(50);
+
+    private final BeerRepository beerRepository;
+    private final BeerEventPublisher beerEventPublisher;
+    private final BeerLoader beerLoader;
+    private final InventoryService inventoryService;
+    private final DatabaseClient databaseClient;
+
+    private final BeerTableMirror<Table> table;
+    private final Sinks.Empty<Void> built = Sinks.empty();
+    // ids of created beers whose stock is still to be read, emitted from the event thread
+    private final Sinks.Many<Integer> unreadStock = Sinks.many().unicast().onBackpressureBuffer();
+    private volatile boolean ready;
+
+    private Disposable events;
+    private Disposable flushes;
+    private Disposable stockReads;
+    private Disposable loaded;
+
+    public BeerStyleStats(BeerRepository beerRepository, BeerEventPublisher beerEventPublisher, BeerLoader beerLoader,
+                          InventoryService inventoryService, DatabaseClient databaseClient) {
+        this.beerRepository = beerRepository;
+        this.beerEventPublisher = beerEventPublisher;
+        this.beerLoader = beerLoader;
+        this.inventoryService = inventoryService;
+        this.databaseClient = databaseClient;
+        this.table = new BeerTableMirror<>("style statistics", beerRepository, Table::new, (target, beer) ->
+                target.put(beer.getId(), beer.getBeerStyle(), beer.getPrice(), quantity(beer)), inventoryService::flushCount);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        subscribe();
+        subscribeFlushes();
+        stockReads = unreadStock.asFlux()
+                .bufferTimeout(STOCK_READ_BATCH_SIZE, STOCK_READ_DELAY)
+                .concatMap(ids -> readStock(ids)
+                        .onErrorResume(e -> {
+                            log.warn("Reading the stock of {} new beers failed, rebuilding the style statistics", ids.size(), e);
+                            rebuild();
+                            return Mono.empty();
+                        }))
+                .subscribe();
+        loaded = beerLoader.loaded().then(Mono.fromRunnable(this::rebuild)).subscribe();
+    }
+
+    private void subscribe() {
+        // off the writing thread: a RESET rebuilds, and every change takes the lock queries read under
+        events = beerEventPublisher.events(null)
+                .publishOn(Schedulers.boundedElastic())
+                .subscribe(this::apply, e -> {
+                    log.warn("Beer event stream failed, rebuilding the style statistics", e);
+                    subscribe();
+                    rebuild();
+                });
+    }
+
+    private void subscribeFlushes() {
+        flushes = inventoryService.flushed()
+                .subscribe(this::addStock, e -> {
+                    log.warn("Inventory flush stream failed, rebuilding the style statistics", e);
+                    subscribeFlushes();
+                    rebuild();
+                });
+    }
+
+    /**
+     * The statistics of every style with at least one beer, in {@link BeerStyleEnum} order.
+     */
+    public Mono<List<BeerStyleStatistics>> statistics() {
+        return Mono.fromCallable(() -> table.read(Table::statistics));
+    }
+
+    /**
+     * The same statistics computed by the database with {@code GROUP BY}, reading the whole beer table.
+     */
+    public Mono<List<BeerStyleStatistics>> sqlStatistics() {
+        return databaseClient.sql(GROUP_BY_SQL)
+                .map((row, rowMetadata) -> {
+                    long priced = ((Number) row.get("priced")).longValue();
+                    Object inventory = row.get("inventory");
+                    return BeerStyleStatistics.builder()
+                            .beerStyle(row.get("beer_style", String.class))
+                            .count(((Number) row.get("beers")).longValue())
+                            .totalInventory(inventory == null ? 0 : ((Number) inventory).longValue())
+                            .minPrice(decimal(row.get("min_price")))
+                            .avgPrice(priced == 0 ? null : average(decimal(row.get("price_sum")), priced))
+                            .maxPrice(decimal(row.get("max_price")))
+                            .build();
+                })
+                .all()
+                .sort(Comparator.comparing((BeerStyleStatistics statistics) -> BeerStyleEnum.valueOf(statistics.getBeerStyle())))
+                .collectList();
+    }
+
+    /**
+     * Completes once the statistics have been built from the beer table.
+     */
+    public Mono<Void> built() {
+        return built.asMono();
+    }
+
+    /**
+     * Reads the beer table into a new table, in batches so queries and events interleave, and swaps it in.
+     */
+    void rebuild() {
+        table.rebuild(next -> {
+            log.debug("Style statistics built: {} beers", next.beers.size());
+            ready = true;
+            built.tryEmitEmpty();
+        });
+    }
+
+    private void apply(BeerEvent event) {
+        if (event.getType() == BeerEvent.Type.RESET) {
+            rebuild();
+            return;
+        }
+        if (event.getBeerId() == null) {
+            return;
+        }
+
+        AtomicBoolean unread = new AtomicBoolean();
+        table.change(event.getBeerId(), target -> {
+            if (apply(target, event)) {
+                unread.set(true);
+            }
+        });
+        if (unread.get()) {
+            unreadStock.tryEmitNext(event.getBeerId());
+        }
+    }
+
+    /**
+     * @return whether the event left the beer in the table with its stock still to be read
+     */
+    private static boolean apply(Table target, BeerEvent event) {
+        if (event.getType() == BeerEvent.Type.DELETED) {
+            target.remove(event.getBeerId());
+        } else if (event.getBeer() != null) {
+            BeerDto beer = event.getBeer();
+            BeerStyleEnum style = beer.getBeerStyle() == null ? null : BeerStyleEnum.valueOf(beer.getBeerStyle());
+            // an update may reach a table being built before its row does
+            if (event.getType() == BeerEvent.Type.CREATED || !target.update(beer.getId(), style, beer.getPrice())) {
+                target.put(beer.getId(), style, beer.getPrice(), null);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Mono<Void> readStock(List<Integer> ids) {
+        return Mono.defer(() -> {
+            long flushes = inventoryService.flushCount();
+            return beerRepository.findAllById(ids)
+                    .collectList()
+                    .flatMap(beers -> stockRead(beers, flushes)
+                            ? Mono.<Void>empty()
+                            : readStock(ids).delaySubscription(STOCK_READ_DELAY));
+        });
+    }
+
+    /**
+     * @return false, leaving the beers unread, if a flush may have been written during the read but not published
+     */
+    private boolean stockRead(List<Beer> beers, long flushes) {
+        // checked under the lock flushes are applied under, so none can be published before the stock is read
+        return table.updateIf(() -> flushes >= 0 && inventoryService.flushCount() == flushes,
+                target -> beers.forEach(beer -> target.stockRead(beer.getId(), quantity(beer))));
+    }
+
+    private void addStock(Map<Integer, Long> deltas) {
+        table.update(target -> deltas.forEach(target::addStock));
+    }
+
+    private static long quantity(Beer beer) {
+        return beer.getQuantityOnHand() == null ? 0 : beer.getQuantityOnHand();
+    }
+
+    private static BigDecimal decimal(Object value) {
+        return value == null || value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+
+    private static BigDecimal average(BigDecimal sum, long count) {
+        return sum.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+    }
+
+    @Override
+    public Mono<Health> health() {
+        return Mono.just(ready ? Health.up().build() : Health.down().withDetail("beerStyleStats", "building").build());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("beer.stats.beers", table, mirror -> mirror.read(target -> target.beers.size()))
+                .description("Beers in the style statistics")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        events.dispose();
+        flushes.dispose();
+        stockReads.dispose();
+        loaded.dispose();
+        table.dispose();
+    }
+
+    /**
+     * What each beer contributes, so an update or delete can take out exactly what was added, and the totals
+     * per style.
+     */
+    private static final class Table {
+
+        private final Map<Integer, Contribution> beers = new HashMap<>();
+        private final Map<BeerStyleEnum, StyleTotals> styles = new EnumMap<>(BeerStyleEnum.class);
+
+        /**
+         * @param quantity the stock on hand, or null if it is still to be read
+         */
+        void put(Integer beerId, BeerStyleEnum style, BigDecimal price, Long quantity) {
+            remove(beerId);
+            Contribution contribution = new Contribution(style, price, quantity == null ? 0 : quantity, quantity != null);
+            beers.put(beerId, contribution);
+            add(contribution);
+        }
+
+        /**
+         * @return false if the beer is not in the table
+         */
+        boolean update(Integer beerId, BeerStyleEnum style, BigDecimal price) {
+            Contribution contribution = beers.get(beerId);
+            if (contribution == null) {
+                return false;
+            }
+            subtract(contribution);
+            contribution.style = style;
+            contribution.price = price;
+            add(contribution);
+            return true;
+        }
+
+        void remove(Integer beerId) {
+            Contribution contribution = beers.remove(beerId);
+            if (contribution != null) {
+                subtract(contribution);
+            }
+        }
+
+        void stockRead(Integer beerId, long quantity) {
+            Contribution contribution = beers.get(beerId);
+            if (contribution != null && !contribution.stockRead) {
+                contribution.stockRead = true;
+                subtract(contribution);
+                contribution.quantity = quantity;
+                add(contribution);
+            }
+        }
+
+        void addStock(Integer beerId, long delta) {
+            Contribution contribution = beers.get(beerId);
+            // a flush is committed before it is published, so the stock still to be read includes it
+            if (contribution != null && contribution.stockRead) {
+                subtract(contribution);
+                contribution.quantity += delta;
+                add(contribution);
+            }
+        }
+
+        List<BeerStyleStatistics> statistics() {
+            List<BeerStyleStatistics> statistics = new ArrayList<>(styles.size());
+            styles.forEach((style, totals) -> statistics.add(BeerStyleStatistics.builder()
+                    .beerStyle(style.name())
+                    .count(totals.count)
+                    .totalInventory(totals.inventory)
+                    .minPrice(totals.prices.isEmpty() ? null : totals.prices.firstKey())
+                    .avgPrice(totals.priced == 0 ? null : average(totals.priceSum, totals.priced))
+                    .maxPrice(totals.prices.isEmpty() ? null : totals.prices.lastKey())
+                    .build()));
+            return statistics;
+        }
+
+        private void add(Contribution contribution) {
+            if (contribution.style != null) {
+                styles.computeIfAbsent(contribution.style, style -> new StyleTotals()).add(contribution, 1);
+            }
+        }
+
+        private void subtract(Contribution contribution) {
+            StyleTotals totals = contribution.style == null ? null : styles.get(contribution.style);
+            if (totals != null && totals.add(contribution, -1) == 0) {
+                styles.remove(contribution.style);
+            }
+        }
+    }
+
+    private static final class Contribution {
+
+        private BeerStyleEnum style;
+        private BigDecimal price;
+        private long quantity;
+        private boolean stockRead;
+
+        Contribution(BeerStyleEnum style, BigDecimal price, long quantity, boolean stockRead) {
+            this.style = style;
+            this.price = price;
+            this.quantity = quantity;
+            this.stockRead = stockRead;
+        }
+    }
+
+    private static final class StyleTotals {
+
+        private long count;
+        private long inventory;
+        private long priced;
+        private BigDecimal priceSum = BigDecimal.ZERO;
+        // price -> number of beers at that price, for the min and max after a removal
+        private final TreeMap<BigDecimal, Integer> prices = new TreeMap<>();
+
+        /**
+         * Adds ({@code sign} 1) or takes out (-1) a beer.
+         *
+         * @return the beers left
+         */
+        long add(Contribution contribution, int sign) {
+            count += sign;
+            inventory += sign * contribution.quantity;
+            if (contribution.price != null) {
+                priced += sign;
+                priceSum = sign > 0 ? priceSum.add(contribution.price) : priceSum.subtract(contribution.price);
+                prices.merge(contribution.price, sign, (current, change) -> current + change == 0 ? null : current + change);
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import guru.springframework.sfgrestbrewery.domain.Beer;
+import guru.springframework.sfgrestbrewery.repositories.BeerRepository;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * An in-memory view of the beer table, such as {@link BeerSearchIndex}'s n-gram index or {@link BeerStyleStats}'
+ * per-style totals, rebuilt from the table while live changes keep being applied.
+ *
+ * A rebuild reads the table into a new view in batches, so readers and changes interleave with it, and swaps
+ * it in when done. Changes meanwhile go to both the current view and the one being built; rows of beers
+ * changed since the build started are skipped, as the change is newer than the row. Readers and changes share
+ * one read-write lock, which also guards the build itself.
+ *
+ * Writes to the table that reach the view some other way than through {@link #change}, such as inventory
+ * flushes, are counted by an optional write count. A batch read while that count moved, or while a write was
+ * committed but not yet applied, may or may not include the write, so it is read again by id.
+ */
+@Slf4j
+final class BeerTableMirror<V> {
+
+    private static final int BUILD_BATCH_SIZE = 1000;
+    private static final Duration REREAD_DELAY = Duration.ofMillis(50);
+
+    private final String name;
+    private final BeerRepository beerRepository;
+    private final Supplier<V> empty;
+    private final BiConsumer<V, Beer> addRow;
+    private final LongSupplier writeCount;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private V view;
+    // while a build runs: the view being built, the beers changed since it started, and the read of the table
+    private V building;
+    private final Set<Integer> changedDuringBuild = new HashSet<>();
+    private Disposable build;
+
+    /**
+     * @param name   what the view is, for the log
+     * @param empty  a new, empty view
+     * @param addRow adds a beer read from the table to a view
+     */
+    BeerTableMirror(String name, BeerRepository beerRepository, Supplier<V> empty, BiConsumer<V, Beer> addRow) {
+        this(name, beerRepository, empty, addRow, () -> 0);
+    }
+
+    /**
+     * @param writeCount the writes to the table made so far outside {@link #change}, or -1 while one is committed
+     *                   but not yet applied to the view
+     */
+    BeerTableMirror(String name, BeerRepository beerRepository, Supplier<V> empty, BiConsumer<V, Beer> addRow,
+                    LongSupplier writeCount) {
+        this.name = name;
+        this.beerRepository = beerRepository;
+        this.empty = empty;
+        this.addRow = addRow;
+        this.writeCount = writeCount;
+        this.view = empty.get();
+    }
+
+    /**
+     * Queries the current view under the read lock.
+     */
+    <R> R read(Function<V, R> query) {
+        lock.readLock().lock();
+        try {
+            return query.apply(view);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a change to one beer to the current view and to any being built, whose row is then left out.
+     */
+    void change(Integer beerId, Consumer<V> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(view);
+            if (building != null) {
+                change.accept(building);
+                changedDuringBuild.add(beerId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a change to the current view and to any being built, leaving the rows being read as they are.
+     */
+    void update(Consumer<V> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(view);
+            if (building != null) {
+                change.accept(building);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * As {@link #update}, if {@code condition} holds when checked under the same lock.
+     *
+     * @return whether the change was applied
+     */
+    boolean updateIf(BooleanSupplier condition, Consumer<V> change) {
+        lock.writeLock().lock();
+        try {
+            if (!condition.getAsBoolean()) {
+                return false;
+            }
+            update(change);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the beer table into a new view and swaps it in, abandoning any build still running.
+     *
+     * @param built called with the new view once it is in place
+     */
+    void rebuild(Consumer<V> built) {
+        V next = empty.get();
+
+        lock.writeLock().lock();
+        try {
+            if (build != null) {
+                build.dispose();
+            }
+            building = next;
+            changedDuringBuild.clear();
+            long writes = writeCount.getAsLong();
+            // H2's driver reads on the subscribing thread, which may be an event loop
+            build = beerRepository.findAll()
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .buffer(BUILD_BATCH_SIZE)
+                    .concatMap(beers -> add(next, beers, writes) ? Mono.<Void>empty()
+                            : reread(next, beers.stream().map(Beer::getId).collect(Collectors.toList())))
+                    .then(Mono.fromRunnable(() -> {
+                        if (swap(next)) {
+                            built.accept(next);
+                        }
+                    }))
+                    .subscribe(null, e -> log.error("Building the {} failed", name, e));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void dispose() {
+        lock.writeLock().lock();
+        try {
+            if (build != null) {
+                build.dispose();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Mono<Void> reread(V target, List<Integer> ids) {
+        return Mono.defer(() -> {
+            long writes = writeCount.getAsLong();
+            return beerRepository.findAllById(ids)
+                    .collectList()
+                    .flatMap(beers -> add(target, beers, writes)
+                            ? Mono.<Void>empty()
+                            : reread(target, ids).delaySubscription(REREAD_DELAY));
+        });
+    }
+
+    /**
+     * @return false, leaving the rows out, if a write may have been committed during the read but not applied
+     */
+    private boolean add(V target, List<Beer> beers, long writes) {
+        lock.writeLock().lock();
+        try {
+            if (building != target) {
+                return true;
+            }
+            // checked under the lock writes are applied under, so none can be applied before the rows are added
+            if (writes < 0 || writeCount.getAsLong() != writes) {
+                return false;
+            }
+            for (Beer beer : beers) {
+                if (!changedDuringBuild.contains(beer.getId())) {
+                    addRow.accept(target, beer);
+                }
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean swap(V next) {
+        lock.writeLock().lock();
+        try {
+            if (building != next) {
+                return false;
+            }
+            view = next;
+            building = null;
+            changedDuringBuild.clear();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
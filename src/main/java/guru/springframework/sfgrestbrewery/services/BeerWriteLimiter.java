@@ -0,0 +1,67 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps the number of beer writes in flight. A write over the limit fails straight away with
+ * {@link WritesSaturatedException} instead of queueing, so a slow database pushes back on clients rather
+ * than piling up pending work in memory. Writes under the limit that wait for a connection are still
+ * bounded by the pool's acquire timeout.
+ */
+@Component
+public class BeerWriteLimiter implements MeterBinder {
+
+    private final int maxConcurrentWrites;
+    private final Duration retryAfter;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    public BeerWriteLimiter(@Value("${sfg.brewery.writes.max-concurrent:64}") int maxConcurrentWrites,
+                            @Value("${sfg.brewery.writes.retry-after:1s}") Duration retryAfter) {
+        this.maxConcurrentWrites = maxConcurrentWrites;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Admits the write on subscription; the slot is released when it completes, fails or is cancelled.
+     */
+    public <T> Mono<T> limit(Mono<T> write) {
+        return Mono.defer(() -> {
+            if (inFlight.incrementAndGet() > maxConcurrentWrites) {
+                inFlight.decrementAndGet();
+                rejected.increment();
+                return Mono.error(new WritesSaturatedException(retryAfter));
+            }
+
+            return write.doFinally(signal -> inFlight.decrementAndGet());
+        });
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("beer.writes.active", inFlight, AtomicInteger::get)
+                .description("Beer writes currently in flight")
+                .register(registry);
+        Gauge.builder("beer.writes.limit", () -> maxConcurrentWrites)
+                .description("Maximum concurrent beer writes")
+                .register(registry);
+        FunctionCounter.builder("beer.writes.rejected", rejected, LongAdder::doubleValue)
+                .description("Beer writes rejected because the limit was reached")
+                .register(registry);
+    }
+}
@@ -1,6 +1,9 @@
 package guru.springframework.sfgrestbrewery.services;
 
+import guru.springframework.sfgrestbrewery.web.model.CustomerBatchResult;
 import guru.springframework.sfgrestbrewery.web.model.CustomerDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.UUID;
 
@@ -8,11 +11,29 @@ import java.util.UUID;
  * Created by jt on 2019-04-21.
  */
 public interface CustomerService {
-    CustomerDto getCustomerById(UUID customerId);
+    /**
+     * @return the customer, or empty when there is none with that id
+     */
+    Mono<CustomerDto> getCustomerById(UUID customerId);
 
-    CustomerDto saveNewCustomer(CustomerDto customerDto);
+    Mono<CustomerDto> saveNewCustomer(CustomerDto customerDto);
 
-    void updateCustomer(UUID customerId, CustomerDto customerDto);
+    /**
+     * Creates customers without an id and updates those with one, in batches of
+     * {@code sfg.brewery.customer.batch-size}: one multi-row statement per batch for each kind of write.
+     * Invalid items and unknown ids are reported without failing the rest.
+     */
+    Flux<CustomerBatchResult> saveCustomers(Flux<CustomerDto> customerDtos);
 
-    void deleteById(UUID customerId);
+    /**
+     * @throws guru.springframework.sfgrestbrewery.web.controller.NotFoundException (signalled) when there is
+     * no such customer
+     */
+    Mono<CustomerDto> updateCustomer(UUID customerId, CustomerDto customerDto);
+
+    /**
+     * @throws guru.springframework.sfgrestbrewery.web.controller.NotFoundException (signalled) when there is
+     * no such customer
+     */
+    Mono<Void> deleteById(UUID customerId);
 }
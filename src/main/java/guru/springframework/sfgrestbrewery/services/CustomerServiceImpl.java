@@ -1,40 +1,172 @@
 package guru.springframework.sfgrestbrewery.services;
 
+import guru.springframework.sfgrestbrewery.domain.Customer;
+import guru.springframework.sfgrestbrewery.repositories.CustomerBatchRepository;
+import guru.springframework.sfgrestbrewery.repositories.CustomerRepository;
+import guru.springframework.sfgrestbrewery.web.controller.NotFoundException;
+import guru.springframework.sfgrestbrewery.web.mappers.CustomerMapper;
+import guru.springframework.sfgrestbrewery.web.model.CustomerBatchResult;
 import guru.springframework.sfgrestbrewery.web.model.CustomerDto;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.relational.core.query.Criteria.where;
+import static org.springframework.data.relational.core.query.Query.query;
 
 /**
  * Created by jt on 2019-04-21.
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class CustomerServiceImpl implements CustomerService {
+    private final CustomerRepository customerRepository;
+    private final CustomerBatchRepository customerBatchRepository;
+    private final CustomerMapper customerMapper;
+    private final R2dbcEntityTemplate template;
+    private final Validator validator;
+
+    @Value("${sfg.brewery.customer.batch-size:500}")
+    private int batchSize;
+
+    @Override
+    public Mono<CustomerDto> getCustomerById(UUID customerId) {
+        return customerRepository.findById(customerId)
+                .map(customerMapper::customerToCustomerDto);
+    }
+
     @Override
-    public CustomerDto getCustomerById(UUID customerId) {
-        return CustomerDto.builder()
-                .id(UUID.randomUUID())
-                .name("Joe Buck")
-                .build();
+    public Mono<CustomerDto> saveNewCustomer(CustomerDto customerDto) {
+        return Mono.defer(() -> {
+                    Customer customer = customerMapper.customerDtoToCustomer(customerDto);
+                    LocalDateTime now = LocalDateTime.now();
+                    customer.setId(UUID.randomUUID());
+                    customer.setCreatedDate(now);
+                    customer.setLastModifiedDate(now);
+                    return customerRepository.save(customer);
+                })
+                .map(customerMapper::customerToCustomerDto);
     }
 
     @Override
-    public CustomerDto saveNewCustomer(CustomerDto customerDto) {
-        return CustomerDto.builder()
-                .id(UUID.randomUUID())
-                .build();
+    public Flux<CustomerBatchResult> saveCustomers(Flux<CustomerDto> customerDtos) {
+        return customerDtos.index()
+                .buffer(batchSize)
+                .concatMap(this::saveBatch);
+    }
+
+    private Flux<CustomerBatchResult> saveBatch(List<Tuple2<Long, CustomerDto>> batch) {
+        CustomerBatchResult[] results = new CustomerBatchResult[batch.size()];
+        List<Integer> insertPositions = new ArrayList<>();
+        List<Customer> inserts = new ArrayList<>();
+        List<Integer> updatePositions = new ArrayList<>();
+        List<Customer> updates = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < batch.size(); i++) {
+            CustomerDto customerDto = batch.get(i).getT2();
+            List<String> errors = validate(customerDto);
+
+            if (!errors.isEmpty()) {
+                results[i] = result(batch.get(i), CustomerBatchResult.Status.INVALID, customerDto.getId())
+                        .errors(errors).build();
+                continue;
+            }
+
+            Customer customer = customerMapper.customerDtoToCustomer(customerDto);
+            customer.setLastModifiedDate(now);
+            if (customer.getId() == null) {
+                customer.setId(UUID.randomUUID());
+                customer.setCreatedDate(now);
+                inserts.add(customer);
+                insertPositions.add(i);
+            } else {
+                updates.add(customer);
+                updatePositions.add(i);
+            }
+        }
+
+        Mono<Void> inserted = customerBatchRepository.insertAll(inserts)
+                .doOnNext(count -> {
+                    for (int j = 0; j < insertPositions.size(); j++) {
+                        results[insertPositions.get(j)] = result(batch.get(insertPositions.get(j)),
+                                CustomerBatchResult.Status.CREATED, inserts.get(j).getId()).build();
+                    }
+                })
+                .onErrorResume(e -> failed(e, batch, insertPositions, results))
+                .then();
+
+        Mono<Void> updated = customerBatchRepository.updateAll(updates)
+                .collectList()
+                .doOnNext(counts -> {
+                    for (int j = 0; j < updatePositions.size(); j++) {
+                        results[updatePositions.get(j)] = result(batch.get(updatePositions.get(j)),
+                                counts.get(j) > 0 ? CustomerBatchResult.Status.UPDATED : CustomerBatchResult.Status.NOT_FOUND,
+                                updates.get(j).getId()).build();
+                    }
+                })
+                .onErrorResume(e -> failed(e, batch, updatePositions, results))
+                .then();
+
+        return inserted.then(updated)
+                .thenMany(Flux.defer(() -> Flux.fromIterable(Arrays.asList(results))));
+    }
+
+    private <T> Mono<T> failed(Throwable e, List<Tuple2<Long, CustomerDto>> batch, List<Integer> positions,
+                               CustomerBatchResult[] results) {
+        log.error("Customer batch failed", e);
+        positions.forEach(position -> results[position] = result(batch.get(position), CustomerBatchResult.Status.FAILED,
+                batch.get(position).getT2().getId()).errors(List.of(String.valueOf(e.getMessage()))).build());
+        return Mono.empty();
+    }
+
+    private CustomerBatchResult.CustomerBatchResultBuilder result(Tuple2<Long, CustomerDto> item,
+                                                                  CustomerBatchResult.Status status, UUID id) {
+        return CustomerBatchResult.builder().index(item.getT1()).status(status).id(id);
+    }
+
+    private List<String> validate(CustomerDto customerDto) {
+        Errors errors = new BeanPropertyBindingResult(customerDto, "customerDto");
+        validator.validate(customerDto, errors);
+
+        return errors.getFieldErrors().stream()
+                .map(fieldError -> fieldError.getField() + " : " + fieldError.getDefaultMessage())
+                .collect(Collectors.toList());
     }
 
     @Override
-    public void updateCustomer(UUID customerId, CustomerDto customerDto) {
-        //todo impl
-        log.debug("Updating....");
+    public Mono<CustomerDto> updateCustomer(UUID customerId, CustomerDto customerDto) {
+        return customerRepository.findById(customerId)
+                .switchIfEmpty(Mono.error(NotFoundException::new))
+                .flatMap(customer -> {
+                    customer.setName(customerDto.getName());
+                    customer.setLastModifiedDate(LocalDateTime.now());
+                    return customerRepository.save(customer);
+                })
+                .map(customerMapper::customerToCustomerDto);
     }
 
     @Override
-    public void deleteById(UUID customerId) {
-        log.debug("Deleting.... ");
+    public Mono<Void> deleteById(UUID customerId) {
+        return template.delete(Customer.class)
+                .matching(query(where("id").is(customerId)))
+                .all()
+                .flatMap(deleted -> deleted > 0 ? Mono.<Void>empty() : Mono.error(new NotFoundException()));
     }
 }
@@ -0,0 +1,14 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * A reservation asked for more than is available; answered with 409.
+ */
+public class InsufficientStockException extends ResponseStatusException {
+
+    public InsufficientStockException(Integer beerId, int requested) {
+        super(HttpStatus.CONFLICT, "Not enough stock of beer " + beerId + " to reserve " + requested);
+    }
+}
@@ -0,0 +1,62 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import guru.springframework.sfgrestbrewery.web.model.BeerInventory;
+import guru.springframework.sfgrestbrewery.web.model.BeerReservation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Beer stock held in memory and written behind to the beer table. Reservations never take more than is
+ * available, however many run at once.
+ */
+public interface InventoryService {
+
+    /**
+     * @return the live stock, or a {@link guru.springframework.sfgrestbrewery.web.controller.NotFoundException}
+     * error if there is no beer with that id
+     */
+    Mono<BeerInventory> getInventory(Integer beerId);
+
+    /**
+     * Holds stock until the reservation is committed, released or expires; errors with
+     * {@link InsufficientStockException} if less than the quantity is available.
+     */
+    Mono<BeerReservation> reserve(Integer beerId, int quantity);
+
+    /**
+     * Returns the reserved stock. Errors with a
+     * {@link guru.springframework.sfgrestbrewery.web.controller.NotFoundException} if the reservation is
+     * unknown, already committed, released or expired.
+     */
+    Mono<Void> release(UUID reservationId);
+
+    /**
+     * Takes the reserved stock off hand for good. Unknown reservations fail as for {@link #release}.
+     */
+    Mono<Void> commit(UUID reservationId);
+
+    Mono<BeerInventory> restock(Integer beerId, int quantity);
+
+    /**
+     * Writes the stock changes made since the last flush to the beer table.
+     *
+     * @return the number of beers written
+     */
+    Mono<Integer> flush();
+
+    /**
+     * The quantity on hand added per beer id by each flush, once written. Flushes publish no beer events, so
+     * this is how anything derived from the beer table's quantities follows stock changes.
+     */
+    Flux<Map<Integer, Long>> flushed();
+
+    /**
+     * The number of flushes started so far, or -1 while one is written but not published by {@link #flushed()}
+     * yet. A read of the beer table's quantities during which this held one value throughout includes exactly
+     * the flushes published before it.
+     */
+    long flushCount();
+}
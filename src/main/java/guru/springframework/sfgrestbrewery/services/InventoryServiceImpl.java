@@ -0,0 +1,300 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import guru.springframework.sfgrestbrewery.repositories.BeerBatchRepository;
+import guru.springframework.sfgrestbrewery.repositories.BeerRepository;
+import guru.springframework.sfgrestbrewery.web.controller.NotFoundException;
+import guru.springframework.sfgrestbrewery.web.model.BeerEvent;
+import guru.springframework.sfgrestbrewery.web.model.BeerInventory;
+import guru.springframework.sfgrestbrewery.web.model.BeerReservation;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps a {@link StripedCounter} of available stock per beer, loaded from the beer table on first use, and
+ * writes committed and restocked quantities back in one batched statement every flush interval. Reserving
+ * and releasing never touch the database.
+ *
+ * The beer table lags by up to a flush interval, and changes not yet flushed are lost if the process dies
+ * (on shutdown they are flushed). Open reservations only live in memory, so a restart releases them.
+ */
+@Slf4j
+@Service
+public class InventoryServiceImpl implements InventoryService, InitializingBean, DisposableBean, MeterBinder {
+
+    private final BeerRepository beerRepository;
+    private final BeerBatchRepository beerBatchRepository;
+    private final BeerEventPublisher beerEventPublisher;
+    private final int stripes;
+    private final Duration reservationTtl;
+    private final Duration flushInterval;
+
+    private final ConcurrentMap<Integer, Mono<BeerStock>> loading = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, BeerStock> stocks = new ConcurrentHashMap<>();
+    private final ConcurrentMap<UUID, Hold> reservations = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final Sinks.Many<Map<Integer, Long>> flushed = Sinks.many().multicast().directBestEffort();
+    // flushes with deltas that started writing, and that have been published or have failed
+    private final AtomicLong flushesStarted = new AtomicLong();
+    private final AtomicLong flushesDone = new AtomicLong();
+
+    private Disposable flushes;
+    private Disposable deletions;
+
+    public InventoryServiceImpl(BeerRepository beerRepository, BeerBatchRepository beerBatchRepository,
+                                BeerEventPublisher beerEventPublisher,
+                                @Value("${sfg.brewery.inventory.stripes:0}") int stripes,
+                                @Value("${sfg.brewery.inventory.reservation-ttl:15m}") Duration reservationTtl,
+                                @Value("${sfg.brewery.inventory.flush-interval:1s}") Duration flushInterval) {
+        this.beerRepository = beerRepository;
+        this.beerBatchRepository = beerBatchRepository;
+        this.beerEventPublisher = beerEventPublisher;
+        // 0: one cell per core once a beer is contended
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        this.reservationTtl = reservationTtl;
+        this.flushInterval = flushInterval;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        flushes = Flux.interval(flushInterval)
+                .concatMap(tick -> {
+                    releaseExpired(LocalDateTime.now());
+                    return flush().onErrorResume(e -> {
+                        log.warn("Inventory flush failed, retrying on the next tick", e);
+                        return Mono.empty();
+                    });
+                })
+                .subscribe();
+        forgetDeletedBeers();
+    }
+
+    private void forgetDeletedBeers() {
+        deletions = beerEventPublisher.events(null)
+                .subscribe(event -> {
+                    if (event.getType() == BeerEvent.Type.RESET) {
+                        // the beer table was replaced: stock loads from it afresh
+                        loading.clear();
+                        stocks.clear();
+                    } else if (event.getType() == BeerEvent.Type.DELETED) {
+                        loading.remove(event.getBeerId());
+                        stocks.remove(event.getBeerId());
+                    }
+                }, e -> forgetDeletedBeers());
+    }
+
+    @Override
+    public Mono<BeerInventory> getInventory(Integer beerId) {
+        return stock(beerId).map(BeerStock::toInventory);
+    }
+
+    @Override
+    public Mono<BeerReservation> reserve(Integer beerId, int quantity) {
+        return stock(beerId).flatMap(stock -> {
+            if (!stock.available.tryAcquire(quantity)) {
+                rejected.increment();
+                return Mono.error(new InsufficientStockException(beerId, quantity));
+            }
+            stock.reserved.add(quantity);
+
+            BeerReservation reservation = BeerReservation.builder()
+                    .id(UUID.randomUUID())
+                    .beerId(beerId)
+                    .quantity(quantity)
+                    .expiresAt(LocalDateTime.now().plus(reservationTtl))
+                    .build();
+            reservations.put(reservation.getId(), new Hold(stock, reservation));
+            return Mono.just(reservation);
+        });
+    }
+
+    @Override
+    public Mono<Void> release(UUID reservationId) {
+        return Mono.fromRunnable(() -> release(take(reservationId)));
+    }
+
+    @Override
+    public Mono<Void> commit(UUID reservationId) {
+        return Mono.fromRunnable(() -> {
+            Hold hold = take(reservationId);
+            hold.stock.reserved.add(-hold.reservation.getQuantity());
+            hold.stock.unflushed.addAndGet(-hold.reservation.getQuantity());
+        });
+    }
+
+    @Override
+    public Mono<BeerInventory> restock(Integer beerId, int quantity) {
+        return stock(beerId).map(stock -> {
+            stock.available.add(quantity);
+            stock.unflushed.addAndGet(quantity);
+            return stock.toInventory();
+        });
+    }
+
+    @Override
+    public Mono<Integer> flush() {
+        return Mono.defer(() -> {
+            // deltas are additive, so a flush overlapping another one (or a catalog update) cannot lose either
+            Map<Integer, Long> deltas = new HashMap<>();
+            stocks.values().forEach(stock -> {
+                long delta = stock.unflushed.getAndSet(0);
+                if (delta != 0) {
+                    deltas.put(stock.beerId, delta);
+                }
+            });
+
+            if (deltas.isEmpty()) {
+                return Mono.just(0);
+            }
+
+            flushesStarted.incrementAndGet();
+            return beerBatchRepository.addToQuantityOnHand(deltas)
+                    .doOnSuccess(updated -> {
+                        // flush() may be called while a scheduled flush completes
+                        synchronized (flushed) {
+                            flushed.tryEmitNext(deltas);
+                        }
+                    })
+                    .doFinally(signal -> flushesDone.incrementAndGet())
+                    .map(updated -> deltas.size())
+                    .doOnError(e -> deltas.forEach((beerId, delta) -> {
+                        BeerStock stock = stocks.get(beerId);
+                        if (stock != null) {
+                            stock.unflushed.addAndGet(delta);
+                        }
+                    }));
+        });
+    }
+
+    @Override
+    public Flux<Map<Integer, Long>> flushed() {
+        return flushed.asFlux();
+    }
+
+    @Override
+    public long flushCount() {
+        long started = flushesStarted.get();
+        return flushesDone.get() == started ? started : -1;
+    }
+
+    /**
+     * Releases the reservations that expired before {@code now}.
+     */
+    void releaseExpired(LocalDateTime now) {
+        reservations.values().stream()
+                .filter(hold -> hold.reservation.getExpiresAt().isBefore(now))
+                // whoever removes it owns it, so this cannot race a commit or release of the same reservation
+                .filter(hold -> reservations.remove(hold.reservation.getId(), hold))
+                .forEach(hold -> {
+                    expired.increment();
+                    release(hold);
+                });
+    }
+
+    private Hold take(UUID reservationId) {
+        Hold hold = reservations.remove(reservationId);
+        if (hold == null) {
+            throw new NotFoundException();
+        }
+        return hold;
+    }
+
+    private void release(Hold hold) {
+        hold.stock.reserved.add(-hold.reservation.getQuantity());
+        hold.stock.available.add(hold.reservation.getQuantity());
+    }
+
+    private Mono<BeerStock> stock(Integer beerId) {
+        BeerStock stock = stocks.get(beerId);
+        if (stock != null) {
+            return Mono.just(stock);
+        }
+
+        // concurrent first uses share one load
+        return loading.computeIfAbsent(beerId, id -> beerRepository.findById(id)
+                .map(beer -> stocks.computeIfAbsent(id, key -> new BeerStock(key,
+                        new StripedCounter(stripes, beer.getQuantityOnHand() == null ? 0 : beer.getQuantityOnHand()))))
+                .switchIfEmpty(Mono.error(NotFoundException::new))
+                .doFinally(signal -> loading.remove(id))
+                .cache());
+    }
+
+    @Override
+    public void destroy() {
+        flushes.dispose();
+        deletions.dispose();
+        flush().block(Duration.ofSeconds(10));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("beer.inventory.reservations.active", reservations, Map::size)
+                .description("Reservations neither committed, released nor expired")
+                .register(registry);
+        Gauge.builder("beer.inventory.beers", stocks, Map::size)
+                .description("Beers whose stock is held in memory")
+                .register(registry);
+        FunctionCounter.builder("beer.inventory.reservations.rejected", rejected, LongAdder::doubleValue)
+                .description("Reservations refused for lack of stock")
+                .register(registry);
+        FunctionCounter.builder("beer.inventory.reservations.expired", expired, LongAdder::doubleValue)
+                .description("Reservations released because they expired")
+                .register(registry);
+    }
+
+    private static final class BeerStock {
+        private final Integer beerId;
+        private final StripedCounter available;
+        private final LongAdder reserved = new LongAdder();
+        // on hand changes not yet written to the beer table
+        private final AtomicLong unflushed = new AtomicLong();
+
+        private BeerStock(Integer beerId, StripedCounter available) {
+            this.beerId = beerId;
+            this.available = available;
+        }
+
+        private BeerInventory toInventory() {
+            // not an atomic snapshot: under concurrent reservations the parts may be a moment apart
+            long availableNow = available.sum();
+            long reservedNow = reserved.sum();
+            return BeerInventory.builder()
+                    .beerId(beerId)
+                    .onHand(availableNow + reservedNow)
+                    .reserved(reservedNow)
+                    .available(availableNow)
+                    .build();
+        }
+    }
+
+    private static final class Hold {
+        private final BeerStock stock;
+        private final BeerReservation reservation;
+
+        private Hold(BeerStock stock, BeerReservation reservation) {
+            this.stock = stock;
+            this.reservation = reservation;
+        }
+    }
+}
@@ -0,0 +1,567 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Word index for prefix and typo tolerant search. Documents are split into words (lower cased, accents
+ * stripped), each word has a posting list of the documents containing it, and the vocabulary is kept sorted
+ * and indexed by trigram, so a query word is first expanded to the words it matches and only their posting
+ * lists are read:
+ *
+ * <ul>
+ *     <li>words it is a prefix of, if there are any</li>
+ *     <li>otherwise words sharing at least {@code minSimilarity} of its trigrams (typos)</li>
+ * </ul>
+ *
+ * A document matches when every query word matches one of its words, and ranks by how close those words are
+ * (Jaccard similarity of their trigrams), then by the order documents were put. Posting lists are intersected
+ * smallest first, so the cost follows the rarest query word rather than the catalog size.
+ *
+ * Each document version gets a new slot, so posting lists stay sorted by appending; replaced and removed slots
+ * are skipped and dropped once they outnumber the live ones. Searches may run concurrently with each other, but
+ * not with {@link #put} or {@link #remove}.
+ */
+public final class NGramIndex<T> {
+
+    private static final int GRAM_BITS = 6;
+    private static final int GRAMS = 1 << (3 * GRAM_BITS);
+    private static final int PAD = 1;
+    private static final int OTHER = 38;
+    private static final int MIN_COMPACT_SLOTS = 1024;
+    private static final int[] NO_SLOTS = new int[0];
+
+    // vocabulary: word -> word id, sorted for prefix lookups, and per word its text, trigram count and posting list
+    private final NavigableMap<String, Integer> wordIds = new TreeMap<>();
+    private String[] words = new String[64];
+    private int[] wordGramCounts = new int[64];
+    private int[][] wordPostings = new int[64][];
+    private int[] wordPostingSizes = new int[64];
+    private int wordCount;
+
+    // trigram -> ids of the words containing it
+    private int[][] gramWords = new int[GRAMS][];
+    private int[] gramWordSizes = new int[GRAMS];
+
+    // documents, by slot
+    private final Map<Integer, Integer> slotsById = new HashMap<>();
+    private int[] ids = new int[64];
+    private int[][] slotWords = new int[64][];
+    private Object[] values = new Object[64];
+    // one bit per live slot: small enough to stay in cache while a search skips the dead ones
+    private long[] live = new long[1];
+    private int slots;
+    private int dead;
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public void put(int id, String text, T value) {
+        removeSlot(slotsById.get(id));
+
+        List<String> docWords = words(text);
+        int[] docWordIds = new int[docWords.size()];
+        int distinct = 0;
+        for (String word : docWords) {
+            int wordId = wordId(word);
+            if (Arrays.stream(docWordIds, 0, distinct).noneMatch(w -> w == wordId)) {
+                docWordIds[distinct++] = wordId;
+            }
+        }
+
+        int slot = slots++;
+        if (slot == ids.length) {
+            ids = Arrays.copyOf(ids, slot * 2);
+            slotWords = Arrays.copyOf(slotWords, slot * 2);
+            values = Arrays.copyOf(values, slot * 2);
+        }
+        if (slot >> 6 == live.length) {
+            live = Arrays.copyOf(live, live.length * 2);
+        }
+        live[slot >> 6] |= 1L << slot;
+        ids[slot] = id;
+        slotWords[slot] = Arrays.copyOf(docWordIds, distinct);
+        values[slot] = value;
+        slotsById.put(id, slot);
+
+        for (int i = 0; i < distinct; i++) {
+            int wordId = docWordIds[i];
+            wordPostings[wordId] = append(wordPostings[wordId], wordPostingSizes[wordId], slot);
+            wordPostingSizes[wordId]++;
+        }
+    }
+
+    public void remove(int id) {
+        removeSlot(slotsById.remove(id));
+    }
+
+    public boolean contains(int id) {
+        return slotsById.containsKey(id);
+    }
+
+    public int size() {
+        return slotsById.size();
+    }
+
+    /**
+     * Documents matching every word of {@code query}, best first. Returns {@code limit} of them from
+     * {@code offset}, and how many matched in total.
+     */
+    public Matches<T> search(String query, double minSimilarity, int offset, int limit) {
+        List<String> terms = words(query);
+        if (terms.isEmpty()) {
+            return new Matches<>(Collections.emptyList(), 0);
+        }
+
+        Scratch s = scratch.get();
+        List<TermPostings> postings = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            TermPostings termPostings = expand(term, minSimilarity, s);
+            if (termPostings.size == 0) {
+                return new Matches<>(Collections.emptyList(), 0);
+            }
+            postings.add(termPostings);
+        }
+        postings.sort(Comparator.comparingInt(p -> p.size));
+
+        // bounded heap of the best offset + limit, worst on top
+        int wanted = offset + limit;
+        PriorityQueue<Match<T>> best = new PriorityQueue<>(Math.max(1, Math.min(wanted, postings.get(0).size)),
+                (a, b) -> -compare(a, b));
+        int total = 0;
+        int termCount = postings.size();
+        // summed similarity a match must beat to enter the heap
+        double floor = -1;
+        TermPostings rarest = postings.get(0);
+        int[] cursors = new int[postings.size()];
+        // a list not much longer than the rarest is cheaper to walk than to search
+        boolean[] walk = new boolean[postings.size()];
+        for (int t = 1; t < postings.size(); t++) {
+            walk[t] = postings.get(t).size <= rarest.size * 8L;
+        }
+
+        candidates:
+        for (int i = 0; i < rarest.size; i++) {
+            int slot = rarest.slots[i];
+            if ((live[slot >> 6] & 1L << slot) == 0) {
+                continue;
+            }
+            double score = rarest.score(i);
+            for (int t = 1; t < postings.size(); t++) {
+                TermPostings other = postings.get(t);
+                int at = walk[t] ? other.walk(cursors[t], slot) : other.seek(cursors[t], slot);
+                cursors[t] = at;
+                if (at == other.size || other.slots[at] != slot) {
+                    continue candidates;
+                }
+                score += other.score(at);
+            }
+            total++;
+
+            if (wanted == 0) {
+                continue;
+            }
+            // slots ascend, so on a tie the one already kept wins
+            if (best.size() < wanted || score > floor) {
+                if (best.size() == wanted) {
+                    best.poll();
+                }
+                best.add(new Match<>(ids[slot], slot, score / termCount, value(slot)));
+                floor = best.size() == wanted ? best.peek().similarity * termCount : -1;
+            }
+        }
+
+        List<Match<T>> ranked = new ArrayList<>(best);
+        ranked.sort(NGramIndex::compare);
+        return new Matches<>(offset >= ranked.size() ? Collections.emptyList() : ranked.subList(offset, ranked.size()), total);
+    }
+
+    /**
+     * The slots containing a word {@code term} matches, sorted, with the best similarity per slot.
+     */
+    private TermPostings expand(String term, double minSimilarity, Scratch s) {
+        int[] termGrams = grams(term);
+
+        // {word id, shared trigrams}; a prefix of a word shares all of its trigrams
+        List<int[]> matched = new ArrayList<>();
+        for (int wordId : wordIds.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+            if (wordPostingSizes[wordId] > 0) {
+                matched.add(new int[]{wordId, termGrams.length});
+            }
+        }
+        if (matched.isEmpty()) {
+            similar(termGrams, minSimilarity, s, matched);
+        }
+
+        if (matched.size() == 1) {
+            int wordId = matched.get(0)[0];
+            return new TermPostings(wordPostings[wordId], wordPostingSizes[wordId], null,
+                    similarity(termGrams.length, matched.get(0)));
+        }
+
+        // union of several words: slot in the high half, similarity in the low, so sorting groups by slot
+        int size = 0;
+        for (int[] word : matched) {
+            size += wordPostingSizes[word[0]];
+        }
+        long[] union = new long[size];
+        int at = 0;
+        for (int[] word : matched) {
+            long similarity = (long) (similarity(termGrams.length, word) * Integer.MAX_VALUE);
+            int[] list = wordPostings[word[0]];
+            for (int i = 0; i < wordPostingSizes[word[0]]; i++) {
+                union[at++] = (long) list[i] << 32 | similarity;
+            }
+        }
+        Arrays.sort(union);
+
+        int[] unionSlots = size == 0 ? NO_SLOTS : new int[size];
+        double[] unionScores = new double[size];
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            int slot = (int) (union[i] >>> 32);
+            double similarity = (double) (union[i] & 0xFFFFFFFFL) / Integer.MAX_VALUE;
+            if (distinct > 0 && unionSlots[distinct - 1] == slot) {
+                // sorted, so this is the better word for the slot
+                unionScores[distinct - 1] = similarity;
+            } else {
+                unionSlots[distinct] = slot;
+                unionScores[distinct++] = similarity;
+            }
+        }
+        return new TermPostings(unionSlots, distinct, unionScores, 0);
+    }
+
+    /**
+     * Adds the words sharing at least {@code minSimilarity} of {@code termGrams}, found by ScanCount over the
+     * vocabulary's trigram lists.
+     */
+    private void similar(int[] termGrams, double minSimilarity, Scratch s, List<int[]> matched) {
+        int minShared = Math.max(1, (int) Math.ceil(termGrams.length * minSimilarity));
+        int[] counts = s.counts(wordCount);
+        int touched = 0;
+
+        for (int gram : termGrams) {
+            int[] list = gramWords[gram];
+            for (int i = 0; i < gramWordSizes[gram]; i++) {
+                int wordId = list[i];
+                if (counts[wordId]++ == 0) {
+                    touched = s.touch(touched, wordId);
+                }
+            }
+        }
+
+        for (int i = 0; i < touched; i++) {
+            int wordId = s.touched[i];
+            int shared = counts[wordId];
+            counts[wordId] = 0;
+
+            if (shared >= minShared && wordPostingSizes[wordId] > 0) {
+                matched.add(new int[]{wordId, shared});
+            }
+        }
+    }
+
+    private double similarity(int termGramCount, int[] word) {
+        int shared = word[1];
+        return (double) shared / (termGramCount + wordGramCounts[word[0]] - shared);
+    }
+
+    private static int compare(Match<?> a, Match<?> b) {
+        int bySimilarity = Double.compare(b.similarity, a.similarity);
+        return bySimilarity != 0 ? bySimilarity : Integer.compare(a.slot, b.slot);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T value(int slot) {
+        return (T) values[slot];
+    }
+
+    private int wordId(String word) {
+        Integer existing = wordIds.get(word);
+        if (existing != null) {
+            return existing;
+        }
+
+        int wordId = wordCount++;
+        if (wordId == words.length) {
+            words = Arrays.copyOf(words, wordId * 2);
+            wordGramCounts = Arrays.copyOf(wordGramCounts, wordId * 2);
+            wordPostings = Arrays.copyOf(wordPostings, wordId * 2);
+            wordPostingSizes = Arrays.copyOf(wordPostingSizes, wordId * 2);
+        }
+        int[] grams = grams(word);
+        words[wordId] = word;
+        wordGramCounts[wordId] = grams.length;
+        wordIds.put(word, wordId);
+
+        for (int gram : grams) {
+            gramWords[gram] = append(gramWords[gram], gramWordSizes[gram], wordId);
+            gramWordSizes[gram]++;
+        }
+        return wordId;
+    }
+
+    private void removeSlot(Integer slot) {
+        if (slot == null) {
+            return;
+        }
+        values[slot] = null;
+        live[slot >> 6] &= ~(1L << slot);
+        dead++;
+
+        if (dead > MIN_COMPACT_SLOTS && dead > slots - dead) {
+            compact();
+        }
+    }
+
+    /**
+     * Renumbers the live slots from 0, preserving their order so posting lists stay sorted, and rebuilds the
+     * vocabulary from the words still in use.
+     */
+    private void compact() {
+        String[] oldWords = Arrays.copyOf(words, wordCount);
+        int[] renumberedWords = new int[wordCount];
+        Arrays.fill(renumberedWords, -1);
+
+        wordIds.clear();
+        words = new String[64];
+        wordGramCounts = new int[64];
+        wordPostings = new int[64][];
+        wordPostingSizes = new int[64];
+        wordCount = 0;
+        gramWords = new int[GRAMS][];
+        gramWordSizes = new int[GRAMS];
+
+        int kept = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (values[slot] == null) {
+                continue;
+            }
+            int[] docWords = slotWords[slot];
+            for (int i = 0; i < docWords.length; i++) {
+                int old = docWords[i];
+                if (renumberedWords[old] < 0) {
+                    renumberedWords[old] = wordId(oldWords[old]);
+                }
+                int wordId = renumberedWords[old];
+                docWords[i] = wordId;
+                wordPostings[wordId] = append(wordPostings[wordId], wordPostingSizes[wordId], kept);
+                wordPostingSizes[wordId]++;
+            }
+            ids[kept] = ids[slot];
+            slotWords[kept] = docWords;
+            values[kept] = values[slot];
+            slotsById.put(ids[kept], kept);
+            kept++;
+        }
+        Arrays.fill(values, kept, slots, null);
+        Arrays.fill(slotWords, kept, slots, null);
+        Arrays.fill(live, 0);
+        for (int slot = 0; slot < kept; slot++) {
+            live[slot >> 6] |= 1L << slot;
+        }
+        slots = kept;
+        dead = 0;
+    }
+
+    private static int[] append(int[] list, int size, int value) {
+        if (list == null) {
+            list = new int[4];
+        } else if (size == list.length) {
+            list = Arrays.copyOf(list, size * 2);
+        }
+        list[size] = value;
+        return list;
+    }
+
+    /**
+     * The words of {@code text}: runs of letters and digits, lower cased, without accents.
+     */
+    static List<String> words(String text) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+
+        for (int i = 0; i <= normalized.length(); i++) {
+            char c = i < normalized.length() ? normalized.charAt(i) : ' ';
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * The distinct trigrams of a word padded in front ({@code "$$word"}), sorted, so a prefix of the word
+     * has a subset of them.
+     */
+    static int[] grams(String word) {
+        int[] grams = new int[word.length()];
+        int first = PAD;
+        int second = PAD;
+
+        for (int i = 0; i < word.length(); i++) {
+            int code = code(word.charAt(i));
+            grams[i] = first << (2 * GRAM_BITS) | second << GRAM_BITS | code;
+            first = second;
+            second = code;
+        }
+
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (distinct == 0 || grams[distinct - 1] != grams[i]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return distinct == grams.length ? grams : Arrays.copyOf(grams, distinct);
+    }
+
+    /**
+     * 2-27 for letters, 28-37 for digits, {@link #OTHER} for any other letter or digit.
+     */
+    private static int code(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 2;
+        }
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 28;
+        }
+        return OTHER;
+    }
+
+    private static final class TermPostings {
+        private final int[] slots;
+        private final int size;
+        // per slot when the term matched several words, otherwise one for all
+        private final double[] scores;
+        private final double score;
+
+        private TermPostings(int[] slots, int size, double[] scores, double score) {
+            this.slots = slots;
+            this.size = size;
+            this.scores = scores;
+            this.score = score;
+        }
+
+        private double score(int index) {
+            return scores == null ? score : scores[index];
+        }
+
+        /**
+         * The first index from {@code from} whose slot is not below {@code slot}, stepping through the list.
+         */
+        private int walk(int from, int slot) {
+            while (from < size && slots[from] < slot) {
+                from++;
+            }
+            return from;
+        }
+
+        /**
+         * The first index from {@code from} whose slot is not below {@code slot}: galloping, then binary search.
+         */
+        private int seek(int from, int slot) {
+            int step = 1;
+            int low = from;
+            int high = from;
+            while (high < size && slots[high] < slot) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            high = Math.min(high, size);
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (slots[mid] < slot) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static final class Scratch {
+        private int[] counts = new int[0];
+        private int[] touched = new int[64];
+
+        private int[] counts(int size) {
+            if (counts.length < size) {
+                counts = new int[Math.max(size, counts.length * 2)];
+            }
+            return counts;
+        }
+
+        private int touch(int touchedCount, int index) {
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, touchedCount * 2);
+            }
+            touched[touchedCount] = index;
+            return touchedCount + 1;
+        }
+    }
+
+    public static final class Match<T> {
+        private final int id;
+        private final int slot;
+        private final double similarity;
+        private final T value;
+
+        private Match(int id, int slot, double similarity, T value) {
+            this.id = id;
+            this.slot = slot;
+            this.similarity = similarity;
+            this.value = value;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        public T getValue() {
+            return value;
+        }
+    }
+
+    public static final class Matches<T> {
+        private final List<Match<T>> matches;
+        private final int total;
+
+        private Matches(List<Match<T>> matches, int total) {
+            this.matches = matches;
+            this.total = total;
+        }
+
+        public List<Match<T>> getMatches() {
+            return matches;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+    }
+}
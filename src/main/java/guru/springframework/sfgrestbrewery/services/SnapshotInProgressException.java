@@ -0,0 +1,14 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * A snapshot export or import is already running; answered with 409.
+ */
+public class SnapshotInProgressException extends ResponseStatusException {
+
+    public SnapshotInProgressException() {
+        super(HttpStatus.CONFLICT, "A beer snapshot export or import is already running");
+    }
+}
@@ -0,0 +1,174 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A non-negative count that can be taken from without going below zero, built like {@link
+ * java.util.concurrent.atomic.LongAdder}: a single base cell until threads first collide on it, then cache
+ * line padded cells that threads mostly update without touching each other. Uncontended counters cost one
+ * cell, which matters with one counter per beer.
+ *
+ * {@link #tryAcquire} never takes more than is there: every cell is decremented by CAS and never goes below
+ * zero. A request larger than the caller's cell gathers from the others and gives everything back if the
+ * total falls short, so near zero it can briefly fail while another thread's attempt is being rolled back
+ * (or while the cells are first filled).
+ */
+public final class StripedCounter {
+
+    // 8 longs = 64 bytes, so neighbouring cells never share a cache line
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray base;
+    private final int stripes;
+
+    private volatile AtomicLongArray cells;
+
+    /**
+     * @param stripes the number of cells to spread over once contended, rounded up to a power of two;
+     *                1 keeps everything in the base cell
+     */
+    public StripedCounter(int stripes, long initial) {
+        this.stripes = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.base = new AtomicLongArray(1);
+        this.base.set(0, initial);
+    }
+
+    public void add(long amount) {
+        AtomicLongArray cs = cells;
+
+        if (cs == null) {
+            if (stripes == 1) {
+                base.getAndAdd(0, amount);
+                return;
+            }
+            long current = base.get(0);
+            if (base.compareAndSet(0, current, current + amount)) {
+                return;
+            }
+            cs = inflate();
+        }
+
+        cs.getAndAdd(probe() * PADDING, amount);
+    }
+
+    public boolean tryAcquire(long amount) {
+        AtomicLongArray cs = cells;
+
+        if (cs == null) {
+            if (stripes == 1) {
+                return tryTake(base, 0, amount);
+            }
+            long current = base.get(0);
+            if (current < amount) {
+                // whatever the cells were given since we looked is reached through the slow path
+                return cells != null && tryAcquireStriped(cells, amount);
+            }
+            if (base.compareAndSet(0, current, current - amount)) {
+                return true;
+            }
+            cs = inflate();
+        }
+
+        return tryAcquireStriped(cs, amount);
+    }
+
+    private boolean tryAcquireStriped(AtomicLongArray cs, long amount) {
+        int mask = stripes - 1;
+        int start = probe();
+
+        // common case: the whole amount comes out of one cell
+        for (int i = 0; i < stripes; i++) {
+            if (tryTake(cs, ((start + i) & mask) * PADDING, amount)) {
+                return true;
+            }
+        }
+        if (tryTake(base, 0, amount)) {
+            return true;
+        }
+
+        long[] taken = new long[stripes];
+        long fromBase = takeUpTo(base, 0, amount);
+        long total = fromBase;
+
+        for (int i = 0; i < stripes && total < amount; i++) {
+            int cell = (start + i) & mask;
+            taken[cell] = takeUpTo(cs, cell * PADDING, amount - total);
+            total += taken[cell];
+        }
+
+        if (total == amount) {
+            return true;
+        }
+
+        for (int cell = 0; cell < stripes; cell++) {
+            if (taken[cell] > 0) {
+                cs.getAndAdd(cell * PADDING, taken[cell]);
+            }
+        }
+        if (fromBase > 0) {
+            base.getAndAdd(0, fromBase);
+        }
+        return false;
+    }
+
+    public long sum() {
+        long sum = base.get(0);
+        AtomicLongArray cs = cells;
+
+        if (cs != null) {
+            for (int cell = 0; cell < stripes; cell++) {
+                sum += cs.get(cell * PADDING);
+            }
+        }
+        return sum;
+    }
+
+    public boolean isInflated() {
+        return cells != null;
+    }
+
+    private AtomicLongArray inflate() {
+        synchronized (base) {
+            if (cells == null) {
+                // spread what is there, or a drain would keep every thread on the base cell
+                AtomicLongArray spread = new AtomicLongArray(stripes * PADDING);
+                long moved = base.getAndSet(0, 0);
+                for (int cell = 0; cell < stripes; cell++) {
+                    spread.set(cell * PADDING, moved / stripes + (cell == 0 ? moved % stripes : 0));
+                }
+                cells = spread;
+            }
+            return cells;
+        }
+    }
+
+    private static boolean tryTake(AtomicLongArray array, int index, long amount) {
+        long current;
+        do {
+            current = array.get(index);
+            if (current < amount) {
+                return false;
+            }
+        } while (!array.compareAndSet(index, current, current - amount));
+        return true;
+    }
+
+    private static long takeUpTo(AtomicLongArray array, int index, long amount) {
+        long current;
+        long take;
+        do {
+            current = array.get(index);
+            take = Math.min(current, amount);
+            if (take <= 0) {
+                return 0;
+            }
+        } while (!array.compareAndSet(index, current, current - take));
+        return take;
+    }
+
+    private int probe() {
+        // a fixed cell per thread keeps each core on its own cache line
+        long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & (stripes - 1);
+    }
+}
@@ -0,0 +1,31 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+
+/**
+ * Too many writes in flight; answered with 503 and a Retry-After hint.
+ */
+public class WritesSaturatedException extends ResponseStatusException {
+
+    private final Duration retryAfter;
+
+    public WritesSaturatedException(Duration retryAfter) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, "Too many concurrent writes");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public HttpHeaders getResponseHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())));
+        return headers;
+    }
+}
@@ -2,19 +2,23 @@ package guru.springframework.sfgrestbrewery.web.controller;
 
 import guru.springframework.sfgrestbrewery.services.BeerService;
 import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerFields;
+import guru.springframework.sfgrestbrewery.web.model.BeerPageCursor;
 import guru.springframework.sfgrestbrewery.web.model.BeerPagedList;
 import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebInputException;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Mono;
 
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by jt on 2019-04-20.
@@ -26,19 +30,23 @@ public class BeerController {
 
     private static final Integer DEFAULT_PAGE_NUMBER = 0;
     private static final Integer DEFAULT_PAGE_SIZE = 25;
+    private static final Integer MAX_PAGE_SIZE = 1000;
 
     private final BeerService beerService;
+    private final BeerPageCache beerPageCache;
 
-    @GetMapping(produces = { "application/json" }, path = "beer")
-    public ResponseEntity<Mono<BeerPagedList>> listBeers(@RequestParam(value = "pageNumber", required = false) Integer pageNumber,
-                                                   @RequestParam(value = "pageSize", required = false) Integer pageSize,
-                                                   @RequestParam(value = "beerName", required = false) String beerName,
-                                                   @RequestParam(value = "beerStyle", required = false) BeerStyleEnum beerStyle,
-                                                   @RequestParam(value = "showInventoryOnHand", required = false) Boolean showInventoryOnHand){
+    // offset pages are served from finished response bodies in the negotiated format, gzipped when the client takes it
+    @GetMapping(produces = { "application/json", WireFormat.COMPACT_JSON_VALUE, WireFormat.SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE },
+            path = "beer", params = "!cursor")
+    public Mono<ResponseEntity<byte[]>> listBeers(@RequestParam(value = "pageNumber", required = false) Integer pageNumber,
+                                                  @RequestParam(value = "pageSize", required = false) Integer pageSize,
+                                                  @RequestParam(value = "beerName", required = false) String beerName,
+                                                  @RequestParam(value = "beerStyle", required = false) BeerStyleEnum beerStyle,
+                                                  @RequestParam(value = "showInventoryOnHand", required = false) Boolean showInventoryOnHand,
+                                                  @RequestParam(value = BeerFields.PARAM, required = false) String fields,
+                                                  @RequestHeader HttpHeaders headers){
 
-        if (showInventoryOnHand == null) {
-            showInventoryOnHand = false;
-        }
+        boolean inventory = Boolean.TRUE.equals(showInventoryOnHand);
 
         if (pageNumber == null || pageNumber < 0){
             pageNumber = DEFAULT_PAGE_NUMBER;
@@ -46,54 +54,139 @@ public class BeerController {
 
         if (pageSize == null || pageSize < 1) {
             pageSize = DEFAULT_PAGE_SIZE;
+        } else if (pageSize > MAX_PAGE_SIZE) {
+            pageSize = MAX_PAGE_SIZE;
         }
 
-        Mono<BeerPagedList> beerList = beerService.listBeers(beerName, beerStyle, PageRequest.of(pageNumber, pageSize), showInventoryOnHand);
-
-        return ResponseEntity.ok(beerList);
+        PageRequest pageRequest = PageRequest.of(pageNumber, pageSize);
+        boolean gzip = acceptsGzip(headers);
+        WireFormat format = WireFormat.negotiate(headers.getAccept());
+        BeerFields beerFields = parseFields(fields);
+
+        // not through the beer cache, which may still hold the beers a change has just cleared the page cache of
+        return beerPageCache.listBeers(format, beerName, beerStyle, pageRequest, inventory, beerFields,
+                        () -> beerService.findBeers(beerName, beerStyle, pageRequest, inventory, beerFields))
+                .map(page -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                            .contentType(format.getMediaType())
+                            .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+
+                    if (gzip && page.getGzip() != null) {
+                        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(page.getGzip());
+                    }
+                    return response.body(page.getBody());
+                });
     }
 
-    @GetMapping("beer/{beerId}")
-    public ResponseEntity<Mono<BeerDto>> getBeerById(@PathVariable("beerId") Integer beerId,
-                                                     @RequestParam(value = "showInventoryOnHand", required = false) Boolean showInventoryOnHand){
+    @GetMapping(produces = { "application/json", WireFormat.COMPACT_JSON_VALUE, WireFormat.SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE },
+            path = "beer", params = "cursor")
+    public ResponseEntity<Mono<Object>> listBeersByCursor(@RequestParam(value = "pageSize", required = false) Integer pageSize,
+                                                                 @RequestParam(value = "beerName", required = false) String beerName,
+                                                                 @RequestParam(value = "beerStyle", required = false) BeerStyleEnum beerStyle,
+                                                                 @RequestParam(value = "showInventoryOnHand", required = false) Boolean showInventoryOnHand,
+                                                                 @RequestParam(value = "cursor") String cursor,
+                                                                 @RequestParam(value = "sortBy", required = false) BeerPageCursor.SortOrder sortBy,
+                                                                 @RequestParam(value = "includeTotal", required = false) Boolean includeTotal,
+                                                                 @RequestParam(value = BeerFields.PARAM, required = false) String fields){
+        BeerFields beerFields = parseFields(fields);
+
         if (showInventoryOnHand == null) {
             showInventoryOnHand = false;
         }
 
-        return ResponseEntity.ok(beerService.getById(beerId, showInventoryOnHand));
+        if (pageSize == null || pageSize < 1) {
+            pageSize = DEFAULT_PAGE_SIZE;
+        } else if (pageSize > MAX_PAGE_SIZE) {
+            pageSize = MAX_PAGE_SIZE;
+        }
+
+        //keyset paging - an empty cursor asks for the first page
+        Mono<BeerPagedList> page = beerFields.isAll()
+                ? beerService.listBeers(beerName, beerStyle, decodeCursor(cursor, sortBy), pageSize, showInventoryOnHand,
+                        Boolean.TRUE.equals(includeTotal))
+                : beerService.listBeers(beerName, beerStyle, decodeCursor(cursor, sortBy), pageSize, showInventoryOnHand,
+                        Boolean.TRUE.equals(includeTotal), beerFields);
+
+        return ResponseEntity.ok(page.map(beerFields::wrap));
     }
 
-    @GetMapping("beerUpc/{upc}")
-    public ResponseEntity<Mono<BeerDto>> getBeerByUpc(@PathVariable("upc") String upc){
-        return ResponseEntity.ok(beerService.getByUpc(upc));
+    private static boolean acceptsGzip(HttpHeaders headers) {
+        for (String accepted : headers.getOrEmpty(HttpHeaders.ACCEPT_ENCODING)) {
+            for (String coding : accepted.split(",")) {
+                String[] parts = coding.trim().split(";");
+                if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                    return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+                }
+            }
+        }
+        return false;
     }
 
-    @PostMapping(path = "beer")
-    public ResponseEntity<Void> saveNewBeer(@RequestBody @Validated BeerDto beerDto){
+    static BeerFields parseFields(String fields) {
+        try {
+            return BeerFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ServerWebInputException(e.getMessage());
+        }
+    }
 
-        AtomicInteger beerId = new AtomicInteger();
+    private BeerPageCursor decodeCursor(String cursor, BeerPageCursor.SortOrder sortBy) {
+        if (cursor.isEmpty()) {
+            return BeerPageCursor.first(sortBy);
+        }
 
-       beerService.saveNewBeer(beerDto).subscribe(beerDtoSaved -> beerId.set(beerDtoSaved.getId()));
+        try {
+            return BeerPageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ServerWebInputException("Invalid cursor: " + cursor);
+        }
+    }
 
-        return ResponseEntity
-                .created(UriComponentsBuilder
-                        .fromHttpUrl("http://localhost:8080/api/v1/beer/" + beerId.get())
-                        .build().toUri())
-                .build();
+    // the ETag lets WebFlux answer a matching If-None-Match with 304 before the body is written
+    @GetMapping(path = "beer/{beerId}", produces = { MediaType.APPLICATION_JSON_VALUE, WireFormat.SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE })
+    public Mono<ResponseEntity<Object>> getBeerById(@PathVariable("beerId") Integer beerId,
+                                                    @RequestParam(value = "showInventoryOnHand", required = false) Boolean showInventoryOnHand,
+                                                    @RequestParam(value = BeerFields.PARAM, required = false) String fields){
+        if (showInventoryOnHand == null) {
+            showInventoryOnHand = false;
+        }
+        BeerFields beerFields = parseFields(fields);
+
+        // a single row comes whole from the beer cache; only the written properties are narrowed
+        return beerService.getById(beerId, showInventoryOnHand)
+                .map(beerDto -> ResponseEntity.ok().eTag(BeerETags.of(beerDto)).body(beerFields.wrap(beerDto)));
     }
 
-    @PutMapping("beer/{beerId}")
-    public ResponseEntity<Void> updateBeerById(@PathVariable("beerId") Integer beerId, @RequestBody @Validated BeerDto beerDto){
-        beerService.updateBeer(beerId, beerDto).subscribe();
-        return ResponseEntity.noContent().build();
+    @GetMapping(path = "beerUpc/{upc}", produces = { MediaType.APPLICATION_JSON_VALUE, WireFormat.SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE })
+    public Mono<ResponseEntity<Object>> getBeerByUpc(@PathVariable("upc") String upc,
+                                                     @RequestParam(value = BeerFields.PARAM, required = false) String fields){
+        BeerFields beerFields = parseFields(fields);
+
+        return beerService.getByUpc(upc)
+                .map(beerDto -> ResponseEntity.ok().eTag(BeerETags.of(beerDto)).body(beerFields.wrap(beerDto)));
     }
 
-    @DeleteMapping("beer/{beerId}")
-    public ResponseEntity<Void> deleteBeerById(@PathVariable("beerId") Integer beerId){
+    @PostMapping(path = "beer")
+    public Mono<ResponseEntity<Void>> saveNewBeer(@RequestBody @Validated BeerDto beerDto){
+        return beerService.saveNewBeer(beerDto)
+                .map(savedBeer -> ResponseEntity
+                        .created(UriComponentsBuilder
+                                .fromHttpUrl("http://localhost:8080/api/v1/beer/" + savedBeer.getId())
+                                .build().toUri())
+                        .build());
+    }
 
-        beerService.deleteBeerById(beerId);
+    @PutMapping("beer/{beerId}")
+    public Mono<ResponseEntity<Void>> updateBeerById(@PathVariable("beerId") Integer beerId, @RequestBody @Validated BeerDto beerDto,
+                                                     @RequestHeader HttpHeaders headers){
+        return beerService.updateBeer(beerId, beerDto, BeerETags.expectedVersion(headers.getIfMatch()))
+                .map(savedBeer -> ResponseEntity.noContent().eTag(BeerETags.of(savedBeer)).build());
+    }
 
-        return ResponseEntity.noContent().build();
+    @DeleteMapping("beer/{beerId}")
+    public Mono<ResponseEntity<Void>> deleteBeerById(@PathVariable("beerId") Integer beerId, @RequestHeader HttpHeaders headers){
+        return beerService.deleteBeerById(beerId, BeerETags.expectedVersion(headers.getIfMatch()))
+                .then(Mono.just(ResponseEntity.noContent().build()));
     }
 
 }
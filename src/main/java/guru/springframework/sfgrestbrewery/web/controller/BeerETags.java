@@ -0,0 +1,58 @@
+package guru.springframework.sfgrestbrewery.web.controller;
+
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+
+import java.util.List;
+
+/**
+ * Beer entity tags: the quoted row version, shared by both API generations. A beer's ETag changes exactly
+ * when its row is updated. Representations with inventory also carry the quantity on hand, as the inventory
+ * write-behind changes it without a new version.
+ */
+public final class BeerETags {
+
+    // a version no row ever has, so an If-Match we did not issue always fails
+    private static final long UNMATCHABLE_VERSION = -1L;
+
+    private BeerETags() {
+    }
+
+    public static String of(BeerDto beerDto) {
+        if (beerDto.getQuantityOnHand() != null) {
+            return "\"" + beerDto.getVersion() + "-" + beerDto.getQuantityOnHand() + "\"";
+        }
+        return "\"" + beerDto.getVersion() + "\"";
+    }
+
+    /**
+     * The version a conditional write expects, from the If-Match values; {@code null} when the write is
+     * unconditional (no If-Match, or {@code *}). Only the first strong tag counts, as weak tags never match
+     * for If-Match.
+     */
+    public static Long expectedVersion(List<String> ifMatch) {
+        if (ifMatch.isEmpty() || ifMatch.contains("*")) {
+            return null;
+        }
+
+        return ifMatch.stream()
+                .filter(tag -> !tag.startsWith("W/"))
+                .findFirst()
+                .map(BeerETags::version)
+                .orElse(UNMATCHABLE_VERSION);
+    }
+
+    private static long version(String tag) {
+        if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            return UNMATCHABLE_VERSION;
+        }
+
+        String value = tag.substring(1, tag.length() - 1);
+        int quantity = value.indexOf('-');
+
+        try {
+            return Long.parseLong(quantity > 0 ? value.substring(0, quantity) : value);
+        } catch (NumberFormatException e) {
+            return UNMATCHABLE_VERSION;
+        }
+    }
+}
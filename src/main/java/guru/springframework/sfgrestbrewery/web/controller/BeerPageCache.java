@@ -0,0 +1,175 @@
+package guru.springframework.sfgrestbrewery.web.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import guru.springframework.sfgrestbrewery.services.BeerEventPublisher;
+import guru.springframework.sfgrestbrewery.web.model.BeerFields;
+import guru.springframework.sfgrestbrewery.web.model.BeerPagedList;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Catalog list pages as finished response bodies, one per {@link WireFormat}: the encoded page and, for bodies
+ * worth compressing, its gzip encoding, so a hit costs neither a query, nor mapping, nor Jackson, nor
+ * compression. Bounded by the total bytes held rather than by entry count, since a page of 1000 beers weighs as
+ * much as hundreds of small ones.
+ *
+ * Emptied by every beer change event, so loaders must read the database rather than the beer cache, which is
+ * emptied by a subscriber of its own and may not be yet. Pages with inventory are encoded but not kept, as the
+ * inventory write-behind changes quantities without events.
+ */
+@Slf4j
+@Component
+public class BeerPageCache implements InitializingBean, DisposableBean, MeterBinder {
+
+    private final Map<WireFormat, ObjectMapper> objectMappers = new EnumMap<>(WireFormat.class);
+    private final BeerEventPublisher beerEventPublisher;
+    private final AsyncCache<PageKey, EncodedPage> pages;
+    private final int compressionMinSize;
+
+    private Disposable subscription;
+
+    public BeerPageCache(ObjectMapper objectMapper, Jackson2ObjectMapperBuilder objectMapperBuilder,
+                         BeerEventPublisher beerEventPublisher,
+                         @Value("${sfg.brewery.page-cache.max-bytes:16MB}") DataSize maxBytes,
+                         @Value("${sfg.brewery.page-cache.compression-min-size:2KB}") DataSize compressionMinSize,
+                         @Value("${sfg.brewery.cache.time-to-live:5m}") Duration timeToLive) {
+        for (WireFormat format : WireFormat.values()) {
+            // JSON goes through the application's mapper, so cached pages match everything else it writes
+            objectMappers.put(format, format.isBinary()
+                    ? format.objectMapper(objectMapperBuilder) : objectMapper);
+        }
+        this.beerEventPublisher = beerEventPublisher;
+        this.compressionMinSize = (int) compressionMinSize.toBytes();
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(maxBytes.toBytes())
+                .weigher((PageKey key, EncodedPage page) -> page.weight())
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .buildAsync();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        // invalidateAll also drops loads still in flight, so a page read before a change is never kept
+        subscription = beerEventPublisher.events(null)
+                .subscribe(event -> pages.synchronous().invalidateAll(), e -> {
+                    log.warn("Beer event stream failed, clearing the page cache", e);
+                    pages.synchronous().invalidateAll();
+                    afterPropertiesSet();
+                });
+    }
+
+    public Mono<EncodedPage> listBeers(WireFormat format, String beerName, BeerStyleEnum beerStyle, PageRequest pageRequest,
+                                       boolean showInventoryOnHand, Supplier<Mono<BeerPagedList>> loader) {
+        return listBeers(format, beerName, beerStyle, pageRequest, showInventoryOnHand, BeerFields.ALL, loader);
+    }
+
+    /**
+     * As above, writing only {@code fields} of each beer; every fieldset is a page of its own.
+     */
+    public Mono<EncodedPage> listBeers(WireFormat format, String beerName, BeerStyleEnum beerStyle, PageRequest pageRequest,
+                                       boolean showInventoryOnHand, BeerFields fields, Supplier<Mono<BeerPagedList>> loader) {
+        if (showInventoryOnHand) {
+            return loader.get().map(page -> encode(format, page, fields));
+        }
+
+        PageKey key = new PageKey(format, beerName, beerStyle, pageRequest.getPageNumber(), pageRequest.getPageSize(), fields);
+        // copy() so a cancelled request cannot cancel the shared load, as in BeerCache
+        return Mono.defer(() -> Mono.fromFuture(pages.get(key, (k, executor) -> loader.get().map(page -> encode(format, page, fields)).toFuture()).copy()));
+    }
+
+    EncodedPage encode(WireFormat format, BeerPagedList page) {
+        return encode(format, page, BeerFields.ALL);
+    }
+
+    EncodedPage encode(WireFormat format, BeerPagedList page, BeerFields fields) {
+        try {
+            ObjectMapper objectMapper = objectMappers.get(format);
+            byte[] body = (fields.isAll() ? objectMapper.writer() : objectMapper.writer(fields.filters()))
+                    .writeValueAsBytes(format.envelope(page));
+            return new EncodedPage(format, body, body.length >= compressionMinSize ? gzip(body) : null);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    public long weightedSize() {
+        // run pending evictions first, they are otherwise applied asynchronously
+        pages.synchronous().cleanUp();
+        return pages.synchronous().policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+    }
+
+    @Override
+    public void destroy() {
+        subscription.dispose();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, pages.synchronous(), "beerPageCache");
+        Gauge.builder("beer.page.cache.bytes", this, BeerPageCache::weightedSize)
+                .description("Bytes of encoded list pages held")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * A list page ready to write; the arrays are shared between requests and must not be modified.
+     */
+    @lombok.Value
+    public static class EncodedPage {
+        WireFormat format;
+        byte[] body;
+        // null when the page is too small for compression to pay off
+        byte[] gzip;
+
+        int weight() {
+            return body.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+
+    @lombok.Value
+    static class PageKey {
+        WireFormat format;
+        String beerName;
+        BeerStyleEnum beerStyle;
+        int pageNumber;
+        int pageSize;
+        BeerFields fields;
+    }
+}
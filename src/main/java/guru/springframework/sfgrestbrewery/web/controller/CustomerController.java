@@ -2,11 +2,12 @@ package guru.springframework.sfgrestbrewery.web.controller;
 
 import guru.springframework.sfgrestbrewery.services.CustomerService;
 import guru.springframework.sfgrestbrewery.web.model.CustomerDto;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
 
 import java.util.UUID;
 
@@ -24,31 +25,33 @@ public class CustomerController {
         this.customerService = customerService;
     }
 
-    @GetMapping("/{customerId}")
-    public ResponseEntity<CustomerDto> getCustomer(@PathVariable("customerId")  UUID customerId){
-
-        return new ResponseEntity<>(customerService.getCustomerById(customerId), HttpStatus.OK);
+    @GetMapping(path = "/{customerId}", produces = { MediaType.APPLICATION_JSON_VALUE, WireFormat.SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE })
+    public Mono<ResponseEntity<CustomerDto>> getCustomer(@PathVariable("customerId")  UUID customerId){
+        return customerService.getCustomerById(customerId)
+                .map(ResponseEntity::ok)
+                .switchIfEmpty(Mono.error(NotFoundException::new));
     }
 
     @PostMapping
-    public ResponseEntity handlePost(@RequestBody @Validated CustomerDto customerDto){
-        CustomerDto savedDto = customerService.saveNewCustomer(customerDto);
-
-        HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.add("Location", "/api/v1/customer/" + savedDto.getId().toString());
-
-        return new ResponseEntity(httpHeaders, HttpStatus.CREATED);
+    public Mono<ResponseEntity<Void>> handlePost(@RequestBody @Validated CustomerDto customerDto){
+        return customerService.saveNewCustomer(customerDto)
+                .map(savedDto -> ResponseEntity
+                        .created(UriComponentsBuilder
+                                .fromHttpUrl("http://localhost:8080/api/v1/customer/" + savedDto.getId())
+                                .build().toUri())
+                        .build());
     }
 
     @PutMapping("/{customerId}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void handleUpdate(@PathVariable("customerId") UUID customerId, @Validated @RequestBody CustomerDto customerDto){
-        customerService.updateCustomer(customerId, customerDto);
+    public Mono<ResponseEntity<Void>> handleUpdate(@PathVariable("customerId") UUID customerId, @Validated @RequestBody CustomerDto customerDto){
+        return customerService.updateCustomer(customerId, customerDto)
+                .map(savedDto -> ResponseEntity.noContent().build());
     }
 
     @DeleteMapping("/{customerId}")
-    public void deleteById(@PathVariable("customerId")  UUID customerId){
-        customerService.deleteById(customerId);
+    public Mono<ResponseEntity<Void>> deleteById(@PathVariable("customerId")  UUID customerId){
+        return customerService.deleteById(customerId)
+                .then(Mono.just(ResponseEntity.noContent().build()));
     }
 
 }
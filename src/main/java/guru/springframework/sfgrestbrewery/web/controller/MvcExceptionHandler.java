@@ -1,5 +1,8 @@
 package guru.springframework.sfgrestbrewery.web.controller;
 
+import guru.springframework.sfgrestbrewery.services.WritesSaturatedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.relational.core.sql.Not;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -37,4 +40,25 @@ public class MvcExceptionHandler {
     public ResponseEntity<String> handleNotFoundException(NotFoundException ex){
         return new ResponseEntity("RESOURCE NOT FOUND", HttpStatus.NOT_FOUND);
     }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<Void> handlePreconditionFailedException(PreconditionFailedException ex){
+        return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Void> handleOptimisticLockingFailureException(OptimisticLockingFailureException ex){
+        return new ResponseEntity<>(HttpStatus.CONFLICT);
+    }
+
+    // a duplicate UPC under the unique upc index
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Void> handleDataIntegrityViolationException(DataIntegrityViolationException ex){
+        return new ResponseEntity<>(HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(WritesSaturatedException.class)
+    public ResponseEntity<Void> handleWritesSaturatedException(WritesSaturatedException ex){
+        return new ResponseEntity<>(ex.getResponseHeaders(), ex.getStatus());
+    }
 }
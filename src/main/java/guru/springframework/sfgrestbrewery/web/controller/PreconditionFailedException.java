@@ -0,0 +1,7 @@
+package guru.springframework.sfgrestbrewery.web.controller;
+
+/**
+ * The beer no longer has the version the client's If-Match asked for.
+ */
+public class PreconditionFailedException extends RuntimeException {
+}
@@ -0,0 +1,93 @@
+package guru.springframework.sfgrestbrewery.web.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import guru.springframework.sfgrestbrewery.web.model.BeerPage;
+import guru.springframework.sfgrestbrewery.web.model.BeerPagedList;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.server.NotAcceptableStatusException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Response encodings offered by both API generations. Plain JSON keeps the full page shape for existing
+ * clients; the others, meant for service to service traffic, send pages as the compact {@link BeerPage}.
+ */
+public enum WireFormat {
+
+    JSON(MediaType.APPLICATION_JSON, false, JsonFactory::new),
+    COMPACT_JSON(MediaType.valueOf(WireFormat.COMPACT_JSON_VALUE), true, JsonFactory::new),
+    SMILE(MediaType.valueOf(WireFormat.SMILE_VALUE), true, SmileFactory::new),
+    CBOR(MediaType.APPLICATION_CBOR, true, CBORFactory::new);
+
+    public static final String COMPACT_JSON_VALUE = "application/vnd.sfg.compact+json";
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    private final MediaType mediaType;
+    private final boolean compact;
+    private final Supplier<JsonFactory> jsonFactory;
+
+    WireFormat(MediaType mediaType, boolean compact, Supplier<JsonFactory> jsonFactory) {
+        this.mediaType = mediaType;
+        this.compact = compact;
+        this.jsonFactory = jsonFactory;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    public boolean isBinary() {
+        return this == SMILE || this == CBOR;
+    }
+
+    /**
+     * The page as this format sends it.
+     */
+    public Object envelope(BeerPagedList page) {
+        return compact ? BeerPage.of(page) : page;
+    }
+
+    /**
+     * An ObjectMapper for this format, configured as the application's JSON one is.
+     */
+    public ObjectMapper objectMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.factory(jsonFactory.get()).build();
+    }
+
+    /**
+     * The format the client prefers, by quality and specificity; plain JSON without an Accept header.
+     */
+    public static WireFormat negotiate(List<MediaType> accept) {
+        if (accept.isEmpty()) {
+            return JSON;
+        }
+
+        List<MediaType> preferred = new ArrayList<>(accept);
+        MediaType.sortBySpecificityAndQuality(preferred);
+
+        for (MediaType accepted : preferred) {
+            if (accepted.getQualityValue() == 0) {
+                continue;
+            }
+            for (WireFormat format : values()) {
+                if (accepted.isCompatibleWith(format.mediaType)) {
+                    return format;
+                }
+            }
+        }
+
+        throw new NotAcceptableStatusException(Arrays.stream(values()).map(WireFormat::getMediaType).collect(Collectors.toList()));
+    }
+}
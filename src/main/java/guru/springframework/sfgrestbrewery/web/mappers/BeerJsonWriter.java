@@ -0,0 +1,150 @@
+package guru.springframework.sfgrestbrewery.web.mappers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import guru.springframework.sfgrestbrewery.domain.Beer;
+import guru.springframework.sfgrestbrewery.web.model.BeerFields;
+import guru.springframework.sfgrestbrewery.web.model.BeerFields.Field;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes a beer row as the JSON of its {@link guru.springframework.sfgrestbrewery.web.model.BeerDto},
+ * field by field, into a buffer from the response's own (pooled, on Netty) factory. Read-only streams use
+ * it to skip the intermediate BeerDto and Jackson's bean introspection for every row.
+ *
+ * The output must stay byte for byte what the DTO serializes to; BeerJsonWriterTest compares the two.
+ */
+@Component
+public class BeerJsonWriter {
+
+    // roomy enough for a typical beer, so the buffer rarely grows
+    private static final int INITIAL_CAPACITY = 256;
+    private static final byte NEWLINE = '\n';
+
+    private final JsonFactory jsonFactory;
+    private final boolean datesAsTimestamps;
+
+    public BeerJsonWriter(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.datesAsTimestamps = objectMapper.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    /**
+     * @return the beer as one line of newline delimited JSON; the caller owns (and releases) the buffer
+     */
+    public DataBuffer writeLine(Beer beer, boolean showInventoryOnHand, DataBufferFactory bufferFactory) {
+        return writeLine(beer, showInventoryOnHand, BeerFields.ALL, bufferFactory);
+    }
+
+    /**
+     * As above, with only the given properties, as the BeerDto is written through {@link BeerFields#filters()}.
+     */
+    public DataBuffer writeLine(Beer beer, boolean showInventoryOnHand, BeerFields fields, DataBufferFactory bufferFactory) {
+        DataBuffer buffer = bufferFactory.allocateBuffer(INITIAL_CAPACITY);
+
+        try (JsonGenerator generator = jsonFactory.createGenerator(buffer.asOutputStream())) {
+            write(beer, showInventoryOnHand, fields, generator);
+        } catch (IOException | RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            throw e instanceof IOException ? new UncheckedIOException((IOException) e) : (RuntimeException) e;
+        }
+
+        return buffer.write(NEWLINE);
+    }
+
+    public void write(Beer beer, boolean showInventoryOnHand, JsonGenerator generator) throws IOException {
+        write(beer, showInventoryOnHand, BeerFields.ALL, generator);
+    }
+
+    public void write(Beer beer, boolean showInventoryOnHand, BeerFields fields, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+
+        if (fields.includes(Field.ID)) {
+            if (beer.getId() == null) {
+                generator.writeNullField("id");
+            } else {
+                generator.writeNumberField("id", beer.getId());
+            }
+        }
+        if (fields.includes(Field.VERSION)) {
+            if (beer.getVersion() == null) {
+                generator.writeNullField("version");
+            } else {
+                generator.writeNumberField("version", beer.getVersion());
+            }
+        }
+        if (fields.includes(Field.BEER_NAME)) {
+            writeString(generator, "beerName", beer.getBeerName());
+        }
+        if (fields.includes(Field.BEER_STYLE)) {
+            writeString(generator, "beerStyle", beer.getBeerStyle() == null ? null : beer.getBeerStyle().name());
+        }
+        if (fields.includes(Field.UPC)) {
+            writeString(generator, "upc", beer.getUpc());
+        }
+        if (fields.includes(Field.PRICE)) {
+            if (beer.getPrice() == null) {
+                generator.writeNullField("price");
+            } else {
+                generator.writeNumberField("price", beer.getPrice());
+            }
+        }
+        if (fields.includes(Field.QUANTITY_ON_HAND)) {
+            if (!showInventoryOnHand || beer.getQuantityOnHand() == null) {
+                generator.writeNullField("quantityOnHand");
+            } else {
+                generator.writeNumberField("quantityOnHand", beer.getQuantityOnHand());
+            }
+        }
+        if (fields.includes(Field.CREATED_DATE)) {
+            writeDateTime(generator, "createdDate", beer.getCreatedDate());
+        }
+        if (fields.includes(Field.LAST_UPDATED_DATE)) {
+            // BeerMapper does not map lastModifiedDate either
+            generator.writeNullField("lastUpdatedDate");
+        }
+
+        generator.writeEndObject();
+    }
+
+    private static void writeString(JsonGenerator generator, String field, String value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(field);
+        } else {
+            generator.writeStringField(field, value);
+        }
+    }
+
+    private void writeDateTime(JsonGenerator generator, String field, LocalDateTime value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(field);
+        } else if (datesAsTimestamps) {
+            // as Jackson's LocalDateTimeSerializer writes them, trailing zero fields omitted
+            generator.writeArrayFieldStart(field);
+            generator.writeNumber(value.getYear());
+            generator.writeNumber(value.getMonthValue());
+            generator.writeNumber(value.getDayOfMonth());
+            generator.writeNumber(value.getHour());
+            generator.writeNumber(value.getMinute());
+            if (value.getSecond() > 0 || value.getNano() > 0) {
+                generator.writeNumber(value.getSecond());
+                if (value.getNano() > 0) {
+                    generator.writeNumber(value.getNano());
+                }
+            }
+            generator.writeEndArray();
+        } else {
+            generator.writeStringField(field, DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value));
+        }
+    }
+}
@@ -16,5 +16,6 @@ public interface BeerMapper {
 
     BeerDto beerToBeerDtoWithInventory(Beer beer);
 
+    @Mapping(target = "version", ignore = true)
     Beer beerDtoToBeer(BeerDto dto);
 }
@@ -24,6 +24,9 @@ public class BeerDto {
     @Null
     private Integer id;
 
+    // read only, also sent as the ETag; writes are made conditional through If-Match instead
+    private Long version;
+
     @NotBlank
     private String beerName;
 
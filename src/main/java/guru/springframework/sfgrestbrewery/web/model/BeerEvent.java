@@ -0,0 +1,46 @@
+package guru.springframework.sfgrestbrewery.web.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A committed change to a beer. Sequence numbers are assigned in commit order and are what a subscriber
+ * resumes from; they restart with the process.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BeerEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED,
+        /**
+         * The events after the requested sequence are no longer retained, or the catalog was replaced: reload
+         * state before applying the events that follow.
+         */
+        RESET
+    }
+
+    private long sequence;
+
+    private Type type;
+
+    private Integer beerId;
+
+    private String upc;
+
+    // set when an update changed the UPC
+    private String previousUpc;
+
+    // the beer after the change; absent for deletes
+    private BeerDto beer;
+
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,158 @@
+package guru.springframework.sfgrestbrewery.web.model;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The {@link BeerDto} properties a read asks for with {@code fields=id,beerName,price}. The beer columns behind
+ * them are the only ones selected, and only those properties are written, through the {@link #FILTER_ID}
+ * Jackson filter. An absent or empty parameter means every property.
+ */
+public final class BeerFields {
+
+    public static final String PARAM = "fields";
+    public static final String FILTER_ID = "beerFields";
+
+    public static final BeerFields ALL = new BeerFields(EnumSet.allOf(Field.class));
+
+    public enum Field {
+        ID("id", "id"),
+        VERSION("version", "version"),
+        BEER_NAME("beerName", "beer_name"),
+        BEER_STYLE("beerStyle", "beer_style"),
+        UPC("upc", "upc"),
+        PRICE("price", "price"),
+        QUANTITY_ON_HAND("quantityOnHand", "quantity_on_hand"),
+        CREATED_DATE("createdDate", "created_date"),
+        // not mapped from the row, always null
+        LAST_UPDATED_DATE("lastUpdatedDate", null);
+
+        private final String property;
+        private final String column;
+
+        Field(String property, String column) {
+            this.property = property;
+            this.column = column;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+    }
+
+    private final Set<Field> fields;
+
+    private BeerFields(Set<Field> fields) {
+        this.fields = Collections.unmodifiableSet(fields);
+    }
+
+    public static BeerFields of(Field... fields) {
+        return fields.length == 0 ? ALL : new BeerFields(EnumSet.copyOf(Arrays.asList(fields)));
+    }
+
+    /**
+     * @throws IllegalArgumentException naming the first property a BeerDto does not have
+     */
+    public static BeerFields parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+
+        EnumSet<Field> parsed = EnumSet.noneOf(Field.class);
+        for (String property : fields.split(",")) {
+            String trimmed = property.trim();
+            if (!trimmed.isEmpty()) {
+                parsed.add(Arrays.stream(Field.values())
+                        .filter(field -> field.property.equals(trimmed))
+                        .findFirst()
+                        .orElseThrow(() -> new IllegalArgumentException("Unknown beer field: " + trimmed)));
+            }
+        }
+        return parsed.isEmpty() || parsed.size() == Field.values().length ? ALL : new BeerFields(parsed);
+    }
+
+    public boolean isAll() {
+        return this == ALL;
+    }
+
+    public boolean includes(Field field) {
+        return fields.contains(field);
+    }
+
+    public BeerFields without(Field field) {
+        if (!fields.contains(field)) {
+            return this;
+        }
+
+        EnumSet<Field> remaining = EnumSet.copyOf(fields);
+        remaining.remove(field);
+        return new BeerFields(remaining);
+    }
+
+    /**
+     * The beer columns to select: those behind the requested properties plus {@code required} ones, such as
+     * the sort key a cursor needs.
+     */
+    public List<String> columns(Field... required) {
+        EnumSet<Field> selected = EnumSet.copyOf(fields);
+        selected.addAll(Arrays.asList(required));
+
+        return selected.stream()
+                .filter(field -> field.column != null)
+                .map(field -> field.column)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Jackson filters writing only the requested properties of a BeerDto.
+     */
+    public FilterProvider filters() {
+        return new SimpleFilterProvider().addFilter(FILTER_ID, isAll() ? SimpleBeanPropertyFilter.serializeAll()
+                : SimpleBeanPropertyFilter.filterOutAllExcept(fields.stream().map(Field::getProperty).collect(Collectors.toSet())));
+    }
+
+    /**
+     * {@code value} (a BeerDto, or anything holding them) for the Jackson encoders, written with {@link #filters()}.
+     */
+    public Object wrap(Object value) {
+        if (isAll()) {
+            return value;
+        }
+
+        MappingJacksonValue wrapped = new MappingJacksonValue(value);
+        wrapped.setFilters(filters());
+        return wrapped;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof BeerFields && fields.equals(((BeerFields) o).fields));
+    }
+
+    @Override
+    public int hashCode() {
+        return fields.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return fields.stream().map(Field::getProperty).collect(Collectors.joining(","));
+    }
+
+    /**
+     * Mixed into BeerDto by the application's ObjectMappers, so that only they look for the filter.
+     */
+    @JsonFilter(FILTER_ID)
+    public interface FilteredMixin {
+    }
+}
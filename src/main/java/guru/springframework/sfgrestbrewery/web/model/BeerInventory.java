@@ -0,0 +1,25 @@
+package guru.springframework.sfgrestbrewery.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Live stock of one beer: what is on hand, how much of it is held by open reservations, and what can still
+ * be reserved.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BeerInventory {
+
+    private Integer beerId;
+
+    private long onHand;
+
+    private long reserved;
+
+    private long available;
+}
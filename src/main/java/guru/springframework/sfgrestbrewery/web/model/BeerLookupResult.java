@@ -0,0 +1,26 @@
+package guru.springframework.sfgrestbrewery.web.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One requested key of a {@link BeerLookupRequest}: the id or UPC asked for, and the beer if it exists.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BeerLookupResult {
+
+    private Integer id;
+
+    private String upc;
+
+    private boolean found;
+
+    private BeerDto beer;
+}
@@ -0,0 +1,41 @@
+package guru.springframework.sfgrestbrewery.web.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Compact envelope for a page of beers, sent instead of the full {@link BeerPagedList} shape (pageable,
+ * sort, first, last, ...) to clients asking for a compact or binary format.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BeerPage {
+
+    private List<BeerDto> content;
+
+    private int pageNumber;
+
+    private int pageSize;
+
+    private long totalElements;
+
+    private String nextCursor;
+
+    public static BeerPage of(BeerPagedList page) {
+        return BeerPage.builder()
+                .content(page.getContent())
+                .pageNumber(page.getNumber())
+                .pageSize(page.getSize())
+                .totalElements(page.getTotalElements())
+                .nextCursor(page.getNextCursor())
+                .build();
+    }
+}
@@ -0,0 +1,67 @@
+package guru.springframework.sfgrestbrewery.web.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque position in a keyset (seek) paged beer listing: the sort order plus the sort key of the last
+ * beer on the previous page. Clients only ever see the encoded token.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class BeerPageCursor {
+
+    public enum SortOrder {
+        ID, BEER_NAME
+    }
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SortOrder sortOrder;
+    private final Integer lastId;
+    private final String lastBeerName;
+
+    public static BeerPageCursor first(SortOrder sortOrder) {
+        return new BeerPageCursor(sortOrder == null ? SortOrder.ID : sortOrder, null, null);
+    }
+
+    public boolean isFirst() {
+        return lastId == null;
+    }
+
+    public BeerPageCursor after(BeerDto lastBeer) {
+        return new BeerPageCursor(sortOrder, lastBeer.getId(),
+                sortOrder == SortOrder.BEER_NAME ? lastBeer.getBeerName() : null);
+    }
+
+    public String encode() {
+        String raw = sortOrder == SortOrder.BEER_NAME ? "N" + lastId + ":" + lastBeerName : "I" + lastId;
+        return ENCODER.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static BeerPageCursor decode(String token) {
+        String raw = new String(DECODER.decode(token), StandardCharsets.UTF_8);
+
+        try {
+            if (raw.startsWith("I")) {
+                return new BeerPageCursor(SortOrder.ID, Integer.valueOf(raw.substring(1)), null);
+            } else if (raw.startsWith("N") && raw.indexOf(':') > 1) {
+                int separator = raw.indexOf(':');
+                return new BeerPageCursor(SortOrder.BEER_NAME, Integer.valueOf(raw.substring(1, separator)),
+                        raw.substring(separator + 1));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid beer page cursor", e);
+        }
+
+        throw new IllegalArgumentException("Invalid beer page cursor");
+    }
+}
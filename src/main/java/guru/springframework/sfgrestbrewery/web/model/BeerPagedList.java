@@ -2,6 +2,7 @@ package guru.springframework.sfgrestbrewery.web.model;
 
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.springframework.data.domain.PageImpl;
@@ -18,6 +19,15 @@ public class BeerPagedList extends PageImpl<BeerDto> implements Serializable {
 
     static final long serialVersionUID = 1114715135625836949L;
 
+    /**
+     * The total of a keyset page that was listed without counting it; totalPages is -1 as well, and whether
+     * there is a next page follows from nextCursor.
+     */
+    public static final long UNKNOWN_TOTAL = -1;
+
+    private final String nextCursor;
+    private final boolean totalKnown;
+
     @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
     public BeerPagedList(@JsonProperty("content") List<BeerDto> content,
                          @JsonProperty("number") int number,
@@ -28,16 +38,50 @@ public class BeerPagedList extends PageImpl<BeerDto> implements Serializable {
                          @JsonProperty("totalPages") int totalPages,
                          @JsonProperty("sort") JsonNode sort,
                          @JsonProperty("first") boolean first,
-                         @JsonProperty("numberOfElements") int numberOfElements) {
+                         @JsonProperty("numberOfElements") int numberOfElements,
+                         @JsonProperty("nextCursor") String nextCursor) {
 
-        super(content, PageRequest.of(number, size), totalElements);
+        super(content, PageRequest.of(number, size), Math.max(totalElements, 0));
+        this.nextCursor = nextCursor;
+        this.totalKnown = totalElements != UNKNOWN_TOTAL;
     }
 
     public BeerPagedList(List<BeerDto> content, Pageable pageable, long total) {
-        super(content, pageable, total);
+        this(content, pageable, total, null);
+    }
+
+    public BeerPagedList(List<BeerDto> content, Pageable pageable, long total, String nextCursor) {
+        super(content, pageable, Math.max(total, 0));
+        this.nextCursor = nextCursor;
+        this.totalKnown = total != UNKNOWN_TOTAL;
     }
 
     public BeerPagedList(List<BeerDto> content) {
         super(content);
+        this.nextCursor = null;
+        this.totalKnown = true;
+    }
+
+    @Override
+    public long getTotalElements() {
+        return totalKnown ? super.getTotalElements() : UNKNOWN_TOTAL;
+    }
+
+    @Override
+    public int getTotalPages() {
+        return totalKnown ? super.getTotalPages() : -1;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return totalKnown ? super.hasNext() : nextCursor != null;
+    }
+
+    /**
+     * Cursor for the following page of a keyset paged listing, null on the last page and in offset paging.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getNextCursor() {
+        return nextCursor;
     }
 }
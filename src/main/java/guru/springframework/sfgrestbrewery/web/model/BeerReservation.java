@@ -0,0 +1,27 @@
+package guru.springframework.sfgrestbrewery.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Stock held for a client until it is committed or released, or until it expires.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BeerReservation {
+
+    private UUID id;
+
+    private Integer beerId;
+
+    private int quantity;
+
+    private LocalDateTime expiresAt;
+}
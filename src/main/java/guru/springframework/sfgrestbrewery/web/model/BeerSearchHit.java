@@ -0,0 +1,27 @@
+package guru.springframework.sfgrestbrewery.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A beer matching a search, as held by the search index. {@code score} is the share of grams the query and
+ * the beer's name and style have in common, 1 for an exact match.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BeerSearchHit {
+
+    private Integer id;
+
+    private String beerName;
+
+    private String beerStyle;
+
+    private String upc;
+
+    private double score;
+}
@@ -0,0 +1,26 @@
+package guru.springframework.sfgrestbrewery.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of search hits, best first, and how many beers matched in all.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BeerSearchPage {
+
+    private List<BeerSearchHit> content;
+
+    private int pageNumber;
+
+    private int pageSize;
+
+    private long totalElements;
+}
@@ -0,0 +1,24 @@
+package guru.springframework.sfgrestbrewery.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a beer catalog snapshot export or import.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BeerSnapshotResult {
+
+    private String file;
+
+    private long beers;
+
+    private long bytes;
+
+    private long elapsedMillis;
+}
@@ -0,0 +1,31 @@
+package guru.springframework.sfgrestbrewery.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Catalog totals for one beer style. Prices are over the beers that have one, and {@code avgPrice} is rounded
+ * to cents; all three are absent when none do.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BeerStyleStatistics {
+
+    private String beerStyle;
+
+    private long count;
+
+    private long totalInventory;
+
+    private BigDecimal minPrice;
+
+    private BigDecimal avgPrice;
+
+    private BigDecimal maxPrice;
+}
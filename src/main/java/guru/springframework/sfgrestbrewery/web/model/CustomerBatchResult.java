@@ -0,0 +1,33 @@
+package guru.springframework.sfgrestbrewery.web.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outcome of one item of a bulk customer create / update, reported in input order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CustomerBatchResult {
+
+    public enum Status {
+        CREATED, UPDATED, NOT_FOUND, INVALID, FAILED
+    }
+
+    private long index;
+
+    private Status status;
+
+    private UUID id;
+
+    private List<String> errors;
+}
@@ -9,4 +9,4 @@ CREATE TABLE if NOT EXISTS beer
     price          decimal,
     created_date   timestamp,
     last_modified_date timestamp
-);
\ No newline at end of file
+);
@@ -0,0 +1,3 @@
+CREATE UNIQUE INDEX if NOT EXISTS beer_upc_idx ON beer (upc);
+CREATE INDEX if NOT EXISTS beer_style_name_idx ON beer (beer_style, beer_name);
+CREATE INDEX if NOT EXISTS beer_name_idx ON beer (beer_name);
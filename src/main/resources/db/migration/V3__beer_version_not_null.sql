@@ -0,0 +1,3 @@
+UPDATE beer SET version = 0 WHERE version IS NULL;
+ALTER TABLE beer ALTER COLUMN version SET DEFAULT 0;
+ALTER TABLE beer ALTER COLUMN version SET NOT NULL;
@@ -0,0 +1,8 @@
+CREATE TABLE if NOT EXISTS customer
+(
+    id                 binary(16) NOT NULL PRIMARY KEY,
+    version            integer NOT NULL DEFAULT 0,
+    name               varchar(100) NOT NULL,
+    created_date       timestamp,
+    last_modified_date timestamp
+);
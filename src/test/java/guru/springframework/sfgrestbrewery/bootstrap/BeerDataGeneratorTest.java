@@ -0,0 +1,59 @@
+package guru.springframework.sfgrestbrewery.bootstrap;
+
+import guru.springframework.sfgrestbrewery.domain.Beer;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BeerDataGeneratorTest {
+
+    @Test
+    void generatesValidUniqueUpcs() {
+        List<Beer> beers = new BeerDataGenerator(1).generate(1000).collectList().block();
+
+        assertThat(beers).hasSize(1000);
+        assertThat(beers).extracting(Beer::getUpc).doesNotHaveDuplicates().allMatch(BeerDataGeneratorTest::isValidEan13);
+    }
+
+    @Test
+    void isDeterministicForSeed() {
+        List<String> first = new BeerDataGenerator(7).generate(50).map(Beer::getBeerName).collectList().block();
+        List<String> second = new BeerDataGenerator(7).generate(50).map(Beer::getBeerName).collectList().block();
+
+        assertThat(first).isEqualTo(second);
+    }
+
+    @Test
+    void followsStyleDistribution() {
+        Map<BeerStyleEnum, Long> styles = new BeerDataGenerator(3).generate(10000).map(Beer::getBeerStyle)
+                .collectList().block().stream()
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+
+        assertThat(styles).containsOnlyKeys(BeerStyleEnum.values());
+        assertThat(styles.get(BeerStyleEnum.IPA)).isGreaterThan(styles.get(BeerStyleEnum.GOSE) * 4);
+    }
+
+    @Test
+    void knownSeedUpcIsValid() {
+        assertThat(isValidEan13(BeerLoader.BEER_1_UPC)).isTrue();
+    }
+
+    private static boolean isValidEan13(String upc) {
+        if (upc.length() != 13) {
+            return false;
+        }
+
+        int sum = 0;
+        for (int i = 0; i < 13; i++) {
+            int digit = upc.charAt(i) - '0';
+            sum += i % 2 == 0 ? digit : digit * 3;
+        }
+        return sum % 10 == 0;
+    }
+}
@@ -0,0 +1,29 @@
+package guru.springframework.sfgrestbrewery.bootstrap;
+
+import guru.springframework.sfgrestbrewery.repositories.BeerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class BeerLoaderTest {
+
+    @Test
+    void failedSeedLeavesReadinessDown() {
+        BeerRepository beerRepository = mock(BeerRepository.class);
+        given(beerRepository.count()).willReturn(Mono.error(new IllegalStateException("no database")));
+        BeerLoader beerLoader = new BeerLoader(beerRepository, null, null, null);
+
+        assertThatThrownBy(() -> beerLoader.loadBeerObjects().block()).hasMessage("no database");
+
+        assertThat(beerLoader.health().block().getStatus()).isEqualTo(Status.DOWN);
+        assertThat(beerLoader.health().block().getDetails()).containsEntry("beerLoader", "failed");
+        assertThatThrownBy(() -> beerLoader.loaded().block(Duration.ofSeconds(1))).hasMessage("no database");
+    }
+}
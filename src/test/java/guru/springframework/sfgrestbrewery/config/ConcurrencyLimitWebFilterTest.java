@@ -0,0 +1,99 @@
+package guru.springframework.sfgrestbrewery.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static guru.springframework.sfgrestbrewery.config.ConcurrencyLimitWebFilter.Routes.READ;
+import static guru.springframework.sfgrestbrewery.config.ConcurrencyLimitWebFilter.Routes.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitWebFilterTest {
+
+    @Test
+    void classifiesBeerRoutes() {
+        assertThat(routes(HttpMethod.GET, "/api/v1/beer?pageSize=5")).isEqualTo(READ);
+        assertThat(routes(HttpMethod.GET, "/api/v1/beer/12")).isEqualTo(READ);
+        assertThat(routes(HttpMethod.GET, "/api/v1/beerUpc/0631234200036")).isEqualTo(READ);
+        assertThat(routes(HttpMethod.GET, "/api/v2/beer/12")).isEqualTo(READ);
+        assertThat(routes(HttpMethod.GET, "/api/v2/beerUpc/0631234200036")).isEqualTo(READ);
+
+        assertThat(routes(HttpMethod.POST, "/api/v1/beer")).isEqualTo(WRITE);
+        assertThat(routes(HttpMethod.PUT, "/api/v2/beer/12")).isEqualTo(WRITE);
+        assertThat(routes(HttpMethod.DELETE, "/api/v1/beer/12")).isEqualTo(WRITE);
+
+        assertThat(routes(HttpMethod.GET, "/api/v2/beer/stream")).isNull();
+        assertThat(routes(HttpMethod.GET, "/api/v2/beer/search?q=ale")).isNull();
+        assertThat(routes(HttpMethod.POST, "/api/v2/beer/lookup")).isNull();
+        assertThat(routes(HttpMethod.POST, "/api/v2/beer/batch")).isNull();
+        assertThat(routes(HttpMethod.POST, "/api/v2/beer/12/inventory/restock")).isNull();
+        assertThat(routes(HttpMethod.POST, "/api/v2/beer/12/reservations")).isNull();
+        assertThat(routes(HttpMethod.POST, "/api/v2/beer/reservations/" + UUID.randomUUID() + "/commit")).isNull();
+        assertThat(routes(HttpMethod.DELETE, "/api/v2/beer/reservations/" + UUID.randomUUID())).isNull();
+        assertThat(routes(HttpMethod.GET, "/api/v1/customer/12")).isNull();
+        assertThat(routes(HttpMethod.GET, "/actuator/health")).isNull();
+    }
+
+    @Test
+    void shedsRequestsOverTheLimitWithRetryAfter() {
+        ConcurrencyLimitWebFilter filter = filter(true);
+        Sinks.Empty<Void> slow = Sinks.empty();
+
+        // the minimum limit of 4 slow reads in flight
+        for (int i = 0; i < 4; i++) {
+            filter.filter(exchange(HttpMethod.GET, "/api/v2/beer/1"), exchange -> slow.asMono()).subscribe();
+        }
+        assertThat(filter.inFlight(READ)).isEqualTo(4);
+
+        MockServerWebExchange shed = exchange(HttpMethod.GET, "/api/v2/beer/1");
+        filter.filter(shed, exchange -> Mono.error(new AssertionError("should have been shed"))).block();
+
+        assertThat(shed.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(shed.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        assertThat(filter.shedCount(READ)).isEqualTo(1);
+
+        // writes have a limit of their own
+        MockServerWebExchange write = exchange(HttpMethod.POST, "/api/v2/beer");
+        filter.filter(write, exchange -> Mono.empty()).block();
+        assertThat(write.getResponse().getStatusCode()).isNull();
+
+        slow.tryEmitEmpty();
+        assertThat(filter.inFlight(READ)).isZero();
+        MockServerWebExchange admitted = exchange(HttpMethod.GET, "/api/v2/beer/1");
+        filter.filter(admitted, exchange -> Mono.empty()).block();
+        assertThat(admitted.getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    void passesEverythingThroughWhenDisabled() {
+        ConcurrencyLimitWebFilter filter = filter(false);
+        Sinks.Empty<Void> slow = Sinks.empty();
+
+        for (int i = 0; i < 10; i++) {
+            MockServerWebExchange exchange = exchange(HttpMethod.GET, "/api/v2/beer/1");
+            filter.filter(exchange, chain -> slow.asMono()).subscribe();
+            assertThat(exchange.getResponse().getStatusCode()).isNull();
+        }
+        slow.tryEmitEmpty();
+    }
+
+    private static ConcurrencyLimitWebFilter filter(boolean enabled) {
+        return new ConcurrencyLimitWebFilter(enabled, 4, 100, 4, 100, 4, 2.0, 10, Duration.ofSeconds(2));
+    }
+
+    private static ConcurrencyLimitWebFilter.Routes routes(HttpMethod method, String uri) {
+        return ConcurrencyLimitWebFilter.routes(exchange(method, uri));
+    }
+
+    private static MockServerWebExchange exchange(HttpMethod method, String uri) {
+        return MockServerWebExchange.from(MockServerHttpRequest.method(method, uri));
+    }
+}
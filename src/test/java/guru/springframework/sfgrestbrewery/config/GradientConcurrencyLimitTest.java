@@ -0,0 +1,60 @@
+package guru.springframework.sfgrestbrewery.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GradientConcurrencyLimitTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    @Test
+    void growsWhileLatencyHoldsAndTheLimitIsUsed() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(20, 4, 100, 2.0, 10);
+
+        samples(limit, 50, 5 * MILLIS, 20);
+        assertThat(limit.getLimit()).isGreaterThan(20);
+
+        samples(limit, 5000, 5 * MILLIS, 100);
+        assertThat(limit.getLimit()).isEqualTo(100);
+    }
+
+    @Test
+    void leavesTheLimitAloneWhenMostlyIdle() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(20, 4, 100, 2.0, 10);
+
+        samples(limit, 500, 5 * MILLIS, 3);
+
+        assertThat(limit.getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    void shrinksWhenLatencyClimbsAndRecoversAfterwards() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(50, 4, 100, 2.0, 10);
+        samples(limit, 100, 5 * MILLIS, 50);
+        int steady = limit.getLimit();
+
+        // within tolerance: no cut
+        samples(limit, 20, 9 * MILLIS, steady);
+        assertThat(limit.getLimit()).isGreaterThanOrEqualTo(steady);
+
+        samples(limit, 200, 100 * MILLIS, 100);
+        assertThat(limit.getLimit()).isBetween(4, steady / 3);
+
+        samples(limit, 3000, 5 * MILLIS, 100);
+        assertThat(limit.getLimit()).isGreaterThan(50);
+    }
+
+    @Test
+    void rejectsInconsistentBounds() {
+        assertThatThrownBy(() -> new GradientConcurrencyLimit(2, 4, 100, 2.0, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new GradientConcurrencyLimit(20, 4, 100, 0.5, 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void samples(GradientConcurrencyLimit limit, int count, long rttNanos, int inFlight) {
+        for (int i = 0; i < count; i++) {
+            limit.onSample(rttNanos, inFlight);
+        }
+    }
+}
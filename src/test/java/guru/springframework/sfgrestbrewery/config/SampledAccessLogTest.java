@@ -0,0 +1,44 @@
+package guru.springframework.sfgrestbrewery.config;
+
+import org.junit.jupiter.api.Test;
+import reactor.netty.http.server.logging.AccessLogArgProvider;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class SampledAccessLogTest {
+
+    SampledAccessLog accessLog = new SampledAccessLog(0, Duration.ofMillis(500));
+
+    @Test
+    void fastSuccessfulRequestsAreSampled() {
+        assertThat(accessLog.apply(request("200", 12))).isNull();
+    }
+
+    @Test
+    void serverErrorsAreAlwaysLogged() {
+        assertThat(accessLog.apply(request("503", 12))).isNotNull();
+    }
+
+    @Test
+    void slowRequestsAreAlwaysLogged() {
+        assertThat(accessLog.apply(request("200", 750))).isNotNull();
+    }
+
+    @Test
+    void everyRequestAtFullRate() {
+        assertThat(new SampledAccessLog(1, Duration.ofMillis(500)).apply(request("404", 3))).isNotNull();
+    }
+
+    private static AccessLogArgProvider request(String status, long duration) {
+        AccessLogArgProvider args = mock(AccessLogArgProvider.class);
+        given(args.status()).willReturn(status);
+        given(args.duration()).willReturn(duration);
+        given(args.method()).willReturn("GET");
+        given(args.uri()).willReturn("/api/v1/beer");
+        return args;
+    }
+}
@@ -0,0 +1,56 @@
+package guru.springframework.sfgrestbrewery.config;
+
+import io.r2dbc.h2.H2ConnectionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SchemaMigratorTest {
+
+    DatabaseClient databaseClient;
+    SchemaMigrator schemaMigrator;
+
+    @BeforeEach
+    void setUp() {
+        databaseClient = DatabaseClient.create(H2ConnectionFactory.inMemory("migrator-" + UUID.randomUUID()));
+        schemaMigrator = new SchemaMigrator(databaseClient, "classpath:db/migration");
+    }
+
+    @Test
+    void appliesEachMigrationOnce() {
+        assertThat(schemaMigrator.migrate().block()).isEqualTo(4L);
+        assertThat(schemaMigrator.migrate().block()).isEqualTo(0L);
+
+        Long recorded = databaseClient.sql("SELECT count(*) FROM " + SchemaMigrator.HISTORY_TABLE)
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .block();
+        assertThat(recorded).isEqualTo(4L);
+    }
+
+    @Test
+    void upcIsUnique() {
+        schemaMigrator.migrate().block();
+
+        String insert = "INSERT INTO beer (beer_name, upc) VALUES ('Dupe', '0631234200036')";
+        databaseClient.sql(insert).then().block();
+
+        assertThatThrownBy(() -> databaseClient.sql(insert).then().block())
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void failsWhenAppliedMigrationChanged() {
+        schemaMigrator.migrate().block();
+        databaseClient.sql("UPDATE " + SchemaMigrator.HISTORY_TABLE + " SET checksum = 0 WHERE version = 1").then().block();
+
+        assertThatThrownBy(() -> schemaMigrator.migrate().block())
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,509 @@
+package guru.springframework.sfgrestbrewery.functional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.springframework.sfgrestbrewery.bootstrap.BeerLoader;
+import guru.springframework.sfgrestbrewery.repositories.BeerRepository;
+import guru.springframework.sfgrestbrewery.services.BeerEventPublisher;
+import guru.springframework.sfgrestbrewery.services.BeerSearchIndex;
+import guru.springframework.sfgrestbrewery.services.BeerService;
+import guru.springframework.sfgrestbrewery.services.BeerStyleStats;
+import guru.springframework.sfgrestbrewery.services.InventoryService;
+import guru.springframework.sfgrestbrewery.web.controller.WireFormat;
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerEvent;
+import guru.springframework.sfgrestbrewery.web.model.BeerImportResult;
+import guru.springframework.sfgrestbrewery.web.model.BeerInventory;
+import guru.springframework.sfgrestbrewery.web.model.BeerInventoryRequest;
+import guru.springframework.sfgrestbrewery.web.model.BeerLookupRequest;
+import guru.springframework.sfgrestbrewery.web.model.BeerLookupResult;
+import guru.springframework.sfgrestbrewery.web.model.BeerReservation;
+import guru.springframework.sfgrestbrewery.web.model.BeerSearchHit;
+import guru.springframework.sfgrestbrewery.web.model.BeerSearchPage;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleStatistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@AutoConfigureWebTestClient
+class BeerHandlerTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    BeerLoader beerLoader;
+
+    @Autowired
+    BeerService beerService;
+
+    @Autowired
+    BeerEventPublisher beerEventPublisher;
+
+    @Autowired
+    BeerSearchIndex beerSearchIndex;
+
+    @Autowired
+    BeerStyleStats beerStyleStats;
+
+    @Autowired
+    InventoryService inventoryService;
+
+    @BeforeEach
+    void setUp() {
+        beerLoader.loaded().block(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void searchBeersRanksPrefixAndFuzzyMatches() {
+        beerSearchIndex.built().block(Duration.ofSeconds(30));
+
+        BeerSearchPage page = search("galax ct").expectStatus().isOk()
+                .expectBody(BeerSearchPage.class).returnResult().getResponseBody();
+
+        assertThat(page.getTotalElements()).isPositive();
+        assertThat(page.getContent().get(0).getUpc()).isEqualTo(BeerLoader.BEER_2_UPC);
+        assertThat(page.getContent().get(0).getBeerName()).isEqualTo("Galaxy Cat");
+
+        BeerSearchPage stouts = search("stout&pageSize=2").expectStatus().isOk()
+                .expectBody(BeerSearchPage.class).returnResult().getResponseBody();
+
+        assertThat(stouts.getContent()).hasSize(2).allMatch(hit -> hit.getBeerStyle().equals("STOUT"));
+        assertThat(stouts.getTotalElements()).isGreaterThan(2);
+
+        search("").expectStatus().isBadRequest();
+        search("ale&pageSize=1000").expectStatus().isBadRequest();
+        search("ale&pageNumber=x").expectStatus().isBadRequest();
+    }
+
+    @Test
+    void searchSeesBeerChanges() throws InterruptedException {
+        beerSearchIndex.built().block(Duration.ofSeconds(30));
+
+        BeerDto saved = beerService.saveNewBeer(Mono.just(BeerDto.builder()
+                .beerName("Quokka Quencher").beerStyle("GOSE").upc("900000000010").price(BigDecimal.TEN).build())).block();
+
+        try {
+            // events reach the index off the writing thread
+            assertThat(searchHitsOnceIndexed("quokka", 1)).extracting(BeerSearchHit::getId).containsExactly(saved.getId());
+
+            beerService.deleteBeerById(saved.getId(), null).block();
+
+            assertThat(searchHitsOnceIndexed("quokka", 0)).isEmpty();
+        } finally {
+            beerRepository.deleteById(saved.getId()).block();
+        }
+    }
+
+    @Test
+    void styleStatsFollowBeerAndStockChanges() throws InterruptedException {
+        beerStyleStats.built().block(Duration.ofSeconds(30));
+        BeerStyleStatistics before = saisons(statsMatchingSql());
+
+        BeerDto saved = beerService.saveNewBeer(Mono.just(BeerDto.builder().beerName("Statistic Saison")
+                .beerStyle("SAISON").upc("900000000011").price(new BigDecimal("99.99")).quantityOnHand(7).build())).block();
+
+        try {
+            BeerStyleStatistics created = saisons(statsMatchingSql());
+            assertThat(created.getCount()).isEqualTo(before.getCount() + 1);
+            assertThat(created.getTotalInventory()).isEqualTo(before.getTotalInventory() + 7);
+            assertThat(created.getMaxPrice()).isEqualByComparingTo("99.99");
+
+            inventoryService.restock(saved.getId(), 5).then(inventoryService.flush()).block();
+            assertThat(saisons(statsMatchingSql()).getTotalInventory()).isEqualTo(before.getTotalInventory() + 12);
+
+            beerService.updateBeer(saved.getId(), BeerDto.builder().beerName(saved.getBeerName())
+                    .beerStyle("GOSE").upc(saved.getUpc()).price(saved.getPrice()).build(), null).block();
+            assertThat(saisons(statsMatchingSql())).isEqualTo(before);
+
+            beerService.deleteBeerById(saved.getId(), null).block();
+            statsMatchingSql();
+        } finally {
+            beerRepository.deleteById(saved.getId()).block();
+        }
+
+        webTestClient.get().uri("/" + BeerRouterConfiguration.BEER_STATS_ROUTE_V2 + "?source=nope")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void styleStatsCountStockFlushedBeforeItIsReadOnce() throws InterruptedException {
+        beerStyleStats.built().block(Duration.ofSeconds(30));
+        BeerStyleStatistics before = saisons(statsMatchingSql());
+
+        // restocked and flushed within the delay before the new beer's stock is read
+        BeerDto saved = beerService.saveNewBeer(Mono.just(BeerDto.builder().beerName("Quick Saison")
+                .beerStyle("SAISON").upc("900000000012").price(new BigDecimal("5.00")).quantityOnHand(7).build()))
+                .flatMap(beer -> inventoryService.restock(beer.getId(), 5).then(inventoryService.flush()).thenReturn(beer))
+                .block();
+
+        try {
+            assertThat(saisons(statsMatchingSql()).getTotalInventory()).isEqualTo(before.getTotalInventory() + 12);
+
+            beerService.deleteBeerById(saved.getId(), null).block();
+            statsMatchingSql();
+        } finally {
+            beerRepository.deleteById(saved.getId()).block();
+        }
+    }
+
+    /**
+     * The in-memory statistics, once they agree with the {@code GROUP BY} over the beer table; new beers' stock
+     * is read shortly after they are created.
+     */
+    private List<BeerStyleStatistics> statsMatchingSql() throws InterruptedException {
+        List<BeerStyleStatistics> stats = null;
+        List<BeerStyleStatistics> sql = null;
+
+        for (int attempt = 0; attempt < 50 && (stats == null || !stats.equals(sql)); attempt++) {
+            Thread.sleep(attempt == 0 ? 0 : 100);
+            stats = stats(null);
+            sql = stats(BeerRouterConfiguration.BEER_STATS_SOURCE_SQL_V2);
+        }
+
+        assertThat(stats).isEqualTo(sql).isNotEmpty();
+        return stats;
+    }
+
+    private List<BeerStyleStatistics> stats(String source) {
+        return webTestClient.get().uri("/" + BeerRouterConfiguration.BEER_STATS_ROUTE_V2 + (source == null ? "" : "?source=" + source))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BeerStyleStatistics.class)
+                .returnResult().getResponseBody();
+    }
+
+    private static BeerStyleStatistics saisons(List<BeerStyleStatistics> stats) {
+        return stats.stream().filter(style -> style.getBeerStyle().equals("SAISON")).findFirst()
+                .orElse(BeerStyleStatistics.builder().beerStyle("SAISON").build());
+    }
+
+    private WebTestClient.ResponseSpec search(String query) {
+        return webTestClient.get().uri("/" + BeerRouterConfiguration.BEER_SEARCH_ROUTE_V2 + "?q=" + query)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange();
+    }
+
+    private List<BeerSearchHit> searchHitsOnceIndexed(String query, int expected) throws InterruptedException {
+        List<BeerSearchHit> hits = searchHits(query);
+
+        for (int attempt = 1; attempt < 50 && hits.size() != expected; attempt++) {
+            Thread.sleep(100);
+            hits = searchHits(query);
+        }
+
+        return hits;
+    }
+
+    private List<BeerSearchHit> searchHits(String query) {
+        return search(query).expectStatus().isOk()
+                .expectBody(BeerSearchPage.class).returnResult().getResponseBody().getContent();
+    }
+
+    @Test
+    void streamBeersAsNdjson() {
+        List<BeerDto> beers = webTestClient.get().uri("/" + BeerRouterConfiguration.BEER_STREAM_ROUTE_V2)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(BeerDto.class)
+                .getResponseBody().collectList().block();
+
+        assertThat(beers).hasSize(30);
+    }
+
+    @Test
+    void sparseFieldsOnSingleReadsAndStreams() {
+        String beer = webTestClient.get().uri("/" + BeerRouterConfiguration.BEER_ROUTE_V2 + "/2?fields=beerName,price")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        assertThat(beer).isEqualTo("{\"beerName\":\"Galaxy Cat\",\"price\":" + beerRepository.findById(2).block().getPrice() + "}");
+
+        List<String> lines = webTestClient.get().uri("/" + BeerRouterConfiguration.BEER_STREAM_ROUTE_V2 + "?fields=id,upc")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseBody().collectList().block();
+
+        assertThat(lines).hasSize(30).allMatch(line -> line.matches("\\{\"id\":\\d+,\"upc\":\"\\d+\"}"));
+
+        webTestClient.get().uri("/" + BeerRouterConfiguration.BEER_UPC_ROUTE_V2 + "/" + BeerLoader.BEER_2_UPC + "?fields=id,abv")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void streamBeersByStyleAsEventStream() {
+        List<BeerDto> beers = webTestClient.get().uri("/" + BeerRouterConfiguration.BEER_STREAM_ROUTE_V2 + "?beerStyle=IPA")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .returnResult(BeerDto.class)
+                .getResponseBody().collectList().block();
+
+        assertThat(beers).isNotEmpty().allMatch(beer -> BeerStyleEnum.IPA.name().equals(beer.getBeerStyle()));
+    }
+
+    @Test
+    void streamBeersRejectsUnknownStyle() {
+        webTestClient.get().uri("/" + BeerRouterConfiguration.BEER_STREAM_ROUTE_V2 + "?beerStyle=NOPE")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void importBeersReportsPerItemResults() {
+        String body = "{\"beerName\":\"Import One\",\"beerStyle\":\"ALE\",\"upc\":\"900000000001\"}\n"
+                + "{\"beerName\":\"\",\"beerStyle\":\"ALE\",\"upc\":\"900000000002\"}\n"
+                + "{\"beerName\":\"Import Three\",\"beerStyle\":\"IPA\",\"upc\":\"900000000003\"}\n";
+
+        List<BeerImportResult> results = webTestClient.post().uri("/" + BeerRouterConfiguration.BEER_BATCH_ROUTE_V2)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(BeerImportResult.class)
+                .getResponseBody().collectList().block();
+
+        try {
+            assertThat(results).extracting(BeerImportResult::getStatus).containsExactly(
+                    BeerImportResult.Status.CREATED, BeerImportResult.Status.INVALID, BeerImportResult.Status.CREATED);
+            assertThat(results.get(1).getErrors()).anyMatch(error -> error.startsWith("beerName"));
+            assertThat(beerRepository.findByUpc("900000000003").block().getId()).isEqualTo(results.get(2).getId());
+        } finally {
+            results.stream().map(BeerImportResult::getId).filter(Objects::nonNull)
+                    .forEach(id -> beerRepository.deleteById(id).block());
+        }
+    }
+
+    @Test
+    void importBeersFailsOnlyTheOffendingItemOfABatch() {
+        String body = "{\"beerName\":\"Import Four\",\"beerStyle\":\"ALE\",\"upc\":\"900000000004\"}\n"
+                + "{\"beerName\":\"Duplicate\",\"beerStyle\":\"ALE\",\"upc\":\"" + BeerLoader.BEER_2_UPC + "\"}\n"
+                + "{\"beerName\":\"Import Six\",\"beerStyle\":\"IPA\",\"upc\":\"900000000006\"}\n";
+
+        List<BeerImportResult> results = webTestClient.post().uri("/" + BeerRouterConfiguration.BEER_BATCH_ROUTE_V2)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(BeerImportResult.class)
+                .getResponseBody().collectList().block();
+
+        try {
+            assertThat(results).extracting(BeerImportResult::getStatus).containsExactly(
+                    BeerImportResult.Status.CREATED, BeerImportResult.Status.FAILED, BeerImportResult.Status.CREATED);
+            assertThat(beerRepository.findByUpc("900000000004").block().getId()).isEqualTo(results.get(0).getId());
+            assertThat(beerRepository.findByUpc("900000000006").block().getId()).isEqualTo(results.get(2).getId());
+            assertThat(beerRepository.findByUpc(BeerLoader.BEER_2_UPC).block().getBeerName()).isNotEqualTo("Duplicate");
+        } finally {
+            results.stream().map(BeerImportResult::getId).filter(Objects::nonNull)
+                    .forEach(id -> beerRepository.deleteById(id).block());
+        }
+    }
+
+    @Test
+    void lookupBeersKeepsRequestOrderAndMisses() {
+        BeerLookupRequest lookupRequest = BeerLookupRequest.builder()
+                .ids(List.of(3, 999999, 1))
+                .upcs(List.of("nope", BeerLoader.BEER_2_UPC))
+                .build();
+
+        List<BeerLookupResult> results = webTestClient.post().uri("/" + BeerRouterConfiguration.BEER_LOOKUP_ROUTE_V2)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(lookupRequest)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BeerLookupResult.class)
+                .returnResult().getResponseBody();
+
+        assertThat(results).extracting(BeerLookupResult::isFound).containsExactly(true, false, true, false, true);
+        assertThat(results.get(0).getBeer().getId()).isEqualTo(3);
+        assertThat(results.get(2).getBeer().getId()).isEqualTo(1);
+        assertThat(results.get(4).getBeer().getUpc()).isEqualTo(BeerLoader.BEER_2_UPC);
+    }
+
+    @Test
+    void lookupBeersShowsInventoryForUpcsToo() {
+        BeerLookupRequest lookupRequest = BeerLookupRequest.builder()
+                .ids(List.of(1))
+                .upcs(List.of(BeerLoader.BEER_2_UPC))
+                .build();
+        // cached without inventory first
+        lookup(lookupRequest, "");
+
+        List<BeerLookupResult> results = lookup(lookupRequest, "?" + BeerRouterConfiguration.BEER_PARAM_SHOW_INVENTORY_V2 + "=true");
+
+        Integer stocked = beerRepository.findByUpc(BeerLoader.BEER_2_UPC).block().getQuantityOnHand();
+        assertThat(results.get(0).getBeer().getQuantityOnHand()).isNotNull();
+        assertThat(results.get(1).getBeer().getQuantityOnHand()).isEqualTo(stocked);
+    }
+
+    private List<BeerLookupResult> lookup(BeerLookupRequest lookupRequest, String query) {
+        return webTestClient.post().uri("/" + BeerRouterConfiguration.BEER_LOOKUP_ROUTE_V2 + query)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(lookupRequest)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BeerLookupResult.class)
+                .returnResult().getResponseBody();
+    }
+
+    @Test
+    void getBeerAsSmile() throws Exception {
+        byte[] body = webTestClient.get().uri("/" + BeerRouterConfiguration.BEER_ROUTE_V2 + "/5")
+                .accept(MediaType.valueOf(WireFormat.SMILE_VALUE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(WireFormat.SMILE_VALUE)
+                .expectBody().returnResult().getResponseBody();
+
+        assertThat(Jackson2ObjectMapperBuilder.smile().build().readValue(body, BeerDto.class).getId()).isEqualTo(5);
+    }
+
+    @Test
+    void conditionalRequests() {
+        String eTag = webTestClient.get().uri("/" + BeerRouterConfiguration.BEER_ROUTE_V2 + "/5")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(BeerDto.class)
+                .getResponseHeaders().getETag();
+
+        assertThat(eTag).isNotNull();
+
+        webTestClient.get().uri("/" + BeerRouterConfiguration.BEER_ROUTE_V2 + "/5")
+                .accept(MediaType.APPLICATION_JSON)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        webTestClient.put().uri("/" + BeerRouterConfiguration.BEER_ROUTE_V2 + "/5")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"999\"")
+                .bodyValue(BeerDto.builder().beerName("Stale").beerStyle("ALE").upc("0000000000000").build())
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    void duplicateUpcIsConflict() {
+        webTestClient.post().uri("/" + BeerRouterConfiguration.BEER_ROUTE_V2)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(BeerDto.builder().beerName("Copy Cat").beerStyle("PALE_ALE").upc(BeerLoader.BEER_2_UPC).build())
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+
+        webTestClient.put().uri("/" + BeerRouterConfiguration.BEER_ROUTE_V2 + "/6")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(BeerDto.builder().beerName("Copy Cat").beerStyle("PALE_ALE").upc(BeerLoader.BEER_2_UPC).build())
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+
+        assertThat(beerRepository.findById(6).block().getUpc()).isEqualTo(BeerLoader.BEER_6_UPC);
+    }
+
+    @Test
+    void beerEventsResumeFromLastEventId() {
+        long lastSeen = beerEventPublisher.currentSequence();
+        BeerDto beer = beerService.getById(6, true).block();
+        BeerDto update = BeerDto.builder()
+                .beerName(beer.getBeerName())
+                .beerStyle(beer.getBeerStyle())
+                .upc(beer.getUpc())
+                .price(beer.getPrice())
+                .build();
+        beerService.updateBeer(6, update, null).block();
+
+        ServerSentEvent<BeerEvent> event = webTestClient.get().uri("/" + BeerRouterConfiguration.BEER_EVENTS_ROUTE_V2)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header("Last-Event-ID", String.valueOf(lastSeen))
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<BeerEvent>>() {})
+                .getResponseBody()
+                .blockFirst(Duration.ofSeconds(5));
+
+        assertThat(event.id()).isEqualTo(String.valueOf(lastSeen + 1));
+        assertThat(event.event()).isEqualTo("UPDATED");
+        assertThat(event.data().getBeerId()).isEqualTo(6);
+    }
+
+    @Test
+    void reservationLifecycle() {
+        String reservations = "/" + BeerRouterConfiguration.BEER_ROUTE_V2 + "/11/reservations";
+
+        BeerReservation reservation = webTestClient.post().uri(reservations)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(BeerInventoryRequest.builder().quantity(1).build())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(BeerReservation.class)
+                .returnResult().getResponseBody();
+
+        assertThat(reservation.getBeerId()).isEqualTo(11);
+
+        webTestClient.get().uri("/" + BeerRouterConfiguration.BEER_ROUTE_V2 + "/11/inventory")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BeerInventory.class)
+                .value(inventory -> assertThat(inventory.getReserved()).isEqualTo(1));
+
+        String commit = "/" + BeerRouterConfiguration.BEER_ROUTE_V2 + "/reservations/" + reservation.getId() + "/commit";
+        webTestClient.post().uri(commit).exchange().expectStatus().isNoContent();
+        webTestClient.post().uri(commit).exchange().expectStatus().isNotFound();
+
+        webTestClient.post().uri(reservations)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(BeerInventoryRequest.builder().quantity(Integer.MAX_VALUE).build())
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+
+        webTestClient.post().uri(reservations)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(BeerInventoryRequest.builder().quantity(0).build())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+}
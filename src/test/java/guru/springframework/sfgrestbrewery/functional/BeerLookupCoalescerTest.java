@@ -0,0 +1,59 @@
+package guru.springframework.sfgrestbrewery.functional;
+
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BeerLookupCoalescerTest {
+
+    BeerLookupCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        coalescer = new BeerLookupCoalescer(new SimpleMeterRegistry());
+    }
+
+    @Test
+    void sharesPendingLookup() {
+        AtomicInteger lookups = new AtomicInteger();
+        Sinks.One<BeerDto> pending = Sinks.one();
+
+        Mono<BeerDto> first = coalescer.getByUpc("123", () -> {
+            lookups.incrementAndGet();
+            return pending.asMono();
+        });
+        Mono<BeerDto> second = coalescer.getByUpc("123", () -> {
+            lookups.incrementAndGet();
+            return Mono.empty();
+        });
+
+        AtomicReference<BeerDto> secondResult = new AtomicReference<>();
+        first.subscribe();
+        second.subscribe(secondResult::set);
+        pending.tryEmitValue(BeerDto.builder().upc("123").build());
+
+        assertThat(secondResult.get().getUpc()).isEqualTo("123");
+        assertThat(lookups).hasValue(1);
+        assertThat(coalescer.issuedCount()).isEqualTo(1);
+        assertThat(coalescer.coalescedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void completedLookupIsNotRetained() {
+        AtomicInteger lookups = new AtomicInteger();
+
+        coalescer.getById(1, false, () -> Mono.fromSupplier(() -> BeerDto.builder().id(lookups.incrementAndGet()).build())).block();
+        BeerDto second = coalescer.getById(1, false, () -> Mono.fromSupplier(() -> BeerDto.builder().id(lookups.incrementAndGet()).build())).block();
+
+        assertThat(second.getId()).isEqualTo(2);
+        assertThat(coalescer.issuedCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,125 @@
+package guru.springframework.sfgrestbrewery.functional;
+
+import guru.springframework.sfgrestbrewery.bootstrap.BeerLoader;
+import guru.springframework.sfgrestbrewery.repositories.BeerRepository;
+import guru.springframework.sfgrestbrewery.services.BeerService;
+import guru.springframework.sfgrestbrewery.services.InventoryService;
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerSearchPage;
+import guru.springframework.sfgrestbrewery.web.model.BeerSnapshotResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@AutoConfigureWebTestClient
+class BeerSnapshotHandlerTest {
+
+    static final Path SNAPSHOT = snapshotFile();
+
+    @DynamicPropertySource
+    static void snapshotProperties(DynamicPropertyRegistry registry) {
+        registry.add("sfg.brewery.snapshot.file", SNAPSHOT::toString);
+        registry.add("sfg.brewery.snapshot.batch-size", () -> 7);
+    }
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    BeerLoader beerLoader;
+
+    @Autowired
+    BeerService beerService;
+
+    @Autowired
+    InventoryService inventoryService;
+
+    @Test
+    void exportThenImportRestoresTheCatalog() throws InterruptedException {
+        beerLoader.loaded().block(Duration.ofSeconds(30));
+        long beers = beerRepository.count().block();
+        // restocked in memory, not flushed yet
+        int stocked = beerRepository.findById(3).block().getQuantityOnHand();
+        inventoryService.restock(3, 5).block();
+
+        BeerSnapshotResult exported = snapshot(BeerRouterConfiguration.BEER_SNAPSHOT_ROUTE_V2);
+        assertThat(exported.getBeers()).isEqualTo(beers);
+        assertThat(exported.getBytes()).isEqualTo(SNAPSHOT.toFile().length());
+
+        BeerDto added = beerService.saveNewBeer(Mono.just(BeerDto.builder()
+                .beerName("Wombat Witbier").beerStyle("WHEAT").upc("900000000012").price(BigDecimal.ONE).build())).block();
+        BeerDto renamed = beerService.getById(2, false).block();
+        beerService.updateBeer(2, BeerDto.builder().beerName("Renamed Cat").beerStyle(renamed.getBeerStyle())
+                .upc(renamed.getUpc()).price(renamed.getPrice()).build(), null).block();
+        assertThat(beerService.getById(2, false).block().getBeerName()).isEqualTo("Renamed Cat");
+
+        BeerSnapshotResult imported = snapshot(BeerRouterConfiguration.BEER_SNAPSHOT_IMPORT_ROUTE_V2);
+
+        assertThat(imported.getBeers()).isEqualTo(beers);
+        assertThat(beerRepository.count().block()).isEqualTo(beers);
+        assertThat(beerRepository.findById(added.getId()).block()).isNull();
+        // the cache was reset by the import, not serving the renamed beer
+        assertThat(beerService.getById(2, false).block().getBeerName()).isEqualTo("Galaxy Cat");
+        assertThat(beerRepository.findById(2).block().getVersion()).isEqualTo(renamed.getVersion());
+        assertThat(beerRepository.findById(3).block().getQuantityOnHand()).isEqualTo(stocked + 5);
+
+        // generated ids carry on after the restored ones
+        BeerDto next = beerService.saveNewBeer(Mono.just(BeerDto.builder()
+                .beerName("Numbat Nut Brown").beerStyle("ALE").upc("900000000013").price(BigDecimal.ONE).build())).block();
+        try {
+            assertThat(next.getId()).isGreaterThan((int) beers);
+
+            // the index rebuilds from the restored table after the import
+            long wombats = 1;
+            for (int attempt = 0; attempt < 50 && wombats > 0; attempt++) {
+                Thread.sleep(attempt == 0 ? 0 : 100);
+                wombats = webTestClient.get().uri("/" + BeerRouterConfiguration.BEER_SEARCH_ROUTE_V2 + "?q=wombat")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .exchange()
+                        .expectStatus().isOk()
+                        .expectBody(BeerSearchPage.class).returnResult().getResponseBody().getTotalElements();
+            }
+            assertThat(wombats).isZero();
+        } finally {
+            beerRepository.deleteById(next.getId()).block();
+        }
+    }
+
+    private BeerSnapshotResult snapshot(String route) {
+        return webTestClient.post().uri("/" + route)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BeerSnapshotResult.class)
+                .returnResult().getResponseBody();
+    }
+
+    private static Path snapshotFile() {
+        try {
+            Path directory = Files.createTempDirectory("beer-snapshot");
+            directory.toFile().deleteOnExit();
+            return directory.resolve("beers.snapshot");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
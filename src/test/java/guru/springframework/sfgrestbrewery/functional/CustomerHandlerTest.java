@@ -0,0 +1,144 @@
+package guru.springframework.sfgrestbrewery.functional;
+
+import guru.springframework.sfgrestbrewery.config.UuidConverters;
+import guru.springframework.sfgrestbrewery.repositories.CustomerRepository;
+import guru.springframework.sfgrestbrewery.web.model.CustomerBatchResult;
+import guru.springframework.sfgrestbrewery.web.model.CustomerDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@AutoConfigureWebTestClient
+class CustomerHandlerTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    DatabaseClient databaseClient;
+
+    @Test
+    void createReadUpdateDeleteCustomer() {
+        URI location = webTestClient.post().uri("/" + CustomerRouterConfiguration.CUSTOMER_ROUTE_V2)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(CustomerDto.builder().name("Ada Brewer").build())
+                .exchange()
+                .expectStatus().isCreated()
+                .returnResult(Void.class).getResponseHeaders().getLocation();
+
+        UUID customerId = UUID.fromString(location.getPath().substring(location.getPath().lastIndexOf('/') + 1));
+
+        try {
+            assertThat(getCustomer(customerId).getName()).isEqualTo("Ada Brewer");
+
+            // stored as 16 bytes, not as text
+            byte[] storedId = databaseClient.sql("SELECT id FROM customer WHERE name = 'Ada Brewer'")
+                    .map(row -> row.get("id", byte[].class)).one().block();
+            assertThat(storedId).isEqualTo(UuidConverters.toBytes(customerId));
+
+            webTestClient.put().uri("/" + CustomerRouterConfiguration.CUSTOMER_ROUTE_V2 + "/" + customerId)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .bodyValue(CustomerDto.builder().name("Ada Lovebrew").build())
+                    .exchange()
+                    .expectStatus().isNoContent();
+
+            assertThat(getCustomer(customerId).getName()).isEqualTo("Ada Lovebrew");
+
+            webTestClient.delete().uri("/" + CustomerRouterConfiguration.CUSTOMER_ROUTE_V2 + "/" + customerId)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus().isNoContent();
+
+            webTestClient.get().uri("/" + CustomerRouterConfiguration.CUSTOMER_ROUTE_V2 + "/" + customerId)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus().isNotFound();
+        } finally {
+            customerRepository.deleteById(customerId).block();
+        }
+    }
+
+    @Test
+    void missingAndMalformedIds() {
+        String unknown = "/" + CustomerRouterConfiguration.CUSTOMER_ROUTE_V2 + "/" + UUID.randomUUID();
+
+        webTestClient.get().uri(unknown).accept(MediaType.APPLICATION_JSON).exchange().expectStatus().isNotFound();
+        webTestClient.put().uri(unknown).accept(MediaType.APPLICATION_JSON)
+                .bodyValue(CustomerDto.builder().name("Nobody").build())
+                .exchange().expectStatus().isNotFound();
+        webTestClient.delete().uri(unknown).accept(MediaType.APPLICATION_JSON).exchange().expectStatus().isNotFound();
+        webTestClient.get().uri("/" + CustomerRouterConfiguration.CUSTOMER_ROUTE_V2 + "/not-a-uuid")
+                .accept(MediaType.APPLICATION_JSON).exchange().expectStatus().isBadRequest();
+        webTestClient.get().uri("/api/v1/customer/" + UUID.randomUUID())
+                .accept(MediaType.APPLICATION_JSON).exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void saveCustomersCreatesAndUpdatesInBatches() {
+        CustomerDto existing = webTestClient.post().uri("/" + CustomerRouterConfiguration.CUSTOMER_BATCH_ROUTE_V2)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"name\":\"Existing Customer\"}\n")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(CustomerBatchResult.class)
+                .getResponseBody().map(result -> CustomerDto.builder().id(result.getId()).build()).blockFirst();
+
+        String body = "{\"name\":\"Batch One\"}\n"
+                + "{\"id\":\"" + existing.getId() + "\",\"name\":\"Renamed Customer\"}\n"
+                + "{\"name\":\"x\"}\n"
+                + "{\"id\":\"" + UUID.randomUUID() + "\",\"name\":\"Ghost Customer\"}\n"
+                + "{\"name\":\"Batch Two\"}\n";
+
+        List<CustomerBatchResult> results = webTestClient.post().uri("/" + CustomerRouterConfiguration.CUSTOMER_BATCH_ROUTE_V2)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(CustomerBatchResult.class)
+                .getResponseBody().collectList().block();
+
+        try {
+            assertThat(results).extracting(CustomerBatchResult::getIndex).containsExactly(0L, 1L, 2L, 3L, 4L);
+            assertThat(results).extracting(CustomerBatchResult::getStatus).containsExactly(
+                    CustomerBatchResult.Status.CREATED, CustomerBatchResult.Status.UPDATED, CustomerBatchResult.Status.INVALID,
+                    CustomerBatchResult.Status.NOT_FOUND, CustomerBatchResult.Status.CREATED);
+            assertThat(results.get(2).getErrors()).anyMatch(error -> error.startsWith("name"));
+
+            assertThat(getCustomer(results.get(0).getId()).getName()).isEqualTo("Batch One");
+            assertThat(getCustomer(existing.getId()).getName()).isEqualTo("Renamed Customer");
+            assertThat(customerRepository.findById(existing.getId()).block().getVersion()).isEqualTo(1L);
+            assertThat(getCustomer(results.get(4).getId()).getName()).isEqualTo("Batch Two");
+        } finally {
+            customerRepository.deleteById(existing.getId()).block();
+            results.stream().filter(result -> result.getStatus() == CustomerBatchResult.Status.CREATED)
+                    .map(CustomerBatchResult::getId).filter(Objects::nonNull)
+                    .forEach(id -> customerRepository.deleteById(id).block());
+        }
+    }
+
+    private CustomerDto getCustomer(UUID customerId) {
+        return webTestClient.get().uri("/" + CustomerRouterConfiguration.CUSTOMER_ROUTE_V2 + "/" + customerId)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CustomerDto.class)
+                .returnResult().getResponseBody();
+    }
+}
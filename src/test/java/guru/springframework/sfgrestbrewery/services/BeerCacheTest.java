@@ -0,0 +1,83 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BeerCacheTest {
+
+    BeerCache beerCache;
+
+    AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        beerCache = new BeerCache(100, Duration.ofMinutes(5));
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void cachesResolvedValue() {
+        BeerDto first = beerCache.getById(1, () -> load(1)).block();
+        BeerDto second = beerCache.getById(1, () -> load(1)).block();
+
+        assertThat(first).isSameAs(second);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void coalescesConcurrentMisses() {
+        Sinks.One<BeerDto> pending = Sinks.one();
+
+        Mono<BeerDto> first = beerCache.getById(1, () -> {
+            loads.incrementAndGet();
+            return pending.asMono();
+        });
+        Mono<BeerDto> second = beerCache.getById(1, () -> load(1));
+
+        first.subscribe();
+        second.subscribe();
+        pending.tryEmitValue(BeerDto.builder().id(1).build());
+
+        assertThat(first.block().getId()).isEqualTo(1);
+        assertThat(second.block().getId()).isEqualTo(1);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void doesNotCacheMisses() {
+        assertThat(beerCache.getByUpc("123", () -> {
+            loads.incrementAndGet();
+            return Mono.empty();
+        }).block()).isNull();
+
+        assertThat(beerCache.getByUpc("123", () -> load(1)).block()).isNotNull();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void evictForcesReload() {
+        beerCache.getById(1, () -> load(1)).block();
+        beerCache.getByUpc("123", () -> load(1)).block();
+
+        beerCache.evict(1, "123");
+
+        beerCache.getById(1, () -> load(1)).block();
+        beerCache.getByUpc("123", () -> load(1)).block();
+        assertThat(loads).hasValue(4);
+    }
+
+    private Mono<BeerDto> load(Integer beerId) {
+        return Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return BeerDto.builder().id(beerId).build();
+        });
+    }
+}
@@ -0,0 +1,124 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BeerEventPublisherTest {
+
+    BeerEventPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        publisher = new BeerEventPublisher(4, 8);
+    }
+
+    @Test
+    void resumesAfterSequence() {
+        for (int i = 1; i <= 3; i++) {
+            publisher.created(BeerDto.builder().id(i).upc("upc" + i).build());
+        }
+
+        List<BeerEvent> events = new ArrayList<>();
+        publisher.events(1L).subscribe(events::add);
+        publisher.deleted(1, "upc1");
+
+        assertThat(events.stream().map(BeerEvent::getSequence).collect(Collectors.toList())).containsExactly(2L, 3L, 4L);
+        assertThat(events.get(2).getType()).isEqualTo(BeerEvent.Type.DELETED);
+    }
+
+    @Test
+    void resetsWhenEventsAreNoLongerRetained() {
+        for (int i = 1; i <= 6; i++) {
+            publisher.created(BeerDto.builder().id(i).build());
+        }
+
+        List<BeerEvent> events = new ArrayList<>();
+        publisher.events(0L).subscribe(events::add);
+
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getType()).isEqualTo(BeerEvent.Type.RESET);
+        assertThat(events.get(0).getSequence()).isEqualTo(6L);
+    }
+
+    @Test
+    void slowSubscriberIsDroppedWithoutBlockingOthers() {
+        List<BeerEvent> fast = new ArrayList<>();
+        List<BeerEvent> slow = new ArrayList<>();
+        AtomicReference<Throwable> slowError = new AtomicReference<>();
+
+        publisher.events(null).subscribe(fast::add);
+        BaseSubscriber<BeerEvent> slowSubscriber = new BaseSubscriber<BeerEvent>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                // requests nothing until the flood is over
+            }
+
+            @Override
+            protected void hookOnNext(BeerEvent event) {
+                slow.add(event);
+            }
+
+            @Override
+            protected void hookOnError(Throwable throwable) {
+                slowError.set(throwable);
+            }
+        };
+        publisher.events(null).subscribe(slowSubscriber);
+
+        for (int i = 1; i <= 100; i++) {
+            publisher.updated(BeerDto.builder().id(1).upc("upc").build(), "upc");
+        }
+
+        assertThat(fast).hasSize(100);
+        assertThat(fast.get(0).getPreviousUpc()).isNull();
+
+        // the slow subscriber only ever held a bounded backlog, and learns it was dropped once it drains it
+        slowSubscriber.requestUnbounded();
+        assertThat(slow.size()).isLessThan(100);
+        assertThat(slowError.get()).isNotNull();
+    }
+
+    @Test
+    void deliveringDoesNotHoldUpSubscribing() throws Exception {
+        CountDownLatch delivering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        publisher.events(null).subscribe(event -> {
+            delivering.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        Thread writer = new Thread(() -> publisher.created(BeerDto.builder().id(1).upc("upc1").build()));
+        writer.start();
+        assertThat(delivering.await(5, TimeUnit.SECONDS)).isTrue();
+
+        try {
+            // while the first subscriber holds up the writer, others still subscribe and get the event replayed
+            List<BeerEvent> events = new ArrayList<>();
+            CompletableFuture.runAsync(() -> publisher.events(0L).subscribe(events::add)).get(1, TimeUnit.SECONDS);
+
+            assertThat(publisher.currentSequence()).isEqualTo(1L);
+            assertThat(events).extracting(BeerEvent::getSequence).containsExactly(1L);
+        } finally {
+            release.countDown();
+            writer.join();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import guru.springframework.sfgrestbrewery.bootstrap.BeerLoader;
+import guru.springframework.sfgrestbrewery.domain.Beer;
+import guru.springframework.sfgrestbrewery.repositories.BeerRepository;
+import guru.springframework.sfgrestbrewery.web.controller.NotFoundException;
+import guru.springframework.sfgrestbrewery.web.controller.PreconditionFailedException;
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerFields;
+import guru.springframework.sfgrestbrewery.web.model.BeerPageCursor;
+import guru.springframework.sfgrestbrewery.web.model.BeerPagedList;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class BeerServiceImplTest {
+
+    @Autowired
+    BeerService beerService;
+
+    @Autowired
+    BeerLoader beerLoader;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    BeerCache beerCache;
+
+    @BeforeEach
+    void setUp() {
+        beerLoader.loaded().block(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void offsetPageReportsTrueTotal() {
+        BeerPagedList page = beerService.listBeers(null, null, PageRequest.of(0, 5), false).block();
+
+        assertThat(page.getContent()).hasSize(5);
+        assertThat(page.getTotalElements()).isEqualTo(30);
+        assertThat(page.getTotalPages()).isEqualTo(6);
+    }
+
+    @Test
+    void sparsePagesSelectOnlyTheRequestedColumns() {
+        BeerFields fields = BeerFields.parse("beerName,price");
+
+        BeerPagedList page = beerService.listBeers(null, null, PageRequest.of(0, 5), false, fields).block();
+
+        assertThat(page.getContent()).hasSize(5).allSatisfy(beer -> {
+            assertThat(beer.getBeerName()).isNotNull();
+            assertThat(beer.getPrice()).isNotNull();
+            assertThat(beer.getId()).isNull();
+            assertThat(beer.getUpc()).isNull();
+            assertThat(beer.getBeerStyle()).isNull();
+        });
+        assertThat(page.getTotalElements()).isEqualTo(30);
+
+        // keyset pages also read their sort key, for the next cursor
+        BeerPagedList first = beerService.listBeers(null, null, BeerPageCursor.first(BeerPageCursor.SortOrder.BEER_NAME), 5,
+                false, false, fields).block();
+        BeerPagedList second = beerService.listBeers(null, null, BeerPageCursor.decode(first.getNextCursor()), 5,
+                false, false, fields).block();
+
+        assertThat(first.getContent()).allSatisfy(beer -> assertThat(beer.getId()).isNotNull());
+        assertThat(second.getContent().get(0).getBeerName()).isGreaterThanOrEqualTo(first.getContent().get(4).getBeerName());
+        assertThat(second.getContent()).allSatisfy(beer -> assertThat(beer.getUpc()).isNull());
+    }
+
+    @Test
+    void findBeersReadsPastTheBeerCache() {
+        PageRequest pageRequest = PageRequest.of(0, 5);
+        assertThat(beerService.listBeers("Uncached Lager", null, pageRequest, false).block().getTotalElements()).isZero();
+
+        // saved without an event, so the cached page is not invalidated
+        Beer saved = beerRepository.save(Beer.builder().beerName("Uncached Lager").beerStyle(BeerStyleEnum.LAGER)
+                .upc("900000000014").price(BigDecimal.ONE).build()).block();
+
+        try {
+            assertThat(beerService.listBeers("Uncached Lager", null, pageRequest, false).block().getTotalElements()).isZero();
+
+            BeerPagedList page = beerService.findBeers("Uncached Lager", null, pageRequest, false, BeerFields.ALL).block();
+            assertThat(page.getTotalElements()).isEqualTo(1);
+            assertThat(page.getContent()).extracting(BeerDto::getId).containsExactly(saved.getId());
+        } finally {
+            beerRepository.deleteById(saved.getId()).block();
+            beerCache.evictAll();
+        }
+    }
+
+    @Test
+    void keysetPagesCoverCatalogOnce() {
+        assertThat(seekAll(BeerPageCursor.SortOrder.ID)).hasSize(30).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void keysetPageWithoutTotalLeavesItUnknown() {
+        BeerPagedList first = beerService.listBeers(null, null, BeerPageCursor.first(BeerPageCursor.SortOrder.ID), 5,
+                false, false).block();
+
+        assertThat(first.getContent()).hasSize(5);
+        assertThat(first.getTotalElements()).isEqualTo(BeerPagedList.UNKNOWN_TOTAL);
+        assertThat(first.getTotalPages()).isEqualTo(-1);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(first.isLast()).isFalse();
+
+        BeerPagedList all = beerService.listBeers(null, null, BeerPageCursor.first(BeerPageCursor.SortOrder.ID), 50,
+                false, false).block();
+
+        assertThat(all.getTotalElements()).isEqualTo(BeerPagedList.UNKNOWN_TOTAL);
+        assertThat(all.isLast()).isTrue();
+    }
+
+    @Test
+    void keysetPagesByBeerNameAreOrdered() {
+        List<BeerDto> beers = seekAll(BeerPageCursor.SortOrder.BEER_NAME);
+
+        assertThat(beers).hasSize(30);
+        assertThat(beers.stream().map(BeerDto::getBeerName).collect(Collectors.toList())).isSorted();
+    }
+
+    @Test
+    void updateIsPersisted() {
+        BeerDto original = beerService.getById(3, true).block();
+        BeerDto update = BeerDto.builder()
+                .beerName("Renamed")
+                .beerStyle(original.getBeerStyle())
+                .upc(original.getUpc())
+                .price(original.getPrice())
+                .build();
+
+        try {
+            beerService.updateBeer(3, update, null).block();
+
+            assertThat(beerService.getById(3, false).block().getBeerName()).isEqualTo("Renamed");
+            assertThat(beerService.getById(3, true).block().getBeerName()).isEqualTo("Renamed");
+        } finally {
+            update.setBeerName(original.getBeerName());
+            beerService.updateBeer(3, update, null).block();
+        }
+    }
+
+    @Test
+    void updateOfMissingBeerIsNotFound() {
+        BeerDto update = BeerDto.builder().beerName("Nope").beerStyle("ALE").upc("0000000000000").build();
+
+        assertThatThrownBy(() -> beerService.updateBeer(999_999, update, null).block()).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void conditionalUpdateChecksVersion() {
+        BeerDto original = beerService.getById(4, true).block();
+        BeerDto update = BeerDto.builder()
+                .beerName(original.getBeerName())
+                .beerStyle(original.getBeerStyle())
+                .upc(original.getUpc())
+                .price(original.getPrice())
+                .build();
+
+        BeerDto updated = beerService.updateBeer(4, update, original.getVersion()).block();
+
+        assertThat(updated.getVersion()).isEqualTo(original.getVersion() + 1);
+        assertThatThrownBy(() -> beerService.updateBeer(4, update, original.getVersion()).block())
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThatThrownBy(() -> beerService.deleteBeerById(4, original.getVersion()).block())
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThat(beerService.getById(4, true).block().getVersion()).isEqualTo(updated.getVersion());
+    }
+
+    private List<BeerDto> seekAll(BeerPageCursor.SortOrder sortOrder) {
+        List<BeerDto> beers = new ArrayList<>();
+        BeerPageCursor cursor = BeerPageCursor.first(sortOrder);
+
+        while (cursor != null) {
+            BeerPagedList page = beerService.listBeers(null, null, cursor, 7, false, true).block();
+            assertThat(page.getTotalElements()).isEqualTo(30);
+
+            beers.addAll(page.getContent());
+            cursor = page.getNextCursor() == null ? null : BeerPageCursor.decode(page.getNextCursor());
+        }
+
+        return beers;
+    }
+}
@@ -0,0 +1,109 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import guru.springframework.sfgrestbrewery.domain.Beer;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BeerSnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackWhatWasWrittenAcrossMappedRegions() throws IOException {
+        Path file = directory.resolve("beers.snapshot");
+        List<Beer> beers = new ArrayList<>();
+        for (int id = 1; id <= 500; id++) {
+            beers.add(Beer.builder().id(id).version((long) id % 3).beerName("Hazy Owl " + id + " Ünïcødé")
+                    .beerStyle(BeerStyleEnum.values()[id % BeerStyleEnum.values().length]).upc(String.valueOf(1_000_000 + id))
+                    .quantityOnHand(id * 7).price(new BigDecimal("12.95").multiply(BigDecimal.valueOf(id)))
+                    .createdDate(LocalDateTime.of(2021, 3, 7, 12, 0, 1, 123_456_789)).lastModifiedDate(LocalDateTime.now())
+                    .build());
+        }
+        // every nullable column null
+        beers.add(Beer.builder().id(501).build());
+
+        try (BeerSnapshotFile.Writer writer = new BeerSnapshotFile.Writer(file)) {
+            for (Beer beer : beers) {
+                writer.write(beer);
+            }
+            assertThat(writer.finish()).isEqualTo(Files.size(file));
+        }
+
+        List<Beer> read = new ArrayList<>();
+        // regions far smaller than the file, so records straddle their ends
+        try (BeerSnapshotFile.Reader reader = new BeerSnapshotFile.Reader(file, 1000)) {
+            assertThat(reader.count()).isEqualTo(501);
+            for (List<Beer> batch = reader.next(64); !batch.isEmpty(); batch = reader.next(64)) {
+                read.addAll(batch);
+            }
+        }
+
+        beers.get(500).setVersion(0L);
+        assertThat(read).isEqualTo(beers);
+        assertThat(directory).isDirectoryNotContaining("glob:**.tmp");
+    }
+
+    @Test
+    void rejectsCorruptSnapshots() throws IOException {
+        Path file = directory.resolve("beers.snapshot");
+        try (BeerSnapshotFile.Writer writer = new BeerSnapshotFile.Writer(file)) {
+            writer.write(Beer.builder().id(1).beerName("Galaxy Cat").build());
+            writer.finish();
+        }
+
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(BeerSnapshotFile.HEADER_SIZE + 20);
+            raw.write('X');
+        }
+
+        assertThatThrownBy(() -> new BeerSnapshotFile.Reader(file))
+                .isInstanceOf(BeerSnapshotFile.CorruptSnapshotException.class)
+                .hasMessageContaining("checksum");
+
+        // a row count that no longer matches the records
+        try (BeerSnapshotFile.Writer writer = new BeerSnapshotFile.Writer(file)) {
+            writer.write(Beer.builder().id(1).beerName("Galaxy Cat").build());
+            writer.finish();
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(8);
+            raw.writeLong(0);
+        }
+
+        assertThatThrownBy(() -> new BeerSnapshotFile.Reader(file))
+                .isInstanceOf(BeerSnapshotFile.CorruptSnapshotException.class)
+                .hasMessageContaining("checksum");
+
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20});
+        assertThatThrownBy(() -> new BeerSnapshotFile.Reader(file))
+                .isInstanceOf(BeerSnapshotFile.CorruptSnapshotException.class)
+                .hasMessageContaining("Not a beer snapshot");
+    }
+
+    @Test
+    void unfinishedExportLeavesNothingBehind() throws IOException {
+        Path file = directory.resolve("beers.snapshot");
+
+        try (BeerSnapshotFile.Writer writer = new BeerSnapshotFile.Writer(file)) {
+            writer.write(Beer.builder().id(1).beerName("Galaxy Cat").build());
+        }
+
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import guru.springframework.sfgrestbrewery.bootstrap.BeerLoader;
+import guru.springframework.sfgrestbrewery.domain.Beer;
+import guru.springframework.sfgrestbrewery.repositories.BeerRepository;
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class BeerStyleStatsTest {
+
+    static final Beer ROW = Beer.builder().id(1).beerName("Saison").beerStyle(BeerStyleEnum.SAISON)
+            .upc("900000000001").price(new BigDecimal("5.00")).quantityOnHand(12).build();
+
+    BeerRepository beerRepository;
+    BeerEventPublisher beerEventPublisher;
+    InventoryService inventoryService;
+    BeerStyleStats beerStyleStats;
+
+    // the beer table as the build reads it, row by row
+    Sinks.Many<Beer> rows;
+    Sinks.Many<Map<Integer, Long>> flushed;
+    AtomicLong flushCount;
+
+    @BeforeEach
+    void setUp() {
+        rows = Sinks.many().unicast().onBackpressureBuffer();
+        flushed = Sinks.many().multicast().directBestEffort();
+        flushCount = new AtomicLong();
+
+        beerRepository = mock(BeerRepository.class);
+        given(beerRepository.findAll()).willReturn(rows.asFlux());
+        given(beerRepository.findAllById(anyIterable())).willReturn(Flux.just(ROW));
+
+        BeerLoader beerLoader = mock(BeerLoader.class);
+        given(beerLoader.loaded()).willReturn(Mono.never());
+
+        inventoryService = mock(InventoryService.class);
+        given(inventoryService.flushed()).willReturn(flushed.asFlux());
+        given(inventoryService.flushCount()).willAnswer(invocation -> flushCount.get());
+
+        beerEventPublisher = new BeerEventPublisher(16, 16);
+        beerStyleStats = new BeerStyleStats(beerRepository, beerEventPublisher, beerLoader, inventoryService, null);
+        beerStyleStats.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        beerStyleStats.destroy();
+    }
+
+    @Test
+    void beerUpdatedBeforeTheBuildReadsItsRowIsKept() throws InterruptedException {
+        beerStyleStats.rebuild();
+
+        beerEventPublisher.updated(BeerDto.builder().id(1).beerName("Saison").beerStyle("SAISON")
+                .upc("900000000001").price(new BigDecimal("6.00")).build(), null);
+        // the event reaches the statistics off the publishing thread
+        statisticsOnce(saison -> saison.getCount() == 1);
+
+        rows.tryEmitNext(ROW);
+        rows.tryEmitComplete();
+        beerStyleStats.built().block(Duration.ofSeconds(5));
+
+        BeerStyleStatistics saison = statisticsOnce(statistics -> statistics.getTotalInventory() == 12);
+        assertThat(saison.getCount()).isEqualTo(1);
+        assertThat(saison.getMaxPrice()).isEqualByComparingTo("6.00");
+    }
+
+    @Test
+    void batchReadWhileAFlushIsUnpublishedIsReadAgain() throws InterruptedException {
+        beerStyleStats.rebuild();
+
+        // a flush of 5 is written, and in the row the build reads, but not yet published
+        flushCount.set(-1);
+        rows.tryEmitNext(ROW);
+        rows.tryEmitComplete();
+        Thread.sleep(100);
+        flushed.tryEmitNext(Map.of(1, 5L));
+        flushCount.set(1);
+
+        beerStyleStats.built().block(Duration.ofSeconds(5));
+
+        BeerStyleStatistics saison = statisticsOnce(statistics -> statistics.getCount() == 1);
+        assertThat(saison.getTotalInventory()).isEqualTo(12);
+    }
+
+    private BeerStyleStatistics statisticsOnce(Predicate<BeerStyleStatistics> condition) throws InterruptedException {
+        BeerStyleStatistics saison = saison();
+
+        for (int attempt = 1; attempt < 50 && (saison == null || !condition.test(saison)); attempt++) {
+            Thread.sleep(100);
+            saison = saison();
+        }
+
+        assertThat(saison).isNotNull().matches(condition);
+        return saison;
+    }
+
+    private BeerStyleStatistics saison() {
+        List<BeerStyleStatistics> statistics = beerStyleStats.statistics().block();
+        return statistics.stream().filter(style -> style.getBeerStyle().equals("SAISON")).findFirst().orElse(null);
+    }
+}
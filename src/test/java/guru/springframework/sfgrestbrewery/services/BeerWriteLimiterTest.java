@@ -0,0 +1,44 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BeerWriteLimiterTest {
+
+    BeerWriteLimiter writeLimiter;
+
+    @BeforeEach
+    void setUp() {
+        writeLimiter = new BeerWriteLimiter(1, Duration.ofSeconds(1));
+    }
+
+    @Test
+    void rejectsWritesOverTheLimit() {
+        Sinks.One<String> pending = Sinks.one();
+        writeLimiter.limit(pending.asMono()).subscribe();
+
+        assertThat(writeLimiter.inFlight()).isEqualTo(1);
+        assertThatThrownBy(() -> writeLimiter.limit(Mono.just("second")).block())
+                .isInstanceOf(WritesSaturatedException.class);
+
+        pending.tryEmitValue("first");
+
+        assertThat(writeLimiter.inFlight()).isZero();
+        assertThat(writeLimiter.limit(Mono.just("third")).block()).isEqualTo("third");
+    }
+
+    @Test
+    void releasesSlotOnError() {
+        assertThatThrownBy(() -> writeLimiter.limit(Mono.error(new IllegalStateException())).block())
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(writeLimiter.inFlight()).isZero();
+    }
+}
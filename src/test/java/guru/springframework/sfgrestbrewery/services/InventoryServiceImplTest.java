@@ -0,0 +1,130 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import guru.springframework.sfgrestbrewery.bootstrap.BeerLoader;
+import guru.springframework.sfgrestbrewery.repositories.BeerRepository;
+import guru.springframework.sfgrestbrewery.web.controller.NotFoundException;
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerInventory;
+import guru.springframework.sfgrestbrewery.web.model.BeerReservation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class InventoryServiceImplTest {
+
+    @Autowired
+    InventoryServiceImpl inventoryService;
+
+    @Autowired
+    BeerService beerService;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    BeerLoader beerLoader;
+
+    @BeforeEach
+    void setUp() {
+        beerLoader.loaded().block(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void committedStockIsWrittenBehind() {
+        inventoryService.flush().block();
+        int persisted = beerRepository.findById(7).block().getQuantityOnHand();
+
+        inventoryService.restock(7, 100).block();
+        BeerReservation reservation = inventoryService.reserve(7, 30).block();
+
+        BeerInventory inventory = inventoryService.getInventory(7).block();
+        assertThat(inventory.getReserved()).isEqualTo(30);
+        assertThat(inventory.getOnHand()).isEqualTo(persisted + 100);
+
+        inventoryService.commit(reservation.getId()).block();
+        inventoryService.flush().block();
+
+        assertThat(beerRepository.findById(7).block().getQuantityOnHand()).isEqualTo(persisted + 70);
+        assertThatThrownBy(() -> inventoryService.commit(reservation.getId()).block())
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void catalogUpdateKeepsFlushedStock() {
+        inventoryService.restock(8, 5).block();
+        inventoryService.flush().block();
+        int persisted = beerRepository.findById(8).block().getQuantityOnHand();
+
+        BeerDto beer = beerService.getById(8, false).block();
+        beerService.updateBeer(8, BeerDto.builder().beerName(beer.getBeerName()).beerStyle(beer.getBeerStyle())
+                .upc(beer.getUpc()).price(beer.getPrice()).quantityOnHand(0).build(), null).block();
+
+        assertThat(beerRepository.findById(8).block().getQuantityOnHand()).isEqualTo(persisted);
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        long available = inventoryService.getInventory(9).block().getAvailable();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<BeerReservation> reserved = new ArrayList<>();
+
+        try {
+            List<Callable<List<BeerReservation>>> clients = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                clients.add(() -> {
+                    List<BeerReservation> mine = new ArrayList<>();
+                    for (int attempt = 0; attempt < available / 4 + 10; attempt++) {
+                        try {
+                            mine.add(inventoryService.reserve(9, 1).block());
+                        } catch (InsufficientStockException e) {
+                            // sold out
+                        }
+                    }
+                    return mine;
+                });
+            }
+            for (Future<List<BeerReservation>> result : executor.invokeAll(clients)) {
+                reserved.addAll(result.get());
+            }
+
+            assertThat(reserved).hasSize((int) available);
+            assertThat(inventoryService.getInventory(9).block().getAvailable()).isZero();
+        } finally {
+            executor.shutdownNow();
+            reserved.forEach(reservation -> inventoryService.release(reservation.getId()).block());
+        }
+
+        assertThat(inventoryService.getInventory(9).block().getAvailable()).isEqualTo(available);
+    }
+
+    @Test
+    void expiredReservationsAreReleased() {
+        long available = inventoryService.getInventory(10).block().getAvailable();
+        BeerReservation reservation = inventoryService.reserve(10, 1).block();
+
+        inventoryService.releaseExpired(reservation.getExpiresAt().plusSeconds(1));
+
+        assertThat(inventoryService.getInventory(10).block().getAvailable()).isEqualTo(available);
+        assertThatThrownBy(() -> inventoryService.release(reservation.getId()).block())
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void unknownBeerIsNotFound() {
+        assertThatThrownBy(() -> inventoryService.reserve(999_999, 1).block()).isInstanceOf(NotFoundException.class);
+    }
+}
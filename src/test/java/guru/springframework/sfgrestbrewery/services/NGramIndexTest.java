@@ -0,0 +1,91 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NGramIndexTest {
+
+    @Test
+    void matchesWordPrefixesBestFirst() {
+        NGramIndex<String> index = index("Galaxy Cat", "Galaxy Cat Imperial", "Golden Budda", "Mango Bobs");
+
+        assertThat(ids(index, "galaxy cat")).containsExactly(1, 2);
+        assertThat(ids(index, "gal")).containsExactly(1, 2);
+        assertThat(ids(index, "bud")).containsExactly(3);
+        assertThat(ids(index, "g")).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void toleratesTyposAndAccents() {
+        NGramIndex<String> index = index("Galaxy Cat", "Summer Wheatly", "Café Crème");
+
+        assertThat(ids(index, "galxy")).containsExactly(1);
+        assertThat(ids(index, "sumer wheatley")).containsExactly(2);
+        assertThat(ids(index, "CAFE creme")).containsExactly(3);
+        assertThat(ids(index, "stout")).isEmpty();
+        assertThat(ids(index, " - ")).isEmpty();
+    }
+
+    @Test
+    void pagesThroughRankedMatches() {
+        NGramIndex<String> index = new NGramIndex<>();
+        for (int id = 1; id <= 10; id++) {
+            index.put(id, "Hazy Owl " + id, "beer " + id);
+        }
+
+        NGramIndex.Matches<String> page = index.search("hazy", 0.5, 4, 4);
+
+        assertThat(page.getTotal()).isEqualTo(10);
+        assertThat(page.getMatches()).extracting(NGramIndex.Match::getId).containsExactly(5, 6, 7, 8);
+        assertThat(page.getMatches().get(0).getValue()).isEqualTo("beer 5");
+        assertThat(index.search("hazy", 0.5, 12, 4).getMatches()).isEmpty();
+    }
+
+    @Test
+    void replacesAndRemovesDocuments() {
+        NGramIndex<String> index = index("Galaxy Cat", "Mango Bobs");
+
+        index.put(1, "Pinball Porter", "updated");
+        index.remove(2);
+
+        assertThat(ids(index, "galaxy")).isEmpty();
+        assertThat(ids(index, "mango")).isEmpty();
+        assertThat(ids(index, "pinball")).containsExactly(1);
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.contains(2)).isFalse();
+    }
+
+    @Test
+    void compactsAfterManyUpdates() {
+        NGramIndex<String> index = new NGramIndex<>();
+        for (int round = 0; round < 5; round++) {
+            for (int id = 1; id <= 1000; id++) {
+                index.put(id, "Dark Comet " + round + " " + id, "round " + round);
+            }
+        }
+
+        NGramIndex.Matches<String> matches = index.search("dark comet 4", 0.5, 0, 1000);
+
+        assertThat(index.size()).isEqualTo(1000);
+        assertThat(matches.getTotal()).isEqualTo(1000);
+        assertThat(matches.getMatches()).allMatch(match -> match.getValue().equals("round 4"));
+    }
+
+    private static NGramIndex<String> index(String... names) {
+        NGramIndex<String> index = new NGramIndex<>();
+        for (int i = 0; i < names.length; i++) {
+            index.put(i + 1, names[i], names[i]);
+        }
+        return index;
+    }
+
+    private static List<Integer> ids(NGramIndex<String> index, String query) {
+        return index.search(query, 0.5, 0, 10).getMatches().stream()
+                .map(NGramIndex.Match::getId)
+                .collect(Collectors.toList());
+    }
+}
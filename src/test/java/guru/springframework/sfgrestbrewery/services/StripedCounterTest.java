@@ -0,0 +1,66 @@
+package guru.springframework.sfgrestbrewery.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripedCounterTest {
+
+    @Test
+    void neverGoesBelowZero() {
+        StripedCounter counter = new StripedCounter(4, 5);
+
+        assertThat(counter.tryAcquire(3)).isTrue();
+        assertThat(counter.tryAcquire(3)).isFalse();
+        assertThat(counter.tryAcquire(2)).isTrue();
+        assertThat(counter.tryAcquire(1)).isFalse();
+        assertThat(counter.sum()).isZero();
+
+        counter.add(4);
+        assertThat(counter.tryAcquire(4)).isTrue();
+    }
+
+    @Test
+    void concurrentTakersGetExactlyTheStock() throws Exception {
+        StripedCounter counter = new StripedCounter(8, 10_000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Callable<Long>> takers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                takers.add(() -> {
+                    long taken = 0;
+                    for (int attempt = 0; attempt < 5_000; attempt++) {
+                        int amount = ThreadLocalRandom.current().nextInt(1, 4);
+                        if (counter.tryAcquire(amount)) {
+                            taken += amount;
+                        }
+                        // give some back now and then, so stock moves between cells
+                        if (attempt % 7 == 0 && counter.tryAcquire(1)) {
+                            counter.add(1);
+                        }
+                    }
+                    return taken;
+                });
+            }
+
+            long taken = 0;
+            for (Future<Long> result : executor.invokeAll(takers)) {
+                taken += result.get();
+            }
+
+            assertThat(counter.sum()).isGreaterThanOrEqualTo(0);
+            assertThat(taken + counter.sum()).isEqualTo(10_000);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -2,8 +2,11 @@ package guru.springframework.sfgrestbrewery.web.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import guru.springframework.sfgrestbrewery.bootstrap.BeerLoader;
+import guru.springframework.sfgrestbrewery.services.BeerEventPublisher;
 import guru.springframework.sfgrestbrewery.services.BeerService;
+import guru.springframework.sfgrestbrewery.services.WritesSaturatedException;
 import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerPageCursor;
 import guru.springframework.sfgrestbrewery.web.model.BeerPagedList;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,25 +14,37 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.test.web.servlet.MockMvc;
 import reactor.core.publisher.Mono;
 
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.core.Is.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebFluxTest(BeerController.class)
+@Import({BeerPageCache.class, BeerEventPublisher.class})
 public class BeerControllerTest {
 
     @MockBean
@@ -38,6 +53,9 @@ public class BeerControllerTest {
     @Autowired
     WebTestClient mockMvc;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
     BeerDto validBeer;
 
     @BeforeEach
@@ -60,6 +78,16 @@ public class BeerControllerTest {
                 .value(BeerDto::getId, equalTo(validBeer.getId()));
     }
 
+    @Test
+    public void getBeerHasETag() throws Exception {
+        validBeer.setVersion(3L);
+        given(beerService.getById(any(Integer.class), any())).willReturn(Mono.just(validBeer));
+
+        mockMvc.get().uri("/api/v1/beer/1").ifNoneMatch("\"2\"").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"");
+    }
+
     @Test
     public void getBeerByUpc() throws Exception {
         given(beerService.getByUpc(any())).willReturn(Mono.just(validBeer));
@@ -73,7 +101,7 @@ public class BeerControllerTest {
 
     @Test
     public void getBeers() throws Exception {
-        given(beerService.listBeers(any(), any(),any(),any())).willReturn(Mono.just(new BeerPagedList(List.of(validBeer))));
+        given(beerService.findBeers(any(), any(), any(), any(), any())).willReturn(Mono.just(new BeerPagedList(List.of(validBeer))));
 
         mockMvc.get().uri("/api/v1/beer").accept(MediaType.APPLICATION_JSON).exchange()
                 .expectStatus().isOk()
@@ -81,6 +109,105 @@ public class BeerControllerTest {
                 .value(PageImpl::getTotalElements, equalTo(1L));
     }
 
+    @Test
+    public void getBeersGzipped() throws Exception {
+        List<BeerDto> beers = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            beers.add(BeerDto.builder().id(i).beerName("Beer" + i).beerStyle("PALE_ALE").upc(BeerLoader.BEER_2_UPC).build());
+        }
+        given(beerService.findBeers(any(), any(), any(), any(), any())).willReturn(Mono.just(new BeerPagedList(beers)));
+
+        byte[] body = mockMvc.get().uri("/api/v1/beer?pageSize=30").accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING)
+                .expectBody().returnResult().getResponseBody();
+
+        try (GZIPInputStream json = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertThat(objectMapper.readValue(json, BeerPagedList.class).getContent()).hasSize(30);
+        }
+
+        // the second request is served from the cache
+        mockMvc.get().uri("/api/v1/beer?pageSize=30").accept(MediaType.APPLICATION_JSON).exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.CONTENT_ENCODING)
+                .expectBody(BeerPagedList.class)
+                .value(page -> assertThat(page.getContent()).hasSize(30));
+        then(beerService).should().findBeers(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void getBeersWithSparseFields() throws Exception {
+        given(beerService.findBeers(any(), any(), any(), any(), any())).willReturn(Mono.just(new BeerPagedList(List.of(validBeer))));
+
+        mockMvc.get().uri("/api/v1/beer?fields=id,beerName").accept(MediaType.valueOf(WireFormat.COMPACT_JSON_VALUE)).exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content[0].beerName").isEqualTo("Beer1")
+                .jsonPath("$.content[0].id").isEqualTo(1)
+                .jsonPath("$.content[0].upc").doesNotExist()
+                .jsonPath("$.content[0].beerStyle").doesNotExist()
+                .jsonPath("$.totalElements").isEqualTo(1);
+
+        mockMvc.get().uri("/api/v1/beer?fields=id,color").accept(MediaType.APPLICATION_JSON).exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void getBeersAsCompactJson() throws Exception {
+        given(beerService.findBeers(any(), any(), any(), any(), any())).willReturn(Mono.just(new BeerPagedList(List.of(validBeer))));
+
+        mockMvc.get().uri("/api/v1/beer").accept(MediaType.valueOf(WireFormat.COMPACT_JSON_VALUE)).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(WireFormat.COMPACT_JSON_VALUE)
+                .expectBody()
+                .jsonPath("$.content[0].beerName").isEqualTo("Beer1")
+                .jsonPath("$.totalElements").isEqualTo(1)
+                .jsonPath("$.pageable").doesNotExist();
+    }
+
+    @Test
+    public void getBeerAsCbor() throws Exception {
+        given(beerService.getById(any(Integer.class), any())).willReturn(Mono.just(validBeer));
+
+        byte[] body = mockMvc.get().uri("/api/v1/beer/1").accept(MediaType.APPLICATION_CBOR).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBody().returnResult().getResponseBody();
+
+        assertThat(Jackson2ObjectMapperBuilder.cbor().build().readValue(body, BeerDto.class).getBeerName()).isEqualTo("Beer1");
+    }
+
+    @Test
+    public void getBeersByCursor() throws Exception {
+        given(beerService.listBeers(any(), any(), any(BeerPageCursor.class), anyInt(), any(), any()))
+                .willReturn(Mono.just(new BeerPagedList(List.of(validBeer))));
+
+        mockMvc.get().uri("/api/v1/beer?cursor=").accept(MediaType.APPLICATION_JSON).exchange()
+                .expectStatus().isOk()
+                .expectBody(BeerPagedList.class)
+                .value(PageImpl::getTotalElements, equalTo(1L));
+    }
+
+    @Test
+    public void getBeersByCursorCapsPageSize() throws Exception {
+        given(beerService.listBeers(any(), any(), any(BeerPageCursor.class), anyInt(), any(), any()))
+                .willReturn(Mono.just(new BeerPagedList(List.of(validBeer))));
+
+        mockMvc.get().uri("/api/v1/beer?cursor=&pageSize=" + Integer.MAX_VALUE).accept(MediaType.APPLICATION_JSON).exchange()
+                .expectStatus().isOk();
+
+        then(beerService).should().listBeers(any(), any(), any(BeerPageCursor.class), eq(1000), any(), any());
+    }
+
+    @Test
+    public void getBeersByInvalidCursor() throws Exception {
+        mockMvc.get().uri("/api/v1/beer?cursor=garbage").accept(MediaType.APPLICATION_JSON).exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     public void handlePost() throws Exception {
         //given
@@ -93,7 +220,8 @@ public class BeerControllerTest {
         mockMvc.post().uri("/api/v1/beer/")
                 .contentType(MediaType.APPLICATION_JSON)
                 .body(Mono.just(beerDto), BeerDto.class).exchange()
-                .expectStatus().isCreated();
+                .expectStatus().isCreated()
+                .expectHeader().location("http://localhost:8080/api/v1/beer/1");
 
     }
 
@@ -102,14 +230,89 @@ public class BeerControllerTest {
         //given
         BeerDto beerDto = validBeer;
         beerDto.setId(null);
+        given(beerService.updateBeer(any(), any(), any())).willReturn(Mono.just(validBeer));
 
         //when
-        mockMvc.put().uri("/api/v1/beer/" + UUID.randomUUID())
+        mockMvc.put().uri("/api/v1/beer/1")
                 .contentType(MediaType.APPLICATION_JSON)
                 .body(Mono.just(beerDto), BeerDto.class).exchange()
                 .expectStatus().isNoContent();
 
-        then(beerService).should().updateBeer(any(), any());
+        then(beerService).should().updateBeer(any(), any(), any());
+
+    }
+
+    @Test
+    public void handleUpdateNotFound() throws Exception {
+        BeerDto beerDto = validBeer;
+        beerDto.setId(null);
+        given(beerService.updateBeer(any(), any(), any())).willReturn(Mono.error(new NotFoundException()));
+
+        mockMvc.put().uri("/api/v1/beer/999")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(beerDto), BeerDto.class).exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void handleDuplicateUpc() throws Exception {
+        BeerDto beerDto = validBeer;
+        beerDto.setId(null);
+        given(beerService.saveNewBeer(any(BeerDto.class))).willReturn(Mono.error(new DuplicateKeyException("upc")));
+        given(beerService.updateBeer(any(), any(), any())).willReturn(Mono.error(new DuplicateKeyException("upc")));
+
+        mockMvc.post().uri("/api/v1/beer/")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(beerDto), BeerDto.class).exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+
+        mockMvc.put().uri("/api/v1/beer/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(beerDto), BeerDto.class).exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    public void handleWriteWhenSaturated() throws Exception {
+        BeerDto beerDto = validBeer;
+        beerDto.setId(null);
+        given(beerService.saveNewBeer(any(BeerDto.class))).willReturn(Mono.error(new WritesSaturatedException(Duration.ofSeconds(2))));
+
+        mockMvc.post().uri("/api/v1/beer/")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(beerDto), BeerDto.class).exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "2");
+    }
+
+    @Test
+    public void handleDelete() throws Exception {
+        given(beerService.deleteBeerById(any(), any())).willReturn(Mono.empty());
+
+        mockMvc.delete().uri("/api/v1/beer/1").exchange()
+                .expectStatus().isNoContent();
+
+        then(beerService).should().deleteBeerById(1, null);
+    }
+
+    @Test
+    public void handleDeleteIfMatch() throws Exception {
+        given(beerService.deleteBeerById(any(), any())).willReturn(Mono.error(new PreconditionFailedException()));
+
+        mockMvc.delete().uri("/api/v1/beer/1").header(HttpHeaders.IF_MATCH, "\"4\"").exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        then(beerService).should().deleteBeerById(1, 4L);
+    }
+
+    @Test
+    public void getBeerNotModified() throws Exception {
+        validBeer.setVersion(3L);
+        given(beerService.getById(any(Integer.class), any())).willReturn(Mono.just(validBeer));
 
+        mockMvc.get().uri("/api/v1/beer/1").ifNoneMatch("\"3\"").exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectBody().isEmpty();
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package guru.springframework.sfgrestbrewery.web.controller;
+
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BeerETagsTest {
+
+    @Test
+    void eTagIsQuotedVersion() {
+        assertThat(BeerETags.of(BeerDto.builder().version(7L).build())).isEqualTo("\"7\"");
+    }
+
+    @Test
+    void inventoryETagCarriesQuantity() {
+        String eTag = BeerETags.of(BeerDto.builder().version(7L).quantityOnHand(120).build());
+
+        assertThat(eTag).isEqualTo("\"7-120\"");
+        assertThat(BeerETags.expectedVersion(List.of(eTag))).isEqualTo(7L);
+    }
+
+    @Test
+    void expectedVersion() {
+        assertThat(BeerETags.expectedVersion(List.of())).isNull();
+        assertThat(BeerETags.expectedVersion(List.of("*"))).isNull();
+        assertThat(BeerETags.expectedVersion(List.of("\"7\""))).isEqualTo(7L);
+        assertThat(BeerETags.expectedVersion(List.of("W/\"7\"", "\"8\""))).isEqualTo(8L);
+    }
+
+    @Test
+    void foreignTagNeverMatches() {
+        assertThat(BeerETags.expectedVersion(List.of("\"abc\""))).isEqualTo(-1L);
+        assertThat(BeerETags.expectedVersion(List.of("W/\"7\""))).isEqualTo(-1L);
+    }
+}
@@ -0,0 +1,97 @@
+package guru.springframework.sfgrestbrewery.web.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import guru.springframework.sfgrestbrewery.services.BeerEventPublisher;
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerPage;
+import guru.springframework.sfgrestbrewery.web.model.BeerPagedList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BeerPageCacheTest {
+
+    ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+    BeerEventPublisher beerEventPublisher = new BeerEventPublisher(16, 16);
+    BeerPageCache beerPageCache;
+    AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        beerPageCache = new BeerPageCache(objectMapper, Jackson2ObjectMapperBuilder.json(), beerEventPublisher, DataSize.ofKilobytes(64),
+                DataSize.ofKilobytes(2), Duration.ofMinutes(5));
+        beerPageCache.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        beerPageCache.destroy();
+    }
+
+    @Test
+    void beerChangesDropCachedPages() throws Exception {
+        BeerPageCache.EncodedPage first = load(PageRequest.of(0, 25), false);
+        BeerPageCache.EncodedPage second = load(PageRequest.of(0, 25), false);
+
+        assertThat(second).isSameAs(first);
+        assertThat(objectMapper.readValue(first.getBody(), BeerPagedList.class).getContent()).hasSize(1);
+
+        beerEventPublisher.deleted(1, "0631234200036");
+        load(PageRequest.of(0, 25), false);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void inventoryPagesAreNotKept() {
+        load(PageRequest.of(0, 25), true);
+        load(PageRequest.of(0, 25), true);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void boundedByBytes() {
+        for (int page = 0; page < 2000; page++) {
+            load(PageRequest.of(page, 25), false);
+        }
+
+        assertThat(beerPageCache.weightedSize()).isLessThanOrEqualTo(DataSize.ofKilobytes(64).toBytes());
+    }
+
+    @Test
+    void pagesAreKeptPerFormat() throws Exception {
+        BeerPageCache.EncodedPage json = load(PageRequest.of(0, 25), false);
+        BeerPageCache.EncodedPage smile = load(WireFormat.SMILE, PageRequest.of(0, 25), false);
+
+        assertThat(loads).hasValue(2);
+        assertThat(json.getBody()).isNotEqualTo(smile.getBody());
+
+        BeerPage page = Jackson2ObjectMapperBuilder.smile().build().readValue(smile.getBody(), BeerPage.class);
+        assertThat(page.getContent()).extracting(BeerDto::getBeerName).containsExactly("Beer1");
+        assertThat(page.getTotalElements()).isEqualTo(1);
+    }
+
+    private BeerPageCache.EncodedPage load(PageRequest pageRequest, boolean showInventoryOnHand) {
+        return load(WireFormat.JSON, pageRequest, showInventoryOnHand);
+    }
+
+    private BeerPageCache.EncodedPage load(WireFormat format, PageRequest pageRequest, boolean showInventoryOnHand) {
+        return beerPageCache.listBeers(format, null, null, pageRequest, showInventoryOnHand, () -> {
+            loads.incrementAndGet();
+            return Mono.just(new BeerPagedList(List.of(BeerDto.builder().id(1).beerName("Beer1").build()), pageRequest, 1));
+        }).block();
+    }
+}
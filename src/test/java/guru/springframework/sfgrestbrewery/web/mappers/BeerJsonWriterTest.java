@@ -0,0 +1,87 @@
+package guru.springframework.sfgrestbrewery.web.mappers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import guru.springframework.sfgrestbrewery.domain.Beer;
+import guru.springframework.sfgrestbrewery.web.model.BeerDto;
+import guru.springframework.sfgrestbrewery.web.model.BeerFields;
+import guru.springframework.sfgrestbrewery.web.model.BeerStyleEnum;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BeerJsonWriterTest {
+
+    // as Boot configures it
+    ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+    BeerMapper beerMapper = new BeerMapperImpl();
+    BeerJsonWriter beerJsonWriter = new BeerJsonWriter(objectMapper);
+
+    @Test
+    void writesWhatTheDtoSerializesTo() throws Exception {
+        Beer beer = Beer.builder()
+                .id(7)
+                .version(3L)
+                .beerName("Galaxy \"Cat\"")
+                .beerStyle(BeerStyleEnum.PALE_ALE)
+                .upc("9122089364369")
+                .quantityOnHand(250)
+                .price(new BigDecimal("12.90"))
+                .createdDate(LocalDateTime.of(2021, 4, 1, 12, 30, 0, 120_000_000))
+                .lastModifiedDate(LocalDateTime.now())
+                .build();
+
+        assertThat(writeLine(beer, false)).isEqualTo(objectMapper.writeValueAsString(beerMapper.beerToBeerDto(beer)) + "\n");
+        assertThat(writeLine(beer, true))
+                .isEqualTo(objectMapper.writeValueAsString(beerMapper.beerToBeerDtoWithInventory(beer)) + "\n");
+    }
+
+    @Test
+    void followsTheDateFormatOfTheObjectMapper() throws Exception {
+        ObjectMapper timestamps = Jackson2ObjectMapperBuilder.json().build();
+        Beer beer = Beer.builder().id(9).createdDate(LocalDateTime.of(2021, 4, 1, 12, 30, 5, 120_000_000)).build();
+
+        String line = new BeerJsonWriter(timestamps).writeLine(beer, false, new DefaultDataBufferFactory())
+                .toString(StandardCharsets.UTF_8);
+
+        assertThat(line).isEqualTo(timestamps.writeValueAsString(beerMapper.beerToBeerDto(beer)) + "\n");
+    }
+
+    @Test
+    void writesNullsAsTheDtoDoes() throws Exception {
+        Beer beer = Beer.builder().id(8).build();
+
+        assertThat(writeLine(beer, true))
+                .isEqualTo(objectMapper.writeValueAsString(beerMapper.beerToBeerDtoWithInventory(beer)) + "\n");
+    }
+
+    @Test
+    void writesOnlyTheRequestedFieldsAsTheFilteredDtoDoes() throws Exception {
+        ObjectMapper filtered = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .mixIn(BeerDto.class, BeerFields.FilteredMixin.class)
+                .build();
+        BeerFields fields = BeerFields.parse("price,id,createdDate,quantityOnHand");
+        Beer beer = Beer.builder().id(7).version(3L).beerName("Galaxy Cat").price(new BigDecimal("12.90"))
+                .quantityOnHand(250).createdDate(LocalDateTime.of(2021, 4, 1, 12, 30)).build();
+
+        String line = beerJsonWriter.writeLine(beer, true, fields, new DefaultDataBufferFactory()).toString(StandardCharsets.UTF_8);
+
+        assertThat(line).isEqualTo(filtered.writer(fields.filters())
+                .writeValueAsString(beerMapper.beerToBeerDtoWithInventory(beer)) + "\n");
+        assertThat(line).isEqualTo("{\"id\":7,\"price\":12.90,\"quantityOnHand\":250,\"createdDate\":\"2021-04-01T12:30:00\"}\n");
+    }
+
+    private String writeLine(Beer beer, boolean showInventoryOnHand) {
+        DataBuffer buffer = beerJsonWriter.writeLine(beer, showInventoryOnHand, new DefaultDataBufferFactory());
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+}
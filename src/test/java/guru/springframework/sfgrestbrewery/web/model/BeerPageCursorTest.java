@@ -0,0 +1,38 @@
+package guru.springframework.sfgrestbrewery.web.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class BeerPageCursorTest {
+
+    @Test
+    void roundTripsIdCursor() {
+        BeerPageCursor cursor = BeerPageCursor.first(null).after(BeerDto.builder().id(42).beerName("Galaxy Cat").build());
+
+        BeerPageCursor decoded = BeerPageCursor.decode(cursor.encode());
+
+        assertThat(decoded.getSortOrder()).isEqualTo(BeerPageCursor.SortOrder.ID);
+        assertThat(decoded.getLastId()).isEqualTo(42);
+        assertThat(decoded.getLastBeerName()).isNull();
+    }
+
+    @Test
+    void roundTripsBeerNameCursor() {
+        BeerPageCursor cursor = BeerPageCursor.first(BeerPageCursor.SortOrder.BEER_NAME)
+                .after(BeerDto.builder().id(7).beerName("N.Z.P: Hazy").build());
+
+        BeerPageCursor decoded = BeerPageCursor.decode(cursor.encode());
+
+        assertThat(decoded.getSortOrder()).isEqualTo(BeerPageCursor.SortOrder.BEER_NAME);
+        assertThat(decoded.getLastId()).isEqualTo(7);
+        assertThat(decoded.getLastBeerName()).isEqualTo("N.Z.P: Hazy");
+    }
+
+    @Test
+    void rejectsGarbage() {
+        assertThatIllegalArgumentException().isThrownBy(() -> BeerPageCursor.decode("not a cursor!"));
+        assertThatIllegalArgumentException().isThrownBy(() -> BeerPageCursor.decode("WDEy"));
+    }
+}